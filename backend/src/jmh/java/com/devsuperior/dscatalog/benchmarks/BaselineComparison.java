@@ -0,0 +1,95 @@
+package com.devsuperior.dscatalog.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+//compara dois resultados JSON do JMH (-rf json): tempo por operação e bytes alocados por operação (gc.alloc.rate.norm,
+//do -prof gc). termina com código 1 se algum benchmark piorou além da tolerância, para falhar o build.
+//uso: BaselineComparison <baseline.json> <resultado.json> [tolerância, padrão 0.25 = 25%]
+public class BaselineComparison {
+	
+	private static final String ALLOCATION = "gc.alloc.rate.norm";
+	
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: BaselineComparison <baseline.json> <result.json> [tolerance]");
+			System.exit(2);
+		}
+		double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : 0.25;
+		Map<String, JsonNode> baseline = read(new File(args[0]));
+		Map<String, JsonNode> current = read(new File(args[1]));
+	
+		int regressions = 0;
+		System.out.printf("%-80s %14s %14s %8s %12s %12s %8s%n", "Benchmark", "Baseline", "Current", "Change",
+				"B/op base", "B/op now", "Change");
+		for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+			JsonNode before = baseline.get(entry.getKey());
+			JsonNode after = entry.getValue();
+			if (before == null) {
+				System.out.printf("%-80s %14s %14.3f%n", entry.getKey(), "(new)", score(after));
+				continue;
+			}
+			//em throughput maior é melhor; nos demais modos (tempo por operação) menor é melhor
+			double timeChange = change(score(before), score(after));
+			if ("thrpt".equals(after.path("mode").asText())) {
+				timeChange = -timeChange;
+			}
+			double allocationBefore = allocation(before);
+			double allocationAfter = allocation(after);
+			double allocationChange = change(allocationBefore, allocationAfter);
+			boolean regressed = timeChange > tolerance || allocationChange > tolerance;
+			if (regressed) {
+				regressions++;
+			}
+			System.out.printf("%-80s %14.3f %14.3f %+7.1f%% %12.1f %12.1f %+7.1f%%%s%n", entry.getKey(), score(before),
+					score(after), timeChange * 100, allocationBefore, allocationAfter, allocationChange * 100,
+					regressed ? "  <-- REGRESSION" : "");
+		}
+		baseline.keySet().stream().filter(x -> !current.containsKey(x))
+				.forEach(x -> System.out.printf("%-80s %14s%n", x, "(missing)"));
+	
+		if (regressions > 0) {
+			System.out.printf("%d benchmark(s) regressed more than %.0f%% against the baseline%n", regressions,
+					tolerance * 100);
+			System.exit(1);
+		}
+		System.out.printf("No regressions above %.0f%%%n", tolerance * 100);
+	}
+	
+	//benchmark + parâmetros -> resultado
+	private static Map<String, JsonNode> read(File file) throws IOException {
+		Map<String, JsonNode> results = new LinkedHashMap<>();
+		for (JsonNode result : new ObjectMapper().readTree(file)) {
+			Map<String, String> params = new TreeMap<>();
+			Iterator<Map.Entry<String, JsonNode>> fields = result.path("params").fields();
+			fields.forEachRemaining(x -> params.put(x.getKey(), x.getValue().asText()));
+			String name = result.path("benchmark").asText().replace("com.devsuperior.dscatalog.benchmarks.", "");
+			results.put(params.isEmpty() ? name : name + params, result);
+		}
+		return results;
+	}
+	
+	private static double score(JsonNode result) {
+		return result.path("primaryMetric").path("score").asDouble();
+	}
+	
+	private static double allocation(JsonNode result) {
+		return result.path("secondaryMetrics").path(ALLOCATION).path("score").asDouble(Double.NaN);
+	}
+	
+	//variação relativa; sem medida (ex.: rodado sem -prof gc) ou base zero conta como sem variação
+	private static double change(double before, double after) {
+		if (Double.isNaN(before) || Double.isNaN(after) || before == 0.0) {
+			return 0.0;
+		}
+		return (after - before) / before;
+	}
+	
+}
@@ -0,0 +1,37 @@
+package com.devsuperior.dscatalog.benchmarks;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.devsuperior.dscatalog.entities.Category;
+import com.devsuperior.dscatalog.entities.Product;
+
+//massa de dados dos benchmarks: produtos parecidos com os do import.sql, sempre os mesmos a cada execução
+public class BenchmarkData {
+	
+	public static final List<Category> CATEGORIES = List.of(new Category(1L, "Livros"), new Category(2L, "Eletrônicos"),
+			new Category(3L, "Computadores"));
+	
+	public static Product product(long id, int categories) {
+		Product product = new Product(id, "PC Gamer " + id,
+				"Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor incididunt ut labore et "
+				+ "dolore magna aliqua. Ut enim ad minim veniam, quis nostrud exercitation ullamco laboris nisi ut "
+				+ "aliquip ex ea commodo consequat.",
+				1000.0 + id, "https://raw.githubusercontent.com/devsuperior/dscatalog-resources/master/backend/img/" + id
+				+ "-big.jpg", Instant.parse("2020-07-14T10:00:00Z").plusSeconds(id * 3600));
+		for (int i = 0; i < categories; i++) {
+			product.getCategories().add(CATEGORIES.get((int) ((id + i) % CATEGORIES.size())));
+		}
+		return product;
+	}
+	
+	public static List<Product> products(int size, int categories) {
+		List<Product> products = new ArrayList<>(size);
+		for (long id = 1; id <= size; id++) {
+			products.add(product(id, categories));
+		}
+		return products;
+	}
+	
+}
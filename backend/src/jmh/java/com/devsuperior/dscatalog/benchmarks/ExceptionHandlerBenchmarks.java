@@ -0,0 +1,53 @@
+package com.devsuperior.dscatalog.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import com.devsuperior.dscatalog.controllers.Execeptions.ControllerExceptionHandler;
+import com.devsuperior.dscatalog.controllers.Execeptions.StandardErrorResponse;
+import com.devsuperior.dscatalog.services.exceptions.ServiceNotFoundException;
+
+//respostas de erro do ControllerExceptionHandler: só a montagem da resposta e junto com a criação da exceção,
+//que preenche o stack trace e costuma ser a parte cara
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExceptionHandlerBenchmarks {
+	
+	private ControllerExceptionHandler handler;
+	private MockHttpServletRequest request;
+	private ServiceNotFoundException exception;
+	
+	@Setup
+	public void setUp() {
+		handler = new ControllerExceptionHandler();
+		request = new MockHttpServletRequest("GET", "/products/30");
+		exception = new ServiceNotFoundException("ID [30] Not Found!");
+	}
+	
+	@Benchmark
+	public ResponseEntity<StandardErrorResponse> errorResponse() {
+		return handler.entityNotFound(exception, request);
+	}
+	
+	@Benchmark
+	public ResponseEntity<StandardErrorResponse> exceptionAndErrorResponse() {
+		return handler.entityNotFound(new ServiceNotFoundException("ID [30] Not Found!"), request);
+	}
+	
+}
@@ -0,0 +1,63 @@
+package com.devsuperior.dscatalog.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.devsuperior.dscatalog.dto.PageDto;
+import com.devsuperior.dscatalog.dto.ProductDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+//serialização da página de GET /products com um ObjectMapper configurado como o do Spring Boot
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmarks {
+	
+	@Param({ "12", "100" })
+	private int size;
+	
+	private ObjectMapper objectMapper;
+	private ObjectWriter pageWriter;
+	private PageDto<ProductDto> page;
+	
+	@Setup
+	public void setUp() {
+		objectMapper = Jackson2ObjectMapperBuilder.json().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+				.build();
+		page = new PageDto<>(BenchmarkData.products(size, 2).stream().map(x -> new ProductDto(x, x.getCategories())).toList(),
+				PageRequest.of(0, size), 1000L, false);
+		pageWriter = objectMapper.writerFor(PageDto.class);
+	}
+	
+	//como o MappingJackson2HttpMessageConverter faz: writer resolvido pelo tipo em tempo de execução
+	@Benchmark
+	public byte[] page() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(page);
+	}
+	
+	//writer resolvido uma vez, para separar o custo da busca do serializador
+	@Benchmark
+	public byte[] pageWithPreparedWriter() throws JsonProcessingException {
+		return pageWriter.writeValueAsBytes(page);
+	}
+	
+}
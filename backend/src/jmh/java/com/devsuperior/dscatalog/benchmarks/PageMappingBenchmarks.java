@@ -0,0 +1,59 @@
+package com.devsuperior.dscatalog.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+
+import com.devsuperior.dscatalog.dto.PageDto;
+import com.devsuperior.dscatalog.dto.ProductDto;
+import com.devsuperior.dscatalog.entities.Product;
+
+//o final do ProductService.findAllPaged: Slice<Product> do repositório mapeado para a PageDto<ProductDto> da resposta
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PageMappingBenchmarks {
+	
+	@Param({ "12", "100" })
+	private int size;
+	
+	private Pageable pageable;
+	private Slice<Product> products;
+	
+	@Setup
+	public void setUp() {
+		pageable = PageRequest.of(0, size);
+		products = new SliceImpl<>(BenchmarkData.products(size, 2), pageable, true);
+	}
+	
+	@Benchmark
+	public PageDto<ProductDto> withoutCategories() {
+		List<ProductDto> content = products.map(x -> new ProductDto(x)).getContent();
+		return new PageDto<>(content, pageable, 1000L, false);
+	}
+	
+	@Benchmark
+	public PageDto<ProductDto> withCategories() {
+		List<ProductDto> content = products.map(x -> new ProductDto(x, x.getCategories())).getContent();
+		return new PageDto<>(content, pageable, 1000L, false);
+	}
+	
+}
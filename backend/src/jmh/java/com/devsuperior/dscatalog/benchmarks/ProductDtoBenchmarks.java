@@ -0,0 +1,49 @@
+package com.devsuperior.dscatalog.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.devsuperior.dscatalog.dto.ProductDto;
+import com.devsuperior.dscatalog.entities.Product;
+
+//custo de converter uma entidade em ProductDto, sem e com as categorias (cada uma vira um CategoryDto)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductDtoBenchmarks {
+	
+	@Param({ "1", "3" })
+	private int categories;
+	
+	private Product product;
+	
+	@Setup
+	public void setUp() {
+		product = BenchmarkData.product(7L, categories);
+	}
+	
+	@Benchmark
+	public ProductDto withoutCategories() {
+		return new ProductDto(product);
+	}
+	
+	@Benchmark
+	public ProductDto withCategories() {
+		return new ProductDto(product, product.getCategories());
+	}
+	
+}
@@ -0,0 +1,83 @@
+package com.devsuperior.dscatalog.loadtest;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.devsuperior.dscatalog.DscatalogApplication;
+import com.devsuperior.dscatalog.execution.VirtualThreads;
+
+//compara os modos de execução das requisições (dscatalog.execution.mode): para cada modo sobe a aplicação na
+//mesma JVM, numa porta livre, roda o LoadTest contra ela e a derruba; ao final mostra vazão e latências lado a lado.
+//o banco H2 em memória é recriado a cada modo, então todos partem dos mesmos dados.
+//em JDK < 21 não há threads virtuais: o modo virtual roda no pool do Tomcat com o semáforo do banco, e o relatório
+//o mostra como "virtual*".
+//
+//opções (--nome=valor): modes (padrão platform,virtual) e as do LoadTest (duration, warmup, concurrency, rate, seed,
+//mix), com concorrência padrão de 1000 clientes, acima das 200 threads do Tomcat. opções spring.*, server.* e
+//dscatalog.* vão para a aplicação (ex.: --spring.profiles.active=test,loadtest para o catálogo sintético).
+public class ExecutionModeComparison {
+	
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = LoadTest.parse(args);
+		int duration = Integer.parseInt(options.getOrDefault("duration", "30"));
+		int warmup = Integer.parseInt(options.getOrDefault("warmup", "10"));
+		int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "1000"));
+		double rate = Double.parseDouble(options.getOrDefault("rate", "0"));
+		long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+		Map<String, Integer> mix = LoadTest.parseMix(options.getOrDefault("mix", LoadTest.DEFAULT_MIX));
+	
+		List<String> applicationArgs = new ArrayList<>();
+		options.forEach((name, value) -> {
+			if (name.startsWith("spring.") || name.startsWith("server.") || name.startsWith("dscatalog.")) {
+				applicationArgs.add("--" + name + "=" + value);
+			}
+		});
+		applicationArgs.add("--server.port=0");
+	
+		Map<String, List<LatencyRecorder.Snapshot>> results = new LinkedHashMap<>();
+		for (String mode : options.getOrDefault("modes", "platform,virtual").split(",")) {
+			List<String> modeArgs = new ArrayList<>(applicationArgs);
+			modeArgs.add("--dscatalog.execution.mode=" + mode.trim());
+			try (ConfigurableApplicationContext context = new SpringApplicationBuilder(DscatalogApplication.class)
+					.run(modeArgs.toArray(new String[0]))) {
+				String url = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+				LoadTest loadTest = new LoadTest(url, mix);
+				loadTest.discover();
+				System.out.printf("%nMode %s: %d workers, %s, %ds warm-up + %ds%n", mode, concurrency,
+						rate > 0 ? String.format("open loop at %.0f req/s", rate) : "closed loop", warmup, duration);
+				loadTest.run(concurrency, rate, warmup, duration, seed);
+				loadTest.report(duration);
+				boolean fallback = mode.trim().equals("virtual") && !VirtualThreads.isSupported();
+				results.put(fallback ? "virtual*" : mode.trim(), loadTest.snapshots());
+			}
+		}
+		report(results, duration);
+		if (results.containsKey("virtual*")) {
+			System.out.printf("%n* JDK %s has no virtual threads: Tomcat thread pool plus the database permit limit%n",
+					System.getProperty("java.version"));
+		}
+	}
+	
+	//uma linha por endpoint, com vazão, p50 e p99 de cada modo
+	private static void report(Map<String, List<LatencyRecorder.Snapshot>> results, int duration) {
+		System.out.printf("%n%-12s", "Endpoint");
+		results.keySet().forEach(mode -> System.out.printf(" | %-10s %9s %9s %9s", mode, "Req/s", "p50 ms", "p99 ms"));
+		System.out.println();
+		List<LatencyRecorder.Snapshot> first = results.values().iterator().next();
+		for (int i = 0; i < first.size(); i++) {
+			System.out.printf("%-12s", first.get(i).getName());
+			for (List<LatencyRecorder.Snapshot> snapshots : results.values()) {
+				LatencyRecorder.Snapshot snapshot = snapshots.get(i);
+				System.out.printf(" | %-10s %9.1f %9.2f %9.2f", snapshot.getErrors() > 0 ? snapshot.getErrors() + " err" : "",
+						snapshot.getCount() / (double) duration, snapshot.percentile(50), snapshot.percentile(99));
+			}
+			System.out.println();
+		}
+	}
+	
+}
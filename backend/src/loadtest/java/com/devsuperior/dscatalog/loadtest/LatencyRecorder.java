@@ -0,0 +1,77 @@
+package com.devsuperior.dscatalog.loadtest;
+
+import java.util.Arrays;
+
+//latências (em nanossegundos) e erros de um endpoint. guarda todas as amostras, que são ordenadas só no relatório:
+//um milhão de requisições ocupa 8 MB, e os percentis saem exatos, sem a imprecisão de buckets.
+public class LatencyRecorder {
+	
+	private final String name;
+	private long[] samples = new long[1024];
+	private int count;
+	private long errors;
+	
+	public LatencyRecorder(String name) {
+		this.name = name;
+	}
+	
+	public synchronized void record(long nanos, boolean error) {
+		if (count == samples.length) {
+			samples = Arrays.copyOf(samples, count * 2);
+		}
+		samples[count++] = nanos;
+		if (error) {
+			errors++;
+		}
+	}
+	
+	public synchronized Snapshot snapshot() {
+		long[] sorted = Arrays.copyOf(samples, count);
+		Arrays.sort(sorted);
+		return new Snapshot(name, sorted, errors);
+	}
+	
+	public static final class Snapshot {
+	
+		private final String name;
+		private final long[] sorted;
+		private final long errors;
+	
+		private Snapshot(String name, long[] sorted, long errors) {
+			this.name = name;
+			this.sorted = sorted;
+			this.errors = errors;
+		}
+	
+		public String getName() {
+			return name;
+		}
+	
+		public long getCount() {
+			return sorted.length;
+		}
+	
+		public long getErrors() {
+			return errors;
+		}
+	
+		//percentil pelo método nearest-rank, em milissegundos
+		public double percentile(double percentile) {
+			if (sorted.length == 0) {
+				return 0.0;
+			}
+			int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+			return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))] / 1_000_000.0;
+		}
+	
+		public double mean() {
+			return sorted.length == 0 ? 0.0 : Arrays.stream(sorted).average().getAsDouble() / 1_000_000.0;
+		}
+	
+		public double max() {
+			return sorted.length == 0 ? 0.0 : sorted[sorted.length - 1] / 1_000_000.0;
+		}
+	
+	}
+	
+}
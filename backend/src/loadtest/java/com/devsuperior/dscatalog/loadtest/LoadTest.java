@@ -0,0 +1,276 @@
+package com.devsuperior.dscatalog.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+//harness de carga HTTP: repete uma mistura de leituras e escritas contra a API rodando e, ao final, mostra
+//a vazão e as latências (p50/p99/p999) de cada endpoint. as amostras do aquecimento são descartadas.
+//
+//sem --rate roda em laço fechado: cada worker manda a próxima requisição quando a anterior responde.
+//com --rate=N (requisições por segundo, somando todos os workers) roda em laço aberto: cada requisição tem um
+//horário marcado e a latência conta a partir dele, então a fila que se forma quando o servidor atrasa entra
+//nos percentis (sem coordinated omission). nesse modo a concorrência precisa cobrir rate x latência.
+//
+//opções (--nome=valor): url, duration e warmup (segundos), concurrency, rate, seed e
+//mix (pesos por endpoint, ex.: list:35,filter:20,detail:25,search:8,suggest:4,categories:3,create:3,update:1,delete:1;
+//"reactive" lista pelo /reactive/products e fica fora do padrão)
+public class LoadTest {
+	
+	static final String DEFAULT_MIX = "list:35,filter:20,detail:25,search:8,suggest:4,categories:3,create:3,update:1,delete:1";
+	private static final String[] WORDS = {"gamer", "pro", "notebook", "monitor", "smart", "livro", "mouse", "ultra",
+			"tablet", "pc", "macbook", "console"};
+	
+	private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+			.connectTimeout(Duration.ofSeconds(5)).build();
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	
+	private final String url;
+	private final Map<String, LatencyRecorder> recorders = new LinkedHashMap<>();
+	private final String[] schedule;
+	
+	private long maxProductId;
+	private List<Long> categoryIds;
+	//produtos criados pelo harness: só esses são alterados e removidos
+	private final Deque<Long> createdIds = new ConcurrentLinkedDeque<>();
+	
+	public LoadTest(String url, Map<String, Integer> mix) {
+		this.url = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+		List<String> slots = new ArrayList<>();
+		mix.forEach((name, weight) -> {
+			recorders.put(name, new LatencyRecorder(name));
+			for (int i = 0; i < weight; i++) {
+				slots.add(name);
+			}
+		});
+		if (slots.isEmpty()) {
+			throw new IllegalArgumentException("Traffic mix has no endpoint with positive weight");
+		}
+		schedule = slots.toArray(new String[0]);
+	}
+	
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = parse(args);
+		int duration = Integer.parseInt(options.getOrDefault("duration", "60"));
+		int warmup = Integer.parseInt(options.getOrDefault("warmup", "10"));
+		int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "32"));
+		double rate = Double.parseDouble(options.getOrDefault("rate", "0"));
+		long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+	
+		LoadTest loadTest = new LoadTest(options.getOrDefault("url", "http://localhost:8080"),
+				parseMix(options.getOrDefault("mix", DEFAULT_MIX)));
+		loadTest.discover();
+		System.out.printf("Target %s: %d products, %d categories; %d workers, %s, %ds warm-up + %ds%n", loadTest.url,
+				loadTest.maxProductId, loadTest.categoryIds.size(), concurrency,
+				rate > 0 ? String.format("open loop at %.0f req/s", rate) : "closed loop", warmup, duration);
+		loadTest.run(concurrency, rate, warmup, duration, seed);
+		loadTest.report(duration);
+	}
+	
+	//descobre o maior id de produto e as categorias existentes, para montar requisições válidas
+	void discover() throws IOException, InterruptedException {
+		JsonNode last = fetch("/products?size=1&sort=id,desc");
+		maxProductId = last.path("content").path(0).path("id").asLong(1L);
+		categoryIds = new ArrayList<>();
+		fetch("/categories?size=1000").path("content").forEach(x -> categoryIds.add(x.path("id").asLong()));
+		if (categoryIds.isEmpty()) {
+			throw new IllegalStateException("No categories found at " + url);
+		}
+	}
+	
+	void run(int concurrency, double rate, int warmup, int duration, long seed) throws InterruptedException {
+		long start = System.nanoTime();
+		long measureFrom = start + warmup * 1_000_000_000L;
+		long end = measureFrom + duration * 1_000_000_000L;
+		long interval = rate > 0 ? (long) (1_000_000_000L / rate) : 0L;
+		AtomicLong tickets = new AtomicLong();
+	
+		List<Thread> workers = new ArrayList<>();
+		for (int w = 0; w < concurrency; w++) {
+			Random random = new Random(seed + w);
+			Thread worker = new Thread(() -> {
+				while (true) {
+					long intended;
+					if (interval > 0) {
+						intended = start + tickets.getAndIncrement() * interval;
+						if (intended >= end) {
+							return;
+						}
+						long wait = intended - System.nanoTime();
+						if (wait > 0) {
+							LockSupport.parkNanos(wait);
+						}
+					} else {
+						intended = System.nanoTime();
+						if (intended >= end) {
+							return;
+						}
+					}
+					String endpoint = schedule[random.nextInt(schedule.length)];
+					boolean error = !call(endpoint, random);
+					long done = System.nanoTime();
+					if (intended >= measureFrom) {
+						recorders.get(endpoint).record(done - intended, error);
+					}
+				}
+			}, "load-" + w);
+			worker.start();
+			workers.add(worker);
+		}
+		for (Thread worker : workers) {
+			worker.join();
+		}
+	}
+	
+	//true quando a resposta foi 2xx (ou 304)
+	private boolean call(String endpoint, Random random) {
+		try {
+			HttpRequest request = request(endpoint, random);
+			HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+			int status = response.statusCode();
+			if (endpoint.equals("create") && status == 201) {
+				createdIds.add(objectMapper.readTree(response.body()).path("id").asLong());
+			}
+			return (status >= 200 && status < 300) || status == 304;
+		} catch (IOException e) {
+			return false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+	
+	private HttpRequest request(String endpoint, Random random) throws IOException {
+		switch (endpoint) {
+		case "list":
+			return get(builder("/products?page=" + random.nextInt(50) + "&size=12"));
+		case "filter":
+			return get(builder("/products?categoryId=" + category(random) + "&name=" + word(random)
+					+ "&minPrice=" + random.nextInt(500) + "&sort=price,asc"));
+		case "reactive":
+			return get(builder("/reactive/products?page=" + random.nextInt(50) + "&size=12"));
+		case "detail":
+			return get(builder("/products/" + (1 + (long) (random.nextDouble() * maxProductId))));
+		case "search":
+			return get(builder("/products/search?q=" + word(random) + "&size=12"));
+		case "suggest":
+			return get(builder("/products/suggest?prefix=" + word(random).substring(0, 2)));
+		case "categories":
+			return get(builder("/categories"));
+		case "create":
+			return builder("/products").header("Content-Type", "application/json")
+					.POST(HttpRequest.BodyPublishers.ofByteArray(body(random))).build();
+		case "update": {
+			Long id = createdIds.peekLast();
+			if (id == null) {
+				return request("create", random);
+			}
+			return builder("/products/" + id).header("Content-Type", "application/json")
+					.PUT(HttpRequest.BodyPublishers.ofByteArray(body(random))).build();
+		}
+		case "delete": {
+			Long id = createdIds.pollFirst();
+			if (id == null) {
+				return request("create", random);
+			}
+			return builder("/products/" + id).DELETE().build();
+		}
+		default:
+			throw new IllegalArgumentException("Unknown endpoint in mix: " + endpoint);
+		}
+	}
+	
+	private byte[] body(Random random) throws IOException {
+		ObjectNode product = objectMapper.createObjectNode();
+		product.put("name", "Load Test " + word(random) + " " + random.nextInt(1_000_000));
+		product.put("description", "Created by the load test harness");
+		product.put("price", 10 + random.nextInt(5000));
+		product.put("imgUrl", "https://raw.githubusercontent.com/devsuperior/dscatalog-resources/master/backend/img/1-big.jpg");
+		product.put("date", "2022-04-16T04:00:00Z");
+		product.putArray("categories").addObject().put("id", category(random));
+		return objectMapper.writeValueAsBytes(product);
+	}
+	
+	void report(int duration) {
+		System.out.printf("%n%-12s %9s %7s %9s %9s %9s %9s %9s %9s%n", "Endpoint", "Requests", "Errors", "Req/s",
+				"Mean ms", "p50 ms", "p99 ms", "p999 ms", "Max ms");
+		long total = 0;
+		for (LatencyRecorder recorder : recorders.values()) {
+			LatencyRecorder.Snapshot snapshot = recorder.snapshot();
+			total += snapshot.getCount();
+			System.out.printf("%-12s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", snapshot.getName(), snapshot.getCount(),
+					snapshot.getErrors(), snapshot.getCount() / (double) duration, snapshot.mean(), snapshot.percentile(50),
+					snapshot.percentile(99), snapshot.percentile(99.9), snapshot.max());
+		}
+		System.out.printf("%-12s %9d %7s %9.1f%n", "total", total, "", total / (double) duration);
+	}
+	
+	List<LatencyRecorder.Snapshot> snapshots() {
+		List<LatencyRecorder.Snapshot> snapshots = new ArrayList<>();
+		recorders.values().forEach(x -> snapshots.add(x.snapshot()));
+		return snapshots;
+	}
+	
+	private JsonNode fetch(String path) throws IOException, InterruptedException {
+		HttpResponse<byte[]> response = client.send(get(builder(path)), HttpResponse.BodyHandlers.ofByteArray());
+		if (response.statusCode() != 200) {
+			throw new IllegalStateException("GET " + path + " returned " + response.statusCode());
+		}
+		return objectMapper.readTree(response.body());
+	}
+	
+	private HttpRequest.Builder builder(String path) {
+		return HttpRequest.newBuilder(URI.create(url + path)).timeout(Duration.ofSeconds(30))
+				.header("Accept", "application/json");
+	}
+	
+	private static HttpRequest get(HttpRequest.Builder builder) {
+		return builder.GET().build();
+	}
+	
+	private long category(Random random) {
+		return categoryIds.get(random.nextInt(categoryIds.size()));
+	}
+	
+	private static String word(Random random) {
+		return WORDS[random.nextInt(WORDS.length)];
+	}
+	
+	static Map<String, String> parse(String[] args) {
+		Map<String, String> options = new HashMap<>();
+		for (String arg : args) {
+			if (!arg.startsWith("--") || !arg.contains("=")) {
+				throw new IllegalArgumentException("Expected --name=value, got " + arg);
+			}
+			options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+		}
+		return options;
+	}
+	
+	static Map<String, Integer> parseMix(String mix) {
+		Map<String, Integer> weights = new LinkedHashMap<>();
+		for (String entry : mix.split(",")) {
+			String[] parts = entry.trim().split(":");
+			weights.put(parts[0], parts.length > 1 ? Integer.parseInt(parts[1]) : 1);
+		}
+		return weights;
+	}
+	
+}
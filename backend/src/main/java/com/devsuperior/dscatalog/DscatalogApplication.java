@@ -1,13 +1,30 @@
 package com.devsuperior.dscatalog;
 
+import java.util.Arrays;
+
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
+import com.devsuperior.dscatalog.runners.ProductImportRunner;
+
 @SpringBootApplication
 public class DscatalogApplication {
+	
+	static final String INDEXES_ENABLED_PROPERTY = "dscatalog.indexes.enabled";
 
 	public static void main(String[] args) {
-		SpringApplication.run(DscatalogApplication.class, args);
+		SpringApplication application = new SpringApplication(DscatalogApplication.class);
+		
+		//modo de importação: sobe sem servidor web e sem os índices em memória (ninguém vai consultá-los),
+		//roda o ProductImportRunner e encerra
+		if (Arrays.stream(args).anyMatch(x -> x.startsWith("--" + ProductImportRunner.FILE_PROPERTY + "="))) {
+			application.setWebApplicationType(WebApplicationType.NONE);
+			String[] importArgs = Arrays.copyOf(args, args.length + 1);
+			importArgs[args.length] = "--" + INDEXES_ENABLED_PROPERTY + "=false";
+			System.exit(SpringApplication.exit(application.run(importArgs)));
+		}
+		application.run(args);
 	}
 
 }
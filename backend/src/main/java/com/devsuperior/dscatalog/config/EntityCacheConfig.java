@@ -0,0 +1,132 @@
+package com.devsuperior.dscatalog.config;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.persistence.EntityManagerFactory;
+
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.core.config.DefaultConfiguration;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.devsuperior.dscatalog.entities.Category;
+import com.devsuperior.dscatalog.entities.Product;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+//cache de segundo nível do Hibernate (Product, Category e Product.categories) e cache de consultas das listagens,
+//em memória pelo Ehcache (JCache), cada região limitada em entradas e com expiração (dscatalog.cache.entities/queries;
+//dscatalog.cache.entities.enabled=false desliga os dois caches).
+//as escritas pelo Hibernate atualizam as entidades no commit e invalidam as consultas das tabelas alteradas; as
+//gravações por JDBC avisam o Hibernate (ProductBatchRepository).
+//o TTL das entidades deve ser maior que o das consultas: uma consulta em cache guarda só os ids e busca cada
+//entidade no cache, e as que já expiraram voltam ao banco uma a uma
+@Configuration
+public class EntityCacheConfig implements DisposableBean {
+	
+	private static final String PRODUCT_CATEGORIES = Product.class.getName() + ".categories";
+	
+	private CacheManager cacheManager;
+	
+	@Bean
+	public HibernatePropertiesCustomizer entityCacheProperties(
+			@Value("${dscatalog.cache.entities.enabled:true}") boolean enabled,
+			@Value("${dscatalog.cache.entities.max-entries:10000}") long entityEntries,
+			@Value("${dscatalog.cache.entities.ttl:10m}") Duration entityTtl,
+			@Value("${dscatalog.cache.queries.max-entries:1000}") long queryEntries,
+			@Value("${dscatalog.cache.queries.ttl:5m}") Duration queryTtl) {
+		//com o hibernate-jcache no classpath o Hibernate ligaria o cache sozinho, com regiões sem limite
+		if (!enabled) {
+			return properties -> {
+				properties.put("hibernate.cache.use_second_level_cache", false);
+				properties.put("hibernate.cache.use_query_cache", false);
+			};
+		}
+		//um CacheManager por contexto: o provider reaproveitaria o mesmo gerenciador (e as regiões) pela URI
+		EhcacheCachingProvider provider = (EhcacheCachingProvider) Caching.getCachingProvider(EhcacheCachingProvider.class.getName());
+		cacheManager = provider.getCacheManager(URI.create("urn:dscatalog:hibernate:" + UUID.randomUUID()),
+				new DefaultConfiguration(getClass().getClassLoader()));
+		createCache(Product.class.getName(), entityEntries, entityTtl);
+		createCache(Category.class.getName(), entityEntries, entityTtl);
+		createCache(PRODUCT_CATEGORIES, entityEntries, entityTtl);
+		createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, queryEntries, queryTtl);
+		//marcas de alteração por tabela: sem expiração nem limite baixo, ou consultas desatualizadas voltariam a valer
+		cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+				Eh107Configuration.fromEhcacheCacheConfiguration(CacheConfigurationBuilder
+						.newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(10000))
+						.withExpiry(ExpiryPolicyBuilder.noExpiration())));
+		return properties -> {
+			properties.put("hibernate.cache.use_second_level_cache", true);
+			properties.put("hibernate.cache.use_query_cache", true);
+			properties.put("hibernate.cache.region.factory_class", "jcache");
+			properties.put("hibernate.javax.cache.cache_manager", cacheManager);
+			//toda região precisa estar criada acima, com limite e expiração
+			properties.put("hibernate.javax.cache.missing_cache_strategy", "fail");
+		};
+	}
+	
+	//dscatalog.cache.hibernate.hit.ratio{region}: acertos / acessos de cada região desde o início (0 sem acessos).
+	//os contadores brutos saem em hibernate.second.level.cache.requests e hibernate.cache.query.requests
+	@Bean
+	public MeterBinder entityCacheMetrics(ObjectProvider<EntityManagerFactory> entityManagerFactory) {
+		if (cacheManager == null) {
+			return registry -> {};
+		}
+		//o EntityManagerFactory só é buscado na leitura: o MeterRegistry nasce antes dele (e o DataSource pode depender
+		//do registry)
+		Supplier<Statistics> statistics = () -> entityManagerFactory.getObject().unwrap(SessionFactory.class).getStatistics();
+		return registry -> {
+			for (String region : new String[] {Product.class.getName(), Category.class.getName(), PRODUCT_CATEGORIES}) {
+				Gauge.builder("dscatalog.cache.hibernate.hit.ratio", statistics,
+						x -> hitRatio(x.get().getDomainDataRegionStatistics(region)))
+						.description("second-level cache hit ratio").tag("region", region)
+						.strongReference(true).register(registry);
+			}
+			Gauge.builder("dscatalog.cache.hibernate.hit.ratio", statistics,
+					x -> ratio(x.get().getQueryCacheHitCount(), x.get().getQueryCacheMissCount()))
+					.description("second-level cache hit ratio")
+					.tag("region", RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME)
+					.strongReference(true).register(registry);
+		};
+	}
+	
+	private void createCache(String region, long entries, Duration ttl) {
+		cacheManager.createCache(region, Eh107Configuration.fromEhcacheCacheConfiguration(CacheConfigurationBuilder
+				.newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(entries))
+				.withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(ttl))));
+	}
+	
+	private static double hitRatio(CacheRegionStatistics region) {
+		return region == null ? 0.0 : ratio(region.getHitCount(), region.getMissCount());
+	}
+	
+	private static double ratio(long hits, long misses) {
+		return hits + misses == 0 ? 0.0 : (double) hits / (hits + misses);
+	}
+	
+	@Override
+	public void destroy() {
+		if (cacheManager != null) {
+			cacheManager.close();
+		}
+	}
+	
+}
@@ -0,0 +1,102 @@
+package com.devsuperior.dscatalog.config;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+
+import javax.sql.DataSource;
+
+import org.apache.coyote.ProtocolHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import com.devsuperior.dscatalog.execution.ConcurrencyLimitedDataSource;
+import com.devsuperior.dscatalog.execution.VirtualThreads;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+//modo de execução das requisições (dscatalog.execution.mode):
+//platform: pool de threads do Tomcat (server.tomcat.threads.max), que limita quantas requisições esperam o banco
+//virtual: uma thread virtual por requisição e o DataSource limitado por um semáforo do tamanho do pool, para a fila
+//de requisições ficar nele e não nas threads. threads virtuais exigem JDK 21+: no Java 17 do projeto o modo virtual
+//é só o pool do Tomcat mais o semáforo, e é isso que o ExecutionModeComparison mede nesse JDK
+@Configuration
+@ConditionalOnProperty(name = "dscatalog.execution.mode", havingValue = "virtual")
+public class ExecutionConfig {
+	
+	private static final Logger log = LoggerFactory.getLogger(ExecutionConfig.class);
+	
+	private static final int DEFAULT_POOL_SIZE = 10;
+	
+	@Bean
+	public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadRequestExecutor() {
+		return protocolHandler -> {
+			ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("http-vt-").orElse(null);
+			if (executor == null) {
+				log.warn("Virtual threads need JDK 21+ (running {}); requests stay on the Tomcat thread pool "
+						+ "and only the database concurrency limit applies", System.getProperty("java.version"));
+				return;
+			}
+			//o Tomcat só encerra executores próprios; as threads virtuais não seguram o desligamento da JVM
+			protocolHandler.setExecutor(executor);
+			log.info("Serving requests on virtual threads");
+		};
+	}
+	
+	//Ordered: aplicado antes do proxy de SQL (SqlMonitoringConfig), que fica por fora e não mede a espera.
+	//dscatalog.execution.db-permits: 0 = maximum-pool-size do Hikari
+	@Bean
+	public static BeanPostProcessor concurrencyLimitedDataSource(
+			@Value("${dscatalog.execution.db-permits:0}") int permits,
+			@Value("${dscatalog.execution.db-permit-timeout:30s}") Duration timeout) {
+		return new OrderedBeanPostProcessor() {
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				if (bean instanceof HikariDataSource) {
+					//sem maximum-pool-size configurado o Hikari só aplica o padrão (10) ao iniciar o pool
+					int poolSize = ((HikariDataSource) bean).getMaximumPoolSize();
+					int size = permits > 0 ? permits : (poolSize > 0 ? poolSize : DEFAULT_POOL_SIZE);
+					log.info("Limiting DataSource [{}] to {} concurrent connections", beanName, size);
+					return new ConcurrencyLimitedDataSource((DataSource) bean, size, timeout);
+				}
+				return bean;
+			}
+		};
+	}
+	
+	//sem limitador no DataSource (ex.: pools criados fora do contexto) não há o que medir
+	@Bean
+	public MeterBinder databasePermitMetrics(DataSource dataSource) throws SQLException {
+		if (!dataSource.isWrapperFor(ConcurrencyLimitedDataSource.class)) {
+			log.warn("DataSource is not concurrency limited; database permit gauges are not registered");
+			return registry -> {
+			};
+		}
+		ConcurrencyLimitedDataSource limited = dataSource.unwrap(ConcurrencyLimitedDataSource.class);
+		return registry -> {
+			Gauge.builder("dscatalog.db.permits.active", limited, ConcurrencyLimitedDataSource::getActive)
+					.description("connections held under the database concurrency limit").register(registry);
+			Gauge.builder("dscatalog.db.permits.waiting", limited, ConcurrencyLimitedDataSource::getWaiting)
+					.description("requests waiting for a database permit").register(registry);
+		};
+	}
+	
+	private interface OrderedBeanPostProcessor extends BeanPostProcessor, Ordered {
+		
+		@Override
+		default int getOrder() {
+			return Ordered.HIGHEST_PRECEDENCE;
+		}
+		
+	}
+	
+}
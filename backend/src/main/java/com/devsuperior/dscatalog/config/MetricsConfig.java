@@ -0,0 +1,49 @@
+package com.devsuperior.dscatalog.config;
+
+import java.util.List;
+
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import com.devsuperior.dscatalog.metrics.EntityLoadIntegrator;
+import com.devsuperior.dscatalog.metrics.MethodTimingAspect;
+import com.devsuperior.dscatalog.metrics.RequestStatisticsFilter;
+import com.devsuperior.dscatalog.metrics.RequestStatisticsSessionListener;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+//instrumentação exposta em /actuator/metrics e /actuator/prometheus: timers dos controllers e services,
+//custo de cada requisição no banco e no Hibernate e, pelo Spring Boot, http.server.requests, estatísticas globais do
+//Hibernate (hibernate.*) e do pool (hikaricp.*)
+@Configuration
+public class MetricsConfig {
+	
+	@Bean
+	public MethodTimingAspect methodTimingAspect(MeterRegistry registry) {
+		return new MethodTimingAspect(registry);
+	}
+	
+	//dscatalog.sql.repeated-threshold: um formato de SQL repetido mais vezes que isso na requisição é avisado como N+1
+	@Bean
+	public FilterRegistrationBean<RequestStatisticsFilter> requestStatisticsFilter(MeterRegistry registry,
+			@Value("${dscatalog.sql.repeated-threshold:10}") int repeatedThreshold) {
+		FilterRegistrationBean<RequestStatisticsFilter> registration = new FilterRegistrationBean<>(
+				new RequestStatisticsFilter(registry, repeatedThreshold));
+		registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+		return registration;
+	}
+	
+	@Bean
+	public HibernatePropertiesCustomizer requestStatisticsListeners() {
+		return properties -> {
+			properties.put("hibernate.session.events.auto", RequestStatisticsSessionListener.class.getName());
+			properties.put("hibernate.integrator_provider", (IntegratorProvider) () -> List.of(new EntityLoadIntegrator()));
+		};
+	}
+	
+}
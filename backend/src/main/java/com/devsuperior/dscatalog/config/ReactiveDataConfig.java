@@ -0,0 +1,51 @@
+package com.devsuperior.dscatalog.config;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+
+//acesso R2DBC das leituras não bloqueantes (/reactive), com as propriedades spring.r2dbc.*.
+//o pool fica fora do contexto e só o DatabaseClient vira bean: com um ConnectionFactory no contexto o Spring Boot
+//deixa de criar o DataSource JDBC, e o JPA depende dele. por isso as auto-configurações do R2DBC estão excluídas
+//no application.yaml.
+@Configuration
+@EnableConfigurationProperties(R2dbcProperties.class)
+public class ReactiveDataConfig implements DisposableBean {
+	
+	private ConnectionPool connectionPool;
+	
+	@Bean
+	public DatabaseClient reactiveDatabaseClient(R2dbcProperties properties) {
+		ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(properties.getUrl()).mutate();
+		if (properties.getUsername() != null) {
+			options.option(ConnectionFactoryOptions.USER, properties.getUsername());
+		}
+		if (properties.getPassword() != null) {
+			options.option(ConnectionFactoryOptions.PASSWORD, properties.getPassword());
+		}
+		R2dbcProperties.Pool pool = properties.getPool();
+		connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options.build()))
+				.initialSize(pool.getInitialSize())
+				.maxSize(pool.getMaxSize())
+				.maxIdleTime(pool.getMaxIdleTime())
+				.name("reactive")
+				.build());
+		return DatabaseClient.create(connectionPool);
+	}
+	
+	@Override
+	public void destroy() {
+		if (connectionPool != null) {
+			connectionPool.dispose();
+		}
+	}
+	
+}
@@ -0,0 +1,100 @@
+package com.devsuperior.dscatalog.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.devsuperior.dscatalog.routing.ReadWriteRoutingDataSource;
+import com.devsuperior.dscatalog.routing.ReadYourWritesFilter;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+//leituras nas réplicas (dscatalog.routing.enabled): o primário vem de spring.datasource.* e cada URL de
+//dscatalog.routing.replica-urls vira um pool Hikari com o mesmo usuário e as mesmas configurações
+//(spring.datasource.hikari.*). transações readOnly vão para as réplicas e o resto para o primário
+//(ReadWriteRoutingDataSource); um cliente que acabou de gravar reenvia o X-Consistency-Token e lê do primário
+//até dscatalog.routing.max-replica-lag (ReadYourWritesFilter).
+//os pools ficam fora do contexto: o único DataSource do contexto é o roteador, para o JPA e o proxy de SQL.
+//por isso o limite de conexões do modo virtual (ExecutionConfig) não os alcança, e a combinação é recusada ao subir
+@Configuration
+@ConditionalOnProperty(name = "dscatalog.routing.enabled", havingValue = "true")
+public class RoutingConfig implements DisposableBean {
+	
+	private static final Logger log = LoggerFactory.getLogger(RoutingConfig.class);
+	
+	private final List<HikariDataSource> pools = new ArrayList<>();
+	
+	public RoutingConfig(@Value("${dscatalog.execution.mode:platform}") String executionMode) {
+		if ("virtual".equals(executionMode)) {
+			throw new IllegalStateException("dscatalog.routing.enabled=true cannot be combined with "
+					+ "dscatalog.execution.mode=virtual: the routing pools are not covered by the database "
+					+ "concurrency limit");
+		}
+	}
+	
+	@Bean
+	public DataSource dataSource(DataSourceProperties properties, Environment environment, MeterRegistry registry,
+			@Value("${dscatalog.routing.replica-urls:}") List<String> replicaUrls) {
+		HikariDataSource primary = pool(properties.initializeDataSourceBuilder(), "primary", environment, registry);
+		List<DataSource> replicas = new ArrayList<>();
+		for (String url : replicaUrls) {
+			if (url.isBlank()) {
+				continue;
+			}
+			DataSourceBuilder<?> builder = DataSourceBuilder.create().url(url.trim())
+					.username(properties.determineUsername()).password(properties.determinePassword());
+			replicas.add(pool(builder, "replica-" + (replicas.size() + 1), environment, registry));
+		}
+		if (replicas.isEmpty()) {
+			log.warn("Read/write routing is enabled without dscatalog.routing.replica-urls; every read goes to the primary");
+		}
+		//a conexão só é pedida ao roteador no primeiro comando, quando a transação já está marcada como readOnly
+		return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primary, replicas, registry));
+	}
+	
+	@Bean
+	public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(
+			@Value("${dscatalog.routing.max-replica-lag:2s}") Duration maxReplicaLag) {
+		FilterRegistrationBean<ReadYourWritesFilter> registration = new FilterRegistrationBean<>(
+				new ReadYourWritesFilter(maxReplicaLag.toMillis()));
+		registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 12);
+		return registration;
+	}
+	
+	private HikariDataSource pool(DataSourceBuilder<?> builder, String name, Environment environment,
+			MeterRegistry registry) {
+		HikariDataSource pool = builder.type(HikariDataSource.class).build();
+		Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+		pool.setPoolName(name);
+		//hikaricp.connections.*{pool}, como no pool único
+		pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+		pools.add(pool);
+		return pool;
+	}
+	
+	@Override
+	public void destroy() {
+		pools.forEach(HikariDataSource::close);
+	}
+	
+}
@@ -0,0 +1,39 @@
+package com.devsuperior.dscatalog.config;
+
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.devsuperior.dscatalog.metrics.SqlStatementListener;
+
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+
+//comandos JDBC por requisição: o DataSource é embrulhado por um proxy que mede cada comando
+//(SqlStatementListener) e o soma no RequestStatistics da requisição (MetricsConfig).
+//dscatalog.sql.slow-threshold: comandos a partir desse tempo vão para o log com os parâmetros
+@Configuration
+public class SqlMonitoringConfig {
+	
+	//static: o post-processor é criado antes dos demais beans, sem puxar a configuração junto
+	@Bean
+	public static BeanPostProcessor sqlMonitoringDataSourceProxy(
+			@Value("${dscatalog.sql.slow-threshold:200ms}") Duration slowThreshold) {
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				if (bean instanceof DataSource && !(bean instanceof ProxyDataSource)) {
+					return ProxyDataSourceBuilder.create((DataSource) bean).name(beanName)
+							.listener(new SqlStatementListener(slowThreshold)).build();
+				}
+				return bean;
+			}
+		};
+	}
+	
+}
@@ -15,11 +15,17 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import com.devsuperior.dscatalog.dto.CacheStatsDto;
 import com.devsuperior.dscatalog.dto.CategoryDto;
+import com.devsuperior.dscatalog.dto.CursorPageDto;
+import com.devsuperior.dscatalog.dto.SliceDto;
 import com.devsuperior.dscatalog.services.CategoryService;
+import com.devsuperior.dscatalog.services.util.ResourceVersion;
 
 @RestController
 @RequestMapping(value = "/categories")
@@ -43,14 +49,55 @@ public class CategoryController {
 //	}
 	
 	@GetMapping
-	public ResponseEntity<Page<CategoryDto>> findAll(@PageableDefault(page = 0, size = 12, sort = "name", direction = Direction.DESC) Pageable pageable) {
-		Page<CategoryDto> categoriesDto = categoryService.findAllPaged(pageable);
+	public ResponseEntity<Page<CategoryDto>> findAll(@PageableDefault(page = 0, size = 12, sort = "name", direction = Direction.DESC) Pageable pageable,
+			@RequestParam(value = "approximateCount", defaultValue = "false") Boolean approximateCount,
+			WebRequest request) {
+		if (notModified(request)) {
+			return null;
+		}
+		Page<CategoryDto> categoriesDto = categoryService.findAllPaged(pageable, approximateCount);
 		return ResponseEntity.ok().body(categoriesDto);
 	}
 	
+	//"?slice=true" devolve apenas hasNext no lugar do total, evitando a consulta de contagem
+	@GetMapping(params = "slice=true")
+	public ResponseEntity<SliceDto<CategoryDto>> findAllSliced(@PageableDefault(page = 0, size = 12, sort = "name", direction = Direction.DESC) Pageable pageable,
+			WebRequest request) {
+		if (notModified(request)) {
+			return null;
+		}
+		SliceDto<CategoryDto> categoriesDto = categoryService.findAllSliced(pageable);
+		return ResponseEntity.ok().body(categoriesDto);
+	}
+	
+	//paginação por cursor: "?after=" abre a primeira página e cada resposta traz o nextCursor da seguinte
+	@GetMapping(params = "after")
+	public ResponseEntity<CursorPageDto<CategoryDto>> findAllSeek(
+			@RequestParam(value = "after") String after,
+			@RequestParam(value = "size", defaultValue = "12") Integer size,
+			@RequestParam(value = "direction", defaultValue = "DESC") Direction direction,
+			WebRequest request) {
+		if (notModified(request)) {
+			return null;
+		}
+		CursorPageDto<CategoryDto> categoriesDto = categoryService.findAllSeek(after, size, direction);
+		return ResponseEntity.ok().body(categoriesDto);
+	}
+	
+	@GetMapping(value = "/cache/stats")
+	public ResponseEntity<CacheStatsDto> cacheStats() {
+		CacheStatsDto stats = categoryService.getCacheStats();
+		return ResponseEntity.ok().body(stats);
+	}
+	
 	@GetMapping(value = "/{id}")
 	//@ResponseStatus(value = HttpStatus.CREATED)
-	public ResponseEntity<CategoryDto> findById(@PathVariable Long id) {
+	public ResponseEntity<CategoryDto> findById(@PathVariable Long id, WebRequest request) {
+		//o 304 é decidido só com a versão; o DTO é montado apenas quando o cliente está desatualizado
+		ResourceVersion version = categoryService.findVersionById(id);
+		if (request.checkNotModified(version.getETag(), version.getLastModifiedMillis())) {
+			return null;
+		}
 		CategoryDto categoryDto = categoryService.findById(id);
 		return ResponseEntity.ok().body(categoryDto);
 	}
@@ -75,4 +122,10 @@ public class CategoryController {
 		return ResponseEntity.noContent().build();
 	}
 	
+	//GET condicional das listagens: compara o If-None-Match com o ETag calculado da tabela e dos parâmetros
+	private boolean notModified(WebRequest request) {
+		ResourceVersion version = categoryService.findListVersion(ResourceVersion.describe(request.getParameterMap()));
+		return request.checkNotModified(version.getETag());
+	}
+	
 }
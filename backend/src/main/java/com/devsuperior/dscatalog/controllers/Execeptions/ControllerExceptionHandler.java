@@ -9,6 +9,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
+import com.devsuperior.dscatalog.services.exceptions.ServiceBadRequestException;
 import com.devsuperior.dscatalog.services.exceptions.ServiceDataBaseException;
 import com.devsuperior.dscatalog.services.exceptions.ServiceNotFoundException;
 
@@ -40,5 +41,18 @@ public class ControllerExceptionHandler {
 		
 		return ResponseEntity.status(errorStatus).body(error);
 	}
+	
+	@ExceptionHandler(ServiceBadRequestException.class)
+	public ResponseEntity<StandardErrorResponse> badRequest(ServiceBadRequestException e, HttpServletRequest request) {
+		StandardErrorResponse error = new StandardErrorResponse();
+		HttpStatus errorStatus = HttpStatus.BAD_REQUEST;
+		
+		error.setTimestamp(Instant.now());
+		error.setStatus(errorStatus.value());
+		error.setError(e.getMessage());
+		error.setPath(request.getRequestURI());
+		
+		return ResponseEntity.status(errorStatus).body(error);
+	}
 
 }
@@ -1,25 +1,52 @@
 package com.devsuperior.dscatalog.controllers;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort.Direction;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import com.devsuperior.dscatalog.dto.BatchResultDto;
+import com.devsuperior.dscatalog.dto.BulkResultDto;
+import com.devsuperior.dscatalog.dto.CursorPageDto;
+import com.devsuperior.dscatalog.dto.FacetedPageDto;
+import com.devsuperior.dscatalog.dto.ImportResultDto;
+import com.devsuperior.dscatalog.dto.PriceUpdateDto;
 import com.devsuperior.dscatalog.dto.ProductDto;
+import com.devsuperior.dscatalog.dto.ProductSummaryDto;
+import com.devsuperior.dscatalog.dto.SliceDto;
+import com.devsuperior.dscatalog.dto.SuggestionDto;
+import com.devsuperior.dscatalog.services.ProductBatchService;
+import com.devsuperior.dscatalog.services.ProductExportService;
+import com.devsuperior.dscatalog.services.ProductImportService;
 import com.devsuperior.dscatalog.services.ProductService;
+import com.devsuperior.dscatalog.services.columnar.ProductColumnStore;
+import com.devsuperior.dscatalog.services.util.FileFormat;
+import com.devsuperior.dscatalog.services.util.ProductFilter;
+import com.devsuperior.dscatalog.services.util.ResourceVersion;
 
 @RestController
 @RequestMapping(value = "/products")
@@ -28,6 +55,18 @@ public class ProductController {
 	@Autowired
 	private ProductService productService;
 	
+	@Autowired
+	private ProductBatchService productBatchService;
+	
+	@Autowired
+	private ProductExportService productExportService;
+	
+	@Autowired
+	private ProductImportService productImportService;
+	
+	@Autowired
+	private ProductColumnStore productColumnStore;
+	
 //	@GetMapping
 //	public ResponseEntity<Page<ProductDto>> findAll(
 //			@RequestParam(value = "page", defaultValue = "0") Integer page,
@@ -42,17 +81,115 @@ public class ProductController {
 //		return ResponseEntity.ok().body(productsDto);
 //	}
 	
+	//categorias: categoryId = em alguma delas, allCategoryId = em todas, excludeCategoryId = em nenhuma.
+	//consultas elegíveis são respondidas pela réplica colunar em memória; as demais (e qualquer uma feita
+	//antes da réplica ficar pronta) vão ao banco pelo ProductService
 	@GetMapping
-	public ResponseEntity<Page<ProductDto>> findAll(@PageableDefault(page = 0, size = 12, sort = "name", direction = Direction.DESC) Pageable pageable) {
-		Page<ProductDto> productsDto = productService.findAllPaged(pageable);
+	public ResponseEntity<Page<ProductDto>> findAll(@PageableDefault(page = 0, size = 12, sort = "name", direction = Direction.DESC) Pageable pageable,
+			@RequestParam(value = "categoryId", defaultValue = "") List<Long> categoryIds,
+			@RequestParam(value = "allCategoryId", defaultValue = "") List<Long> allCategoryIds,
+			@RequestParam(value = "excludeCategoryId", defaultValue = "") List<Long> excludedCategoryIds,
+			@RequestParam(value = "name", defaultValue = "") String name,
+			@RequestParam(value = "minPrice", required = false) Double minPrice,
+			@RequestParam(value = "maxPrice", required = false) Double maxPrice,
+			@RequestParam(value = "minDate", required = false) Instant minDate,
+			@RequestParam(value = "maxDate", required = false) Instant maxDate,
+			@RequestParam(value = "approximateCount", defaultValue = "false") Boolean approximateCount,
+			@RequestParam(value = "include", defaultValue = "") List<String> include,
+			WebRequest request) {
+		if (notModified(request)) {
+			return null;
+		}
+		ProductFilter filter = new ProductFilter(categoryIds, allCategoryIds, excludedCategoryIds, name, minPrice, maxPrice,
+				minDate, maxDate);
+		boolean includeCategories = include.contains("categories");
+		boolean includeFacets = include.contains("facets");
+		Optional<Page<ProductDto>> inMemory = productColumnStore.findAll(filter, pageable, includeCategories, includeFacets);
+		if (inMemory.isPresent()) {
+			return ResponseEntity.ok().body(inMemory.get());
+		}
+		Page<ProductDto> productsDto = productService.findAllPaged(filter, pageable, approximateCount, includeCategories);
+		if (includeFacets) {
+			productsDto = new FacetedPageDto<>(productsDto, productService.findFacets(filter));
+		}
+		return ResponseEntity.ok().body(productsDto);
+	}
+	
+	//"?view=summary" lista pela projeção enxuta, sem description nem categorias
+	@GetMapping(params = "view=summary")
+	public ResponseEntity<Page<ProductSummaryDto>> findAllSummaries(@PageableDefault(page = 0, size = 12, sort = "name", direction = Direction.DESC) Pageable pageable,
+			@RequestParam(value = "approximateCount", defaultValue = "false") Boolean approximateCount,
+			WebRequest request) {
+		if (notModified(request)) {
+			return null;
+		}
+		Page<ProductSummaryDto> productsDto = productService.findAllSummaries(pageable, approximateCount);
+		return ResponseEntity.ok().body(productsDto);
+	}
+	
+	//"?slice=true" devolve apenas hasNext no lugar do total, evitando a consulta de contagem
+	@GetMapping(params = "slice=true")
+	public ResponseEntity<SliceDto<ProductDto>> findAllSliced(@PageableDefault(page = 0, size = 12, sort = "name", direction = Direction.DESC) Pageable pageable,
+			WebRequest request) {
+		if (notModified(request)) {
+			return null;
+		}
+		SliceDto<ProductDto> productsDto = productService.findAllSliced(pageable);
 		return ResponseEntity.ok().body(productsDto);
 	}
 	
+	//paginação por cursor: "?after=" abre a primeira página e cada resposta traz o nextCursor da seguinte
+	@GetMapping(params = "after")
+	public ResponseEntity<CursorPageDto<ProductDto>> findAllSeek(
+			@RequestParam(value = "after") String after,
+			@RequestParam(value = "size", defaultValue = "12") Integer size,
+			@RequestParam(value = "direction", defaultValue = "DESC") Direction direction,
+			WebRequest request) {
+		if (notModified(request)) {
+			return null;
+		}
+		CursorPageDto<ProductDto> productsDto = productService.findAllSeek(after, size, direction);
+		return ResponseEntity.ok().body(productsDto);
+	}
+	
+	//busca textual por nome e descrição ("?q="), ordenada por relevância; "?include=facets" traz as contagens por categoria
+	@GetMapping(value = "/search")
+	public ResponseEntity<Page<ProductSummaryDto>> search(@RequestParam(value = "q", defaultValue = "") String query,
+			@RequestParam(value = "include", defaultValue = "") List<String> include,
+			@PageableDefault(page = 0, size = 12) Pageable pageable) {
+		Page<ProductSummaryDto> productsDto = productService.search(query, pageable);
+		if (include.contains("facets")) {
+			productsDto = new FacetedPageDto<>(productsDto, productService.searchFacets(query));
+		}
+		return ResponseEntity.ok().body(productsDto);
+	}
+	
+	//autocompletar da caixa de busca: nomes de categorias e produtos que começam com "?prefix="
+	@GetMapping(value = "/suggest")
+	public ResponseEntity<List<SuggestionDto>> suggest(@RequestParam(value = "prefix", defaultValue = "") String prefix,
+			@RequestParam(value = "limit", defaultValue = "10") Integer limit) {
+		List<SuggestionDto> suggestions = productService.suggest(prefix, limit);
+		return ResponseEntity.ok().body(suggestions);
+	}
+	
+	//exportação completa em uma única requisição ("?format=ndjson" ou "csv"), escrita direto no corpo da resposta
+	@GetMapping(value = "/export")
+	public ResponseEntity<StreamingResponseBody> export(@RequestParam(value = "format", defaultValue = "ndjson") String format) {
+		FileFormat exportFormat = FileFormat.from(format);
+		StreamingResponseBody body = outputStream -> productExportService.export(exportFormat, outputStream);
+		return ResponseEntity.ok()
+				.contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+				.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"products." + exportFormat.getExtension() + "\"")
+				.body(body);
+	}
+	
 	@GetMapping(value = "/{id}")
 	//@ResponseStatus(value = HttpStatus.CREATED)
-	public ResponseEntity<ProductDto> findById(@PathVariable Long id) {
-		ProductDto productDto = productService.findById(id);
-		return ResponseEntity.ok().body(productDto);
+	public ResponseEntity<ProductDto> findById(@PathVariable Long id, WebRequest request) {
+		//o 304 é decidido só com a versão; o DTO é montado apenas quando o cliente está desatualizado
+		Optional<ProductDto> productDto = productService.findByIdIfModified(id,
+				version -> request.checkNotModified(version.getETag(), version.getLastModifiedMillis()));
+		return productDto.map(x -> ResponseEntity.ok().body(x)).orElse(null);
 	}
 	
 	@PostMapping
@@ -63,16 +200,53 @@ public class ProductController {
 		return ResponseEntity.created(uri).body(productDto);
 	}
 	
+	//carga em lote: grava em blocos transacionais com JDBC batch e devolve o resultado de cada item
+	@PostMapping(value = "/batch")
+	public ResponseEntity<BatchResultDto> insertAll(@RequestBody List<ProductDto> productsDto) {
+		BatchResultDto result = productBatchService.insertAll(productsDto);
+		return ResponseEntity.ok().body(result);
+	}
+	
+	//importação de arquivo grande enviado como corpo da requisição ("?format=ndjson" ou "csv"), lido aos poucos
+	@PostMapping(value = "/import")
+	public ResponseEntity<ImportResultDto> importAll(@RequestParam(value = "format", defaultValue = "ndjson") String format,
+			InputStream inputStream) throws IOException {
+		ImportResultDto result = productImportService.importAll(inputStream, FileFormat.from(format));
+		return ResponseEntity.ok().body(result);
+	}
+	
 	@PutMapping(value = "/{id}")
 	public ResponseEntity<ProductDto> update(@PathVariable Long id, @RequestBody ProductDto productDto) {
 		productDto = productService.update(id, productDto);
 		return ResponseEntity.ok().body(productDto);
 	}
 	
+	//reajuste de preços em massa (percentual ou absoluto), opcionalmente por categoria
+	@PatchMapping(value = "/prices")
+	public ResponseEntity<BulkResultDto> updatePrices(@RequestBody PriceUpdateDto priceUpdateDto) {
+		BulkResultDto result = productService.updatePrices(priceUpdateDto);
+		return ResponseEntity.ok().body(result);
+	}
+	
+	//exclusão em massa por "?ids=1,2,3" e/ou "?categoryId=3"
+	@DeleteMapping
+	public ResponseEntity<BulkResultDto> deleteAll(
+			@RequestParam(value = "ids", required = false) List<Long> ids,
+			@RequestParam(value = "categoryId", required = false) Long categoryId) {
+		BulkResultDto result = productService.deleteAll(ids, categoryId);
+		return ResponseEntity.ok().body(result);
+	}
+	
 	@DeleteMapping(value = "/{id}")
 	public ResponseEntity<Void> delete(@PathVariable Long id) {
 		productService.delete(id);
 		return ResponseEntity.noContent().build();
 	}
 	
+	//GET condicional das listagens: compara o If-None-Match com o ETag calculado da tabela e dos parâmetros
+	private boolean notModified(WebRequest request) {
+		Optional<ResourceVersion> version = productService.findListVersion(ResourceVersion.describe(request.getParameterMap()));
+		return version.isPresent() && request.checkNotModified(version.get().getETag());
+	}
+	
 }
@@ -0,0 +1,52 @@
+package com.devsuperior.dscatalog.controllers;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.devsuperior.dscatalog.dto.CategoryDto;
+import com.devsuperior.dscatalog.dto.ProductDto;
+import com.devsuperior.dscatalog.services.reactive.ReactiveCatalogService;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+//leituras não bloqueantes (R2DBC): a thread do Tomcat é liberada enquanto o banco responde e a resposta é escrita
+//de forma assíncrona. com "Accept: application/x-ndjson" (ou text/event-stream) cada produto é enviado assim que
+//chega do banco, no ritmo do cliente; com application/json a lista é montada e enviada inteira.
+//as escritas continuam em /products.
+@RestController
+@RequestMapping(value = "/reactive")
+public class ReactiveCatalogController {
+	
+	@Autowired
+	private ReactiveCatalogService reactiveCatalogService;
+	
+	@GetMapping(value = "/products", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE,
+			MediaType.APPLICATION_JSON_VALUE})
+	public Flux<ProductDto> findAllProducts(
+			@RequestParam(value = "name", defaultValue = "") String name,
+			@RequestParam(value = "categoryId", defaultValue = "") List<Long> categoryIds,
+			@RequestParam(value = "page", defaultValue = "0") Integer page,
+			@RequestParam(value = "size", defaultValue = "0") Integer size) {
+		return reactiveCatalogService.findAllProducts(name.trim(), categoryIds, page, size);
+	}
+	
+	@GetMapping(value = "/products/{id}")
+	public Mono<ProductDto> findProductById(@PathVariable Long id) {
+		return reactiveCatalogService.findProductById(id);
+	}
+	
+	@GetMapping(value = "/categories", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE,
+			MediaType.APPLICATION_JSON_VALUE})
+	public Flux<CategoryDto> findAllCategories() {
+		return reactiveCatalogService.findAllCategories();
+	}
+	
+}
@@ -0,0 +1,62 @@
+package com.devsuperior.dscatalog.dto;
+
+import java.io.Serializable;
+
+public class BatchItemResultDto implements Serializable {
+	private static final long serialVersionUID = 1L;
+	
+	public enum Status {
+		CREATED, REJECTED, FAILED
+	}
+	
+	private Integer index;
+	private Status status;
+	private Long id;
+	private String message;
+	
+	
+	public BatchItemResultDto() {
+	}
+	
+	public BatchItemResultDto(Integer index, Status status, Long id, String message) {
+		this.index = index;
+		this.status = status;
+		this.id = id;
+		this.message = message;
+	}
+
+	
+	//posição do item no array enviado
+	public Integer getIndex() {
+		return index;
+	}
+
+	public void setIndex(Integer index) {
+		this.index = index;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public void setStatus(Status status) {
+		this.status = status;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public void setMessage(String message) {
+		this.message = message;
+	}
+	
+}
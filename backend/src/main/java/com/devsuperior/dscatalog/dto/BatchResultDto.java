@@ -0,0 +1,45 @@
+package com.devsuperior.dscatalog.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import com.devsuperior.dscatalog.dto.BatchItemResultDto.Status;
+
+public class BatchResultDto implements Serializable {
+	private static final long serialVersionUID = 1L;
+	
+	private List<BatchItemResultDto> items = new ArrayList<>();
+	
+	
+	public BatchResultDto() {
+	}
+	
+	
+	public void add(BatchItemResultDto item) {
+		items.add(item);
+	}
+	
+	public List<BatchItemResultDto> getItems() {
+		items.sort(Comparator.comparing(BatchItemResultDto::getIndex));
+		return items;
+	}
+	
+	public long getCreated() {
+		return count(Status.CREATED);
+	}
+	
+	public long getRejected() {
+		return count(Status.REJECTED);
+	}
+	
+	public long getFailed() {
+		return count(Status.FAILED);
+	}
+	
+	private long count(Status status) {
+		return items.stream().filter(x -> x.getStatus() == status).count();
+	}
+	
+}
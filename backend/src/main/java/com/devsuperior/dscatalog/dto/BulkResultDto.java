@@ -0,0 +1,27 @@
+package com.devsuperior.dscatalog.dto;
+
+import java.io.Serializable;
+
+public class BulkResultDto implements Serializable {
+	private static final long serialVersionUID = 1L;
+	
+	private Integer affected;
+	
+	
+	public BulkResultDto() {
+	}
+	
+	public BulkResultDto(Integer affected) {
+		this.affected = affected;
+	}
+
+	
+	public Integer getAffected() {
+		return affected;
+	}
+
+	public void setAffected(Integer affected) {
+		this.affected = affected;
+	}
+	
+}
@@ -0,0 +1,46 @@
+package com.devsuperior.dscatalog.dto;
+
+import java.io.Serializable;
+
+public class CacheStatsDto implements Serializable {
+	private static final long serialVersionUID = 1L;
+	
+	private Long hits;
+	private Long misses;
+	private Long loads;
+	private Integer size;
+	
+	
+	public CacheStatsDto() {
+	}
+	
+	public CacheStatsDto(Long hits, Long misses, Long loads, Integer size) {
+		this.hits = hits;
+		this.misses = misses;
+		this.loads = loads;
+		this.size = size;
+	}
+
+	
+	public Long getHits() {
+		return hits;
+	}
+
+	public Long getMisses() {
+		return misses;
+	}
+
+	public Long getLoads() {
+		return loads;
+	}
+
+	public Integer getSize() {
+		return size;
+	}
+	
+	public Double getHitRatio() {
+		long requests = hits + misses;
+		return requests == 0 ? 0.0 : (double) hits / requests;
+	}
+	
+}
@@ -0,0 +1,50 @@
+package com.devsuperior.dscatalog.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+public class CursorPageDto<T> implements Serializable {
+	private static final long serialVersionUID = 1L;
+	
+	private List<T> content = new ArrayList<>();
+	private Integer size;
+	private String nextCursor;
+	
+	
+	public CursorPageDto() {
+	}
+	
+	public CursorPageDto(List<T> content, Integer size, String nextCursor) {
+		this.content.addAll(content);
+		this.size = size;
+		this.nextCursor = nextCursor;
+	}
+
+	
+	public List<T> getContent() {
+		return content;
+	}
+
+	public Integer getSize() {
+		return size;
+	}
+
+	public void setSize(Integer size) {
+		this.size = size;
+	}
+
+	//token opaco para a próxima página. nulo quando não existe próxima página.
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	public void setNextCursor(String nextCursor) {
+		this.nextCursor = nextCursor;
+	}
+	
+	public boolean isHasNext() {
+		return nextCursor != null;
+	}
+	
+}
@@ -0,0 +1,26 @@
+package com.devsuperior.dscatalog.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.domain.Page;
+
+//página acompanhada das facetas por categoria do filtro inteiro (não apenas da página)
+public class FacetedPageDto<T> extends PageDto<T> {
+	private static final long serialVersionUID = 1L;
+	
+	private final List<FacetDto> facets = new ArrayList<>();
+	
+	
+	public FacetedPageDto(Page<T> page, List<FacetDto> facets) {
+		super(page.getContent(), page.getPageable(), page.getTotalElements(),
+				page instanceof PageDto && ((PageDto<?>) page).isApproximateCount());
+		this.facets.addAll(facets);
+	}
+
+	
+	public List<FacetDto> getFacets() {
+		return facets;
+	}
+	
+}
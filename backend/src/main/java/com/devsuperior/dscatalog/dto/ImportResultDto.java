@@ -0,0 +1,75 @@
+package com.devsuperior.dscatalog.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ImportResultDto implements Serializable {
+	private static final long serialVersionUID = 1L;
+	
+	//só as primeiras mensagens são guardadas, para a resposta não crescer com o arquivo
+	private static final int MAX_ERRORS = 100;
+	
+	private long read;
+	private long created;
+	private long rejected;
+	private long failed;
+	private long chunks;
+	private List<String> errors = new ArrayList<>();
+	
+	
+	public ImportResultDto() {
+	}
+	
+	
+	public synchronized void addRead(long count) {
+		read += count;
+	}
+	
+	public synchronized void addCreated(long count) {
+		created += count;
+		chunks++;
+	}
+	
+	public synchronized void addRejected(long line, String message) {
+		rejected++;
+		addError("Line " + line + ": " + message);
+	}
+	
+	public synchronized void addFailed(long count, long firstLine, String message) {
+		failed += count;
+		chunks++;
+		addError("Chunk at line " + firstLine + ": " + message);
+	}
+
+	public synchronized long getRead() {
+		return read;
+	}
+
+	public synchronized long getCreated() {
+		return created;
+	}
+
+	public synchronized long getRejected() {
+		return rejected;
+	}
+
+	public synchronized long getFailed() {
+		return failed;
+	}
+
+	public synchronized long getChunks() {
+		return chunks;
+	}
+
+	public synchronized List<String> getErrors() {
+		return new ArrayList<>(errors);
+	}
+	
+	private void addError(String error) {
+		if (errors.size() < MAX_ERRORS) {
+			errors.add(error);
+		}
+	}
+	
+}
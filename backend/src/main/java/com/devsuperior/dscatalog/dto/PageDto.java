@@ -0,0 +1,25 @@
+package com.devsuperior.dscatalog.dto;
+
+import java.util.List;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+//mesma página do Spring Data, indicando se o totalElements veio de uma contagem aproximada.
+public class PageDto<T> extends PageImpl<T> {
+	private static final long serialVersionUID = 1L;
+	
+	private final boolean approximateCount;
+	
+	
+	public PageDto(List<T> content, Pageable pageable, long total, boolean approximateCount) {
+		super(content, pageable, total);
+		this.approximateCount = approximateCount;
+	}
+
+	
+	public boolean isApproximateCount() {
+		return approximateCount;
+	}
+	
+}
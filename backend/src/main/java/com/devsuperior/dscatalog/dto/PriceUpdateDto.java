@@ -0,0 +1,49 @@
+package com.devsuperior.dscatalog.dto;
+
+import java.io.Serializable;
+
+//reajuste em massa: informe percentage (ex.: 10.0 = +10%) ou amount (valor somado ao preço), nunca os dois.
+//sem categoryId o reajuste vale para todo o catálogo.
+public class PriceUpdateDto implements Serializable {
+	private static final long serialVersionUID = 1L;
+	
+	private Long categoryId;
+	private Double percentage;
+	private Double amount;
+	
+	
+	public PriceUpdateDto() {
+	}
+	
+	public PriceUpdateDto(Long categoryId, Double percentage, Double amount) {
+		this.categoryId = categoryId;
+		this.percentage = percentage;
+		this.amount = amount;
+	}
+
+	
+	public Long getCategoryId() {
+		return categoryId;
+	}
+
+	public void setCategoryId(Long categoryId) {
+		this.categoryId = categoryId;
+	}
+
+	public Double getPercentage() {
+		return percentage;
+	}
+
+	public void setPercentage(Double percentage) {
+		this.percentage = percentage;
+	}
+
+	public Double getAmount() {
+		return amount;
+	}
+
+	public void setAmount(Double amount) {
+		this.amount = amount;
+	}
+	
+}
@@ -0,0 +1,58 @@
+package com.devsuperior.dscatalog.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.domain.Slice;
+
+//página sem total: informa apenas se existe uma próxima, dispensando o SELECT COUNT(*)
+public class SliceDto<T> implements Serializable {
+	private static final long serialVersionUID = 1L;
+	
+	private List<T> content = new ArrayList<>();
+	private Integer number;
+	private Integer size;
+	private boolean hasNext;
+	
+	
+	public SliceDto() {
+	}
+	
+	public SliceDto(Slice<T> slice) {
+		this.content.addAll(slice.getContent());
+		this.number = slice.getNumber();
+		this.size = slice.getSize();
+		this.hasNext = slice.hasNext();
+	}
+
+	
+	public List<T> getContent() {
+		return content;
+	}
+
+	public Integer getNumber() {
+		return number;
+	}
+
+	public void setNumber(Integer number) {
+		this.number = number;
+	}
+
+	public Integer getSize() {
+		return size;
+	}
+
+	public void setSize(Integer size) {
+		this.size = size;
+	}
+
+	public boolean isHasNext() {
+		return hasNext;
+	}
+
+	public void setHasNext(boolean hasNext) {
+		this.hasNext = hasNext;
+	}
+	
+}
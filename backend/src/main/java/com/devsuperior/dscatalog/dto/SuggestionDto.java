@@ -0,0 +1,52 @@
+package com.devsuperior.dscatalog.dto;
+
+import java.io.Serializable;
+
+public class SuggestionDto implements Serializable {
+	private static final long serialVersionUID = 1L;
+	
+	public enum Type {
+		CATEGORY,
+		PRODUCT
+	}
+	
+	private Type type;
+	private Long id;
+	private String text;
+	
+	
+	public SuggestionDto() {
+	}
+	
+	public SuggestionDto(Type type, Long id, String text) {
+		this.type = type;
+		this.id = id;
+		this.text = text;
+	}
+
+	
+	public Type getType() {
+		return type;
+	}
+
+	public void setType(Type type) {
+		this.type = type;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public String getText() {
+		return text;
+	}
+
+	public void setText(String text) {
+		this.text = text;
+	}
+	
+}
@@ -6,18 +6,28 @@ import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.ManyToMany;
 import javax.persistence.PrePersist;
 import javax.persistence.PreUpdate;
 import javax.persistence.Table;
 
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 @Entity
-@Table(name = "tb_category")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+//referências (getById) ainda fora do cache de segundo nível são inicializadas juntas, num único SELECT ... IN
+@BatchSize(size = 50)
+@Table(name = "tb_category", indexes = @Index(name = "ix_category_name_id", columnList = "name, id"))
 public class Category implements Serializable {
 	private static final long serialVersionUID = 1L;
 	
@@ -6,18 +6,30 @@ import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.ForeignKey;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+//entidade, e a coleção de categorias, no cache de segundo nível (EntityCacheConfig)
 @Entity
-@Table(name = "tb_product")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(name = "tb_product", indexes = @Index(name = "ix_product_name_id", columnList = "name, id"))
 public class Product implements Serializable {
 	private static final long serialVersionUID = 1L;
 	
@@ -34,10 +46,20 @@ public class Product implements Serializable {
 	private String imgUrl;
 	@Column(nullable = false, columnDefinition = "TIMESTAMP WITHOUT TIME ZONE")
 	private Instant date;
+	@Column(columnDefinition = "TIMESTAMP WITHOUT TIME ZONE")
+	private Instant createdAt;
+	@Column(columnDefinition = "TIMESTAMP WITHOUT TIME ZONE")
+	private Instant updatedAt;
+	@Version
+	@Column(nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+	private Long version;
 	
+	//ON DELETE CASCADE em product_id: o DELETE em massa por categoria leva os vínculos junto
 	@ManyToMany
+	@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 	@JoinTable(name = "tb_product_category",
-			   joinColumns = @JoinColumn(name = "product_id"),
+			   joinColumns = @JoinColumn(name = "product_id", foreignKey = @ForeignKey(name = "fk_product_category_product",
+					   foreignKeyDefinition = "FOREIGN KEY (product_id) REFERENCES tb_product (id) ON DELETE CASCADE")),
 			   inverseJoinColumns = @JoinColumn(name = "category_id"))
 	private Set<Category> categories = new HashSet<>();
 	
@@ -103,10 +125,33 @@ public class Product implements Serializable {
 		this.date = date;
 	}
 	
+	public Instant getCreatedAt() {
+		return createdAt;
+	}
+
+	public Instant getUpdatedAt() {
+		return updatedAt;
+	}
+	
+	public Long getVersion() {
+		return version;
+	}
+	
 	public Set<Category> getCategories() {
 		return categories;
 	}
 	
+	
+	@PrePersist
+	public void prePersist() {
+		createdAt = Instant.now();
+	}
+	
+	@PreUpdate
+	public void preUpdate() {
+		updatedAt = Instant.now();
+	}
+	
 
 	@Override
 	public String toString() {
@@ -0,0 +1,79 @@
+package com.devsuperior.dscatalog.entities;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import org.hibernate.annotations.Immutable;
+
+//mapeamento somente leitura da tabela de junção de Product.categories, para consultas que precisam só dos vínculos
+//(ex.: EXISTS por categoria) sem passar por tb_category. as escritas continuam pela coleção em Product.
+@Entity
+@Immutable
+@IdClass(ProductCategory.ProductCategoryId.class)
+@Table(name = "tb_product_category",
+	   indexes = @Index(name = "ix_product_category_category_product", columnList = "category_id, product_id"))
+public class ProductCategory implements Serializable {
+	private static final long serialVersionUID = 1L;
+	
+	@Id
+	@Column(name = "product_id")
+	private Long productId;
+	@Id
+	@Column(name = "category_id")
+	private Long categoryId;
+	
+	
+	public ProductCategory() {
+	}
+
+	
+	public Long getProductId() {
+		return productId;
+	}
+
+	public Long getCategoryId() {
+		return categoryId;
+	}
+	
+	
+	public static class ProductCategoryId implements Serializable {
+		private static final long serialVersionUID = 1L;
+		
+		private Long productId;
+		private Long categoryId;
+		
+		public ProductCategoryId() {
+		}
+		
+		public ProductCategoryId(Long productId, Long categoryId) {
+			this.productId = productId;
+			this.categoryId = categoryId;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(productId, categoryId);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null)
+				return false;
+			if (getClass() != obj.getClass())
+				return false;
+			ProductCategoryId other = (ProductCategoryId) obj;
+			return Objects.equals(productId, other.productId) && Objects.equals(categoryId, other.categoryId);
+		}
+		
+	}
+
+}
@@ -0,0 +1,117 @@
+package com.devsuperior.dscatalog.execution;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+//limita quantas conexões ficam abertas ao mesmo tempo: getConnection() espera por uma permissão (fila justa, com
+//prazo) e Connection.close() a devolve. com o número de permissões igual ao tamanho do pool, milhares de
+//requisições em threads virtuais esperam aqui, estacionadas e sem prender threads do SO, em vez de disputar o pool.
+//sem permissão no prazo, o getConnection() falha como um pool esgotado (SQLTransientConnectionException).
+public class ConcurrencyLimitedDataSource extends DelegatingDataSource {
+	
+	private final Semaphore permits;
+	private final int maxConcurrency;
+	private final long timeoutNanos;
+	
+	
+	public ConcurrencyLimitedDataSource(DataSource target, int maxConcurrency, Duration timeout) {
+		super(target);
+		if (maxConcurrency < 1) {
+			throw new IllegalArgumentException("maxConcurrency must be positive");
+		}
+		this.permits = new Semaphore(maxConcurrency, true);
+		this.maxConcurrency = maxConcurrency;
+		this.timeoutNanos = timeout.toNanos();
+	}
+	
+	@Override
+	public Connection getConnection() throws SQLException {
+		acquire();
+		return open(() -> super.getConnection());
+	}
+	
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		acquire();
+		return open(() -> super.getConnection(username, password));
+	}
+	
+	public int getMaxConcurrency() {
+		return maxConcurrency;
+	}
+	
+	public int getActive() {
+		return maxConcurrency - permits.availablePermits();
+	}
+	
+	//estimativa de threads esperando por uma permissão
+	public int getWaiting() {
+		return permits.getQueueLength();
+	}
+	
+	private void acquire() throws SQLException {
+		try {
+			if (!permits.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS)) {
+				throw new SQLTransientConnectionException("Database concurrency limit of " + maxConcurrency
+						+ " reached; no permit within " + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLTransientConnectionException("Interrupted while waiting for a database permit", e);
+		}
+	}
+	
+	private Connection open(ConnectionSupplier supplier) throws SQLException {
+		Connection connection;
+		try {
+			connection = supplier.get();
+		} catch (SQLException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+		AtomicBoolean released = new AtomicBoolean();
+		InvocationHandler handler = (proxy, method, args) -> {
+			switch (method.getName()) {
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			default:
+				break;
+			}
+			if (method.getName().equals("close") && released.compareAndSet(false, true)) {
+				try {
+					connection.close();
+				} finally {
+					permits.release();
+				}
+				return null;
+			}
+			try {
+				return method.invoke(connection, args);
+			} catch (InvocationTargetException e) {
+				throw e.getTargetException();
+			}
+		};
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+				handler);
+	}
+	
+	@FunctionalInterface
+	private interface ConnectionSupplier {
+		Connection get() throws SQLException;
+	}
+	
+}
@@ -0,0 +1,42 @@
+package com.devsuperior.dscatalog.execution;
+
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+//threads virtuais por reflexão: o projeto compila com Java 17, onde elas não existem, e passa a usá-las quando
+//roda num JDK 21+ (Thread.ofVirtual().name(prefixo, 0).factory() + Executors.newThreadPerTaskExecutor)
+public final class VirtualThreads {
+	
+	private VirtualThreads() {
+	}
+	
+	public static boolean isSupported() {
+		return factory("probe-").isPresent();
+	}
+	
+	//um executor que cria uma thread virtual por tarefa; vazio quando o JDK não tem threads virtuais
+	public static Optional<ExecutorService> newThreadPerTaskExecutor(String namePrefix) {
+		return factory(namePrefix).flatMap(factory -> {
+			try {
+				Method method = java.util.concurrent.Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+				return Optional.of((ExecutorService) method.invoke(null, factory));
+			} catch (ReflectiveOperationException e) {
+				return Optional.empty();
+			}
+		});
+	}
+	
+	private static Optional<ThreadFactory> factory(String namePrefix) {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+			builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+			return Optional.of((ThreadFactory) builderType.getMethod("factory").invoke(builder));
+		} catch (ReflectiveOperationException e) {
+			return Optional.empty();
+		}
+	}
+	
+}
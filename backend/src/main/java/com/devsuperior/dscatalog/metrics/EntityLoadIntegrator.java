@@ -0,0 +1,25 @@
+package com.devsuperior.dscatalog.metrics;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+
+//conta cada entidade hidratada (POST_LOAD) no RequestStatistics da requisição corrente
+public class EntityLoadIntegrator implements Integrator {
+	
+	@Override
+	public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory,
+			SessionFactoryServiceRegistry serviceRegistry) {
+		serviceRegistry.getService(EventListenerRegistry.class).appendListeners(EventType.POST_LOAD,
+				(PostLoadEventListener) event -> RequestStatistics.entityLoaded());
+	}
+	
+	@Override
+	public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+	}
+	
+}
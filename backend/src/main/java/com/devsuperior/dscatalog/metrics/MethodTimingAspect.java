@@ -0,0 +1,67 @@
+package com.devsuperior.dscatalog.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.annotation.Order;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+//tempo de cada método público dos controllers e services de produtos e categorias, em dois timers
+//(dscatalog.controller e dscatalog.service) com as tags class, method e exception.
+//os histogramas e percentis vêm de management.metrics.distribution.* no application.yaml
+//fica por fora do @Transactional, para o tempo do service incluir o commit
+@Aspect
+@Order(0)
+public class MethodTimingAspect {
+	
+	public static final String CONTROLLER_TIMER = "dscatalog.controller";
+	public static final String SERVICE_TIMER = "dscatalog.service";
+	
+	private final MeterRegistry registry;
+	private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+	
+	
+	public MethodTimingAspect(MeterRegistry registry) {
+		this.registry = registry;
+	}
+	
+	@Around("within(com.devsuperior.dscatalog.controllers.ProductController) "
+			+ "|| within(com.devsuperior.dscatalog.controllers.CategoryController)")
+	public Object timeController(ProceedingJoinPoint joinPoint) throws Throwable {
+		return time(CONTROLLER_TIMER, joinPoint);
+	}
+	
+	@Around("within(com.devsuperior.dscatalog.services.ProductService) "
+			+ "|| within(com.devsuperior.dscatalog.services.CategoryService)")
+	public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+		return time(SERVICE_TIMER, joinPoint);
+	}
+	
+	private Object time(String name, ProceedingJoinPoint joinPoint) throws Throwable {
+		long start = System.nanoTime();
+		String exception = "none";
+		try {
+			return joinPoint.proceed();
+		} catch (Throwable e) {
+			exception = e.getClass().getSimpleName();
+			throw e;
+		} finally {
+			timer(name, joinPoint.getSignature().getDeclaringType().getSimpleName(), joinPoint.getSignature().getName(),
+					exception).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+	
+	//o registry já evita timers duplicados, mas montar o Meter.Id a cada chamada aloca; o mapa local não
+	private Timer timer(String name, String className, String method, String exception) {
+		return timers.computeIfAbsent(name + '|' + className + '|' + method + '|' + exception,
+				key -> Timer.builder(name).tag("class", className).tag("method", method).tag("exception", exception)
+						.register(registry));
+	}
+	
+}
@@ -0,0 +1,138 @@
+package com.devsuperior.dscatalog.metrics;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//custo da requisição HTTP corrente (por thread): comandos JDBC com o tempo somado no banco e as repetições por
+//formato (SQL sem literais e com listas IN colapsadas), vindos do SqlStatementListener, mais entidades carregadas,
+//acertos e faltas no cache de segundo nível, flushes e espera pela conexão, vindos dos listeners do Hibernate.
+//as gravações podem ser aninhadas (a do RequestStatisticsFilter e a de um teste, por exemplo) e cada evento entra
+//em todas as abertas; sem nenhuma aberta na thread as chamadas não fazem nada.
+public final class RequestStatistics implements AutoCloseable {
+	
+	private static final ThreadLocal<Deque<RequestStatistics>> OPEN = ThreadLocal.withInitial(ArrayDeque::new);
+	
+	private long statements;
+	private long statementNanos;
+	private final Map<String, Integer> statementsByShape = new LinkedHashMap<>();
+	private long entityLoads;
+	private long cacheHits;
+	private long cacheMisses;
+	private long flushes;
+	private long connectionWaitNanos;
+	
+	
+	private RequestStatistics() {
+	}
+	
+	public static RequestStatistics begin() {
+		RequestStatistics statistics = new RequestStatistics();
+		OPEN.get().push(statistics);
+		return statistics;
+	}
+	
+	public void end() {
+		Deque<RequestStatistics> open = OPEN.get();
+		open.remove(this);
+		if (open.isEmpty()) {
+			OPEN.remove();
+		}
+	}
+	
+	@Override
+	public void close() {
+		end();
+	}
+	
+	static void statementExecuted(String shape, long elapsedNanos) {
+		for (RequestStatistics statistics : open()) {
+			statistics.statements++;
+			statistics.statementNanos += elapsedNanos;
+			statistics.statementsByShape.merge(shape, 1, Integer::sum);
+		}
+	}
+	
+	static void entityLoaded() {
+		for (RequestStatistics statistics : open()) {
+			statistics.entityLoads++;
+		}
+	}
+	
+	static void cacheAccessed(boolean hit) {
+		for (RequestStatistics statistics : open()) {
+			if (hit) {
+				statistics.cacheHits++;
+			} else {
+				statistics.cacheMisses++;
+			}
+		}
+	}
+	
+	static void flushed() {
+		for (RequestStatistics statistics : open()) {
+			statistics.flushes++;
+		}
+	}
+	
+	static void connectionAcquired(long waitNanos) {
+		for (RequestStatistics statistics : open()) {
+			statistics.connectionWaitNanos += waitNanos;
+		}
+	}
+	
+	private static Deque<RequestStatistics> open() {
+		Deque<RequestStatistics> open = OPEN.get();
+		if (open.isEmpty()) {
+			OPEN.remove();
+		}
+		return open;
+	}
+	
+	
+	public long getStatements() {
+		return statements;
+	}
+	
+	public long getStatementNanos() {
+		return statementNanos;
+	}
+	
+	public Map<String, Integer> getStatementsByShape() {
+		return Collections.unmodifiableMap(statementsByShape);
+	}
+	
+	//formatos executados mais de threshold vezes: sinal de N+1 (um SELECT por item de uma coleção)
+	public Map<String, Integer> getRepeatedShapes(int threshold) {
+		Map<String, Integer> repeated = new LinkedHashMap<>();
+		statementsByShape.forEach((shape, count) -> {
+			if (count > threshold) {
+				repeated.put(shape, count);
+			}
+		});
+		return repeated;
+	}
+	
+	public long getEntityLoads() {
+		return entityLoads;
+	}
+	
+	public long getCacheHits() {
+		return cacheHits;
+	}
+	
+	public long getCacheMisses() {
+		return cacheMisses;
+	}
+	
+	public long getFlushes() {
+		return flushes;
+	}
+	
+	public long getConnectionWaitNanos() {
+		return connectionWaitNanos;
+	}
+	
+}
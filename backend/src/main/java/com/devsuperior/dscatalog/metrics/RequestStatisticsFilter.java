@@ -0,0 +1,79 @@
+package com.devsuperior.dscatalog.metrics;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+//abre um RequestStatistics por requisição e, ao final, grava quanto ela custou: comandos JDBC e o tempo somado
+//no banco, entidades carregadas, acertos e faltas no cache de segundo nível, flushes e espera pelo pool de
+//conexões, com as mesmas tags method e uri do http.server.requests. avisa quando um mesmo formato de SQL se
+//repetiu mais que repeatedThreshold vezes na requisição
+public class RequestStatisticsFilter extends OncePerRequestFilter {
+	
+	private static final Logger log = LoggerFactory.getLogger(RequestStatisticsFilter.class);
+	
+	private final MeterRegistry registry;
+	private final int repeatedThreshold;
+	
+	
+	public RequestStatisticsFilter(MeterRegistry registry, int repeatedThreshold) {
+		this.registry = registry;
+		this.repeatedThreshold = repeatedThreshold;
+	}
+	
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request) {
+		return request.getRequestURI().startsWith("/actuator");
+	}
+	
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		RequestStatistics statistics = RequestStatistics.begin();
+		try {
+			filterChain.doFilter(request, response);
+		} finally {
+			statistics.end();
+			record(request, statistics);
+		}
+	}
+	
+	private void record(HttpServletRequest request, RequestStatistics statistics) {
+		Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+		String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+		Tags tags = Tags.of("method", request.getMethod(), "uri", uri);
+		summary("dscatalog.request.statements", "SQL statements executed", tags).record(statistics.getStatements());
+		Timer.builder("dscatalog.request.jdbc.time").description("time spent in JDBC statements per request").tags(tags)
+				.register(registry).record(statistics.getStatementNanos(), TimeUnit.NANOSECONDS);
+		summary("dscatalog.request.entity.loads", "entities loaded", tags).record(statistics.getEntityLoads());
+		summary("dscatalog.request.cache.hits", "second-level cache hits", tags).record(statistics.getCacheHits());
+		summary("dscatalog.request.cache.misses", "second-level cache misses", tags).record(statistics.getCacheMisses());
+		summary("dscatalog.request.flushes", "session flushes", tags).record(statistics.getFlushes());
+		Timer.builder("dscatalog.request.connection.wait").description("time waiting for JDBC connections").tags(tags)
+				.register(registry).record(statistics.getConnectionWaitNanos(), TimeUnit.NANOSECONDS);
+	
+		statistics.getRepeatedShapes(repeatedThreshold).forEach((shape, count) -> {
+			log.warn("Possible N+1 in {} {}: statement executed {} times: {}", request.getMethod(), uri, count, shape);
+			registry.counter("dscatalog.request.jdbc.repeated", tags).increment();
+		});
+	}
+	
+	private DistributionSummary summary(String name, String description, Tags tags) {
+		return DistributionSummary.builder(name).description(description + " per request").tags(tags).register(registry);
+	}
+	
+}
@@ -0,0 +1,34 @@
+package com.devsuperior.dscatalog.metrics;
+
+import org.hibernate.BaseSessionEventListener;
+
+//uma instância por Session (hibernate.session.events.auto): repassa acessos ao cache de segundo nível, flushes e
+//a espera pela conexão para o RequestStatistics da requisição corrente. os comandos são contados abaixo, no proxy
+//do DataSource (SqlStatementListener), que também vê os que não passam pelo Hibernate
+public class RequestStatisticsSessionListener extends BaseSessionEventListener {
+	private static final long serialVersionUID = 1L;
+	
+	private long acquisitionStart;
+	
+	
+	@Override
+	public void jdbcConnectionAcquisitionStart() {
+		acquisitionStart = System.nanoTime();
+	}
+	
+	@Override
+	public void jdbcConnectionAcquisitionEnd() {
+		RequestStatistics.connectionAcquired(System.nanoTime() - acquisitionStart);
+	}
+	
+	@Override
+	public void cacheGetEnd(boolean hit) {
+		RequestStatistics.cacheAccessed(hit);
+	}
+	
+	@Override
+	public void flushEnd(int numberOfEntities, int numberOfCollections) {
+		RequestStatistics.flushed();
+	}
+	
+}
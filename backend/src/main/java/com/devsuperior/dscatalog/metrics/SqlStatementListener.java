@@ -0,0 +1,90 @@
+package com.devsuperior.dscatalog.metrics;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+
+//ouve cada comando no proxy do DataSource (datasource-proxy), abaixo do Hibernate e do JdbcTemplate: repassa o
+//formato e o tempo para os RequestStatistics abertos na thread e registra em WARN os comandos mais lentos que
+//o limite, com os parâmetros. um batch conta como um comando (uma ida ao banco).
+public class SqlStatementListener implements QueryExecutionListener {
+	
+	private static final Logger log = LoggerFactory.getLogger(SqlStatementListener.class);
+	
+	private static final String START = SqlStatementListener.class.getName() + ".start";
+	private static final int LOGGED_BATCH_ENTRIES = 3;
+	
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+	private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+	private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+	private static final Pattern IN_LIST = Pattern.compile("(?i)\\bin\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+	
+	private final long slowThresholdNanos;
+	
+	
+	public SqlStatementListener(Duration slowThreshold) {
+		this.slowThresholdNanos = slowThreshold.toNanos();
+	}
+	
+	@Override
+	public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+		execInfo.addCustomValue(START, System.nanoTime());
+	}
+	
+	@Override
+	public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+		Long start = execInfo.getCustomValue(START, Long.class);
+		long elapsed = start == null ? execInfo.getElapsedTime() * 1_000_000L : System.nanoTime() - start;
+		//Statement.executeBatch com SQLs diferentes traz vários QueryInfo: o tempo fica com o primeiro
+		for (int i = 0; i < queryInfoList.size(); i++) {
+			RequestStatistics.statementExecuted(shapeOf(queryInfoList.get(i).getQuery()), i == 0 ? elapsed : 0L);
+		}
+		if (elapsed >= slowThresholdNanos && log.isWarnEnabled()) {
+			for (QueryInfo query : queryInfoList) {
+				log.warn("Slow SQL ({} ms{}{}): {} params {}", elapsed / 1_000_000L,
+						execInfo.isBatch() ? ", batch of " + execInfo.getBatchSize() : "",
+						execInfo.isSuccess() ? "" : ", failed", query.getQuery(), parametersOf(query));
+			}
+		}
+	}
+	
+	//mesmo comando com outros valores -> mesmo formato
+	public static String shapeOf(String sql) {
+		String shape = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+		shape = STRING_LITERAL.matcher(shape).replaceAll("?");
+		shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+		return IN_LIST.matcher(shape).replaceAll("in (...)");
+	}
+	
+	//[1=..., 2=...] por execução; de um batch só as primeiras entradas
+	private static String parametersOf(QueryInfo query) {
+		List<List<ParameterSetOperation>> executions = query.getParametersList();
+		List<String> formatted = new ArrayList<>();
+		for (int i = 0; i < executions.size() && i < LOGGED_BATCH_ENTRIES; i++) {
+			List<ParameterSetOperation> operations = new ArrayList<>(executions.get(i));
+			operations.sort(Comparator.comparingInt(x -> x.getArgs()[0] instanceof Integer ? (Integer) x.getArgs()[0] : Integer.MAX_VALUE));
+			List<String> params = new ArrayList<>();
+			for (ParameterSetOperation operation : operations) {
+				Object[] args = operation.getArgs();
+				Object value = ParameterSetOperation.isSetNullParameterOperation(operation) || args.length < 2 ? null : args[1];
+				params.add(args[0] + "=" + value);
+			}
+			formatted.add(params.toString());
+		}
+		if (executions.size() > LOGGED_BATCH_ENTRIES) {
+			formatted.add("... " + (executions.size() - LOGGED_BATCH_ENTRIES) + " more");
+		}
+		return String.join(" ", formatted);
+	}
+	
+}
@@ -1,11 +1,49 @@
 package com.devsuperior.dscatalog.repositories;
 
+import java.util.Collection;
+import java.util.List;
+
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.devsuperior.dscatalog.entities.Category;
 
 @Repository
 public interface CategoryRepository extends JpaRepository<Category, Long> {
+	
+	//busca size + 1 linhas para saber se existe próxima página, sem emitir o SELECT COUNT(*)
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
+	@Query("SELECT obj FROM Category obj")
+	Slice<Category> findAllSliced(Pageable pageable);
+	
+	List<Category> findByNameIn(Collection<String> names);
+	
+	//paginação por keyset: ordena por (name, id) e continua a partir da última chave, sem OFFSET nem COUNT
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
+	@Query("SELECT obj FROM Category obj ORDER BY obj.name ASC, obj.id ASC")
+	Slice<Category> seekFirstByNameAsc(Pageable pageable);
+	
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
+	@Query("SELECT obj FROM Category obj ORDER BY obj.name DESC, obj.id DESC")
+	Slice<Category> seekFirstByNameDesc(Pageable pageable);
+	
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
+	@Query("SELECT obj FROM Category obj "
+			+ "WHERE obj.name > :name OR (obj.name = :name AND obj.id > :id) "
+			+ "ORDER BY obj.name ASC, obj.id ASC")
+	Slice<Category> seekAfterByNameAsc(@Param("name") String name, @Param("id") Long id, Pageable pageable);
+	
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
+	@Query("SELECT obj FROM Category obj "
+			+ "WHERE obj.name < :name OR (obj.name = :name AND obj.id < :id) "
+			+ "ORDER BY obj.name DESC, obj.id DESC")
+	Slice<Category> seekAfterByNameDesc(@Param("name") String name, @Param("id") Long id, Pageable pageable);
 
 }
@@ -0,0 +1,102 @@
+package com.devsuperior.dscatalog.repositories;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.action.internal.BulkOperationCleanupAction;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.devsuperior.dscatalog.entities.Category;
+import com.devsuperior.dscatalog.entities.Product;
+
+//inserção em lote via JDBC: o IDENTITY do Product impede o Hibernate de agrupar os INSERTs,
+//então tb_product e tb_product_category são gravadas com executeBatch na transação corrente.
+@Repository
+public class ProductBatchRepository {
+	
+	private static final String INSERT_PRODUCT =
+			"INSERT INTO tb_product (name, description, price, img_url, date, created_at, version) VALUES (?, ?, ?, ?, ?, ?, 0)";
+	private static final String INSERT_PRODUCT_CATEGORY =
+			"INSERT INTO tb_product_category (product_id, category_id) VALUES (?, ?)";
+	
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	
+	@PersistenceContext
+	private EntityManager entityManager;
+	
+	
+	//grava os produtos e suas categorias, preenchendo o id gerado em cada Product
+	public void insertAll(List<Product> products) {
+		if (products.isEmpty()) {
+			return;
+		}
+		Timestamp createdAt = Timestamp.from(Instant.now());
+		List<Long> ids = jdbcTemplate.execute((ConnectionCallback<List<Long>>) connection -> {
+			try (PreparedStatement statement = connection.prepareStatement(INSERT_PRODUCT, new String[] {"id"})) {
+				for (Product product : products) {
+					statement.setString(1, product.getName());
+					statement.setString(2, product.getDescription());
+					if (product.getPrice() == null) {
+						statement.setNull(3, Types.DOUBLE);
+					} else {
+						statement.setDouble(3, product.getPrice());
+					}
+					statement.setString(4, product.getImgUrl());
+					statement.setTimestamp(5, Timestamp.from(product.getDate()));
+					statement.setTimestamp(6, createdAt);
+					statement.addBatch();
+				}
+				statement.executeBatch();
+				
+				List<Long> keys = new ArrayList<>(products.size());
+				try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+					while (generatedKeys.next()) {
+						keys.add(generatedKeys.getLong(1));
+					}
+				}
+				return keys;
+			}
+		});
+		if (ids == null || ids.size() != products.size()) {
+			throw new IllegalStateException("Generated keys not returned for the product batch");
+		}
+		
+		List<Long[]> links = new ArrayList<>();
+		for (int i = 0; i < products.size(); i++) {
+			Product product = products.get(i);
+			product.setId(ids.get(i));
+			for (Category category : product.getCategories()) {
+				links.add(new Long[] {product.getId(), category.getId()});
+			}
+		}
+		if (!links.isEmpty()) {
+			jdbcTemplate.batchUpdate(INSERT_PRODUCT_CATEGORY, links, links.size(), (statement, link) -> {
+				statement.setLong(1, link[0]);
+				statement.setLong(2, link[1]);
+			});
+		}
+		invalidateCaches();
+	}
+	
+	//o Hibernate não vê os INSERTs por JDBC: registra as tabelas como alteradas na transação, como num comando nativo,
+	//para as consultas em cache (e as regiões dessas tabelas) serem invalidadas até o commit
+	private void invalidateCaches() {
+		SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+		session.getActionQueue().addAction(new BulkOperationCleanupAction(session, Set.of("tb_product", "tb_product_category")));
+	}
+
+}
@@ -1,11 +1,259 @@
 package com.devsuperior.dscatalog.repositories;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.devsuperior.dscatalog.dto.ProductSummaryDto;
 import com.devsuperior.dscatalog.entities.Product;
+import com.devsuperior.dscatalog.repositories.projections.CategoryCountProjection;
+import com.devsuperior.dscatalog.repositories.projections.IdNameProjection;
+import com.devsuperior.dscatalog.repositories.projections.ProductCategoryLinkProjection;
+import com.devsuperior.dscatalog.repositories.projections.ProductDescriptionProjection;
+import com.devsuperior.dscatalog.repositories.projections.ProductTextProjection;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
+	
+	//o detalhe sempre devolve as categorias: vêm no mesmo SELECT (LEFT JOIN), sem o segundo comando da coleção lazy
+	@Override
+	@EntityGraph(attributePaths = "categories")
+	Optional<Product> findById(Long id);
+	
+	//as listagens e suas contagens usam o cache de consultas (HINT_CACHEABLE), invalidado quando as tabelas mudam
+	//busca size + 1 linhas para saber se existe próxima página, sem emitir o SELECT COUNT(*)
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
+	@Query("SELECT obj FROM Product obj")
+	Slice<Product> findAllSliced(Pageable pageable);
+	
+	//filtros da listagem: nome (contém, sem diferenciar maiúsculas) e categorias por EXISTS em tb_product_category,
+	//que usa o índice (category_id, product_id), não duplica produtos e dispensa o DISTINCT de um JOIN
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
+	@Query("SELECT obj FROM Product obj WHERE LOWER(obj.name) LIKE LOWER(CONCAT('%', :name, '%')) ESCAPE '\\'")
+	Slice<Product> findByNameSliced(@Param("name") String name, Pageable pageable);
+	
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
+	@Query("SELECT COUNT(obj) FROM Product obj WHERE LOWER(obj.name) LIKE LOWER(CONCAT('%', :name, '%')) ESCAPE '\\'")
+	long countByName(@Param("name") String name);
+	
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
+	@Query("SELECT obj FROM Product obj WHERE EXISTS "
+			+ "(SELECT pc.productId FROM ProductCategory pc WHERE pc.productId = obj.id AND pc.categoryId IN :categoryIds)")
+	Slice<Product> findByCategoriesSliced(@Param("categoryIds") List<Long> categoryIds, Pageable pageable);
+	
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
+	@Query("SELECT COUNT(obj) FROM Product obj WHERE EXISTS "
+			+ "(SELECT pc.productId FROM ProductCategory pc WHERE pc.productId = obj.id AND pc.categoryId IN :categoryIds)")
+	long countByCategories(@Param("categoryIds") List<Long> categoryIds);
+	
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
+	@Query("SELECT obj FROM Product obj WHERE LOWER(obj.name) LIKE LOWER(CONCAT('%', :name, '%')) ESCAPE '\\' AND EXISTS "
+			+ "(SELECT pc.productId FROM ProductCategory pc WHERE pc.productId = obj.id AND pc.categoryId IN :categoryIds)")
+	Slice<Product> findByCategoriesAndNameSliced(@Param("categoryIds") List<Long> categoryIds, @Param("name") String name,
+			Pageable pageable);
+	
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
+	@Query("SELECT COUNT(obj) FROM Product obj WHERE LOWER(obj.name) LIKE LOWER(CONCAT('%', :name, '%')) ESCAPE '\\' AND EXISTS "
+			+ "(SELECT pc.productId FROM ProductCategory pc WHERE pc.productId = obj.id AND pc.categoryId IN :categoryIds)")
+	long countByCategoriesAndName(@Param("categoryIds") List<Long> categoryIds, @Param("name") String name);
+	
+	//filtro completo, usado quando há faixas de preço/data ou categorias obrigatórias/excluídas: limites nulos,
+	//anyCategory=true, allCount=0 e noExcluded=true desligam cada condição. "todas as categorias" compara quantas das
+	//pedidas o produto tem com allCount (o tamanho da lista, sem repetidas). como IN () vazio não é SQL válido, sem
+	//uma das listas o chamador passa uma lista qualquer com a condição desligada.
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
+	@Query("SELECT obj FROM Product obj WHERE (:name = '' OR LOWER(obj.name) LIKE LOWER(CONCAT('%', :name, '%')) ESCAPE '\\') "
+			+ "AND (:minPrice IS NULL OR obj.price >= :minPrice) AND (:maxPrice IS NULL OR obj.price <= :maxPrice) "
+			+ "AND (:minDate IS NULL OR obj.date >= :minDate) AND (:maxDate IS NULL OR obj.date <= :maxDate) "
+			+ "AND (:anyCategory = true OR EXISTS "
+			+ "(SELECT pc.productId FROM ProductCategory pc WHERE pc.productId = obj.id AND pc.categoryId IN :categoryIds)) "
+			+ "AND (:allCount = 0 OR (SELECT COUNT(pa.productId) FROM ProductCategory pa "
+			+ "WHERE pa.productId = obj.id AND pa.categoryId IN :allCategoryIds) = :allCount) "
+			+ "AND (:noExcluded = true OR NOT EXISTS "
+			+ "(SELECT pn.productId FROM ProductCategory pn WHERE pn.productId = obj.id AND pn.categoryId IN :excludedCategoryIds))")
+	Slice<Product> findByFilterSliced(@Param("anyCategory") boolean anyCategory, @Param("categoryIds") List<Long> categoryIds,
+			@Param("allCount") int allCount, @Param("allCategoryIds") List<Long> allCategoryIds,
+			@Param("noExcluded") boolean noExcluded, @Param("excludedCategoryIds") List<Long> excludedCategoryIds,
+			@Param("name") String name, @Param("minPrice") Double minPrice, @Param("maxPrice") Double maxPrice,
+			@Param("minDate") Instant minDate, @Param("maxDate") Instant maxDate, Pageable pageable);
+	
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
+	@Query("SELECT COUNT(obj) FROM Product obj WHERE (:name = '' OR LOWER(obj.name) LIKE LOWER(CONCAT('%', :name, '%')) ESCAPE '\\') "
+			+ "AND (:minPrice IS NULL OR obj.price >= :minPrice) AND (:maxPrice IS NULL OR obj.price <= :maxPrice) "
+			+ "AND (:minDate IS NULL OR obj.date >= :minDate) AND (:maxDate IS NULL OR obj.date <= :maxDate) "
+			+ "AND (:anyCategory = true OR EXISTS "
+			+ "(SELECT pc.productId FROM ProductCategory pc WHERE pc.productId = obj.id AND pc.categoryId IN :categoryIds)) "
+			+ "AND (:allCount = 0 OR (SELECT COUNT(pa.productId) FROM ProductCategory pa "
+			+ "WHERE pa.productId = obj.id AND pa.categoryId IN :allCategoryIds) = :allCount) "
+			+ "AND (:noExcluded = true OR NOT EXISTS "
+			+ "(SELECT pn.productId FROM ProductCategory pn WHERE pn.productId = obj.id AND pn.categoryId IN :excludedCategoryIds))")
+	long countByFilter(@Param("anyCategory") boolean anyCategory, @Param("categoryIds") List<Long> categoryIds,
+			@Param("allCount") int allCount, @Param("allCategoryIds") List<Long> allCategoryIds,
+			@Param("noExcluded") boolean noExcluded, @Param("excludedCategoryIds") List<Long> excludedCategoryIds,
+			@Param("name") String name, @Param("minPrice") Double minPrice, @Param("maxPrice") Double maxPrice,
+			@Param("minDate") Instant minDate, @Param("maxDate") Instant maxDate);
+	
+	//facetas: produtos por categoria dentro do mesmo filtro da listagem, em uma única agregação sobre tb_product_category
+	@Query("SELECT pc.categoryId AS categoryId, COUNT(pc.productId) AS productCount FROM ProductCategory pc "
+			+ "GROUP BY pc.categoryId")
+	List<CategoryCountProjection> countPerCategory();
+	
+	@Query("SELECT pc.categoryId AS categoryId, COUNT(pc.productId) AS productCount FROM ProductCategory pc, Product obj "
+			+ "WHERE obj.id = pc.productId AND LOWER(obj.name) LIKE LOWER(CONCAT('%', :name, '%')) ESCAPE '\\' GROUP BY pc.categoryId")
+	List<CategoryCountProjection> countPerCategoryByName(@Param("name") String name);
+	
+	@Query("SELECT pc.categoryId AS categoryId, COUNT(pc.productId) AS productCount FROM ProductCategory pc WHERE EXISTS "
+			+ "(SELECT f.productId FROM ProductCategory f WHERE f.productId = pc.productId AND f.categoryId IN :categoryIds) "
+			+ "GROUP BY pc.categoryId")
+	List<CategoryCountProjection> countPerCategoryByCategories(@Param("categoryIds") List<Long> categoryIds);
+	
+	@Query("SELECT pc.categoryId AS categoryId, COUNT(pc.productId) AS productCount FROM ProductCategory pc, Product obj "
+			+ "WHERE obj.id = pc.productId AND LOWER(obj.name) LIKE LOWER(CONCAT('%', :name, '%')) ESCAPE '\\' AND EXISTS "
+			+ "(SELECT f.productId FROM ProductCategory f WHERE f.productId = pc.productId AND f.categoryId IN :categoryIds) "
+			+ "GROUP BY pc.categoryId")
+	List<CategoryCountProjection> countPerCategoryByCategoriesAndName(@Param("categoryIds") List<Long> categoryIds,
+			@Param("name") String name);
+	
+	@Query("SELECT pc.categoryId AS categoryId, COUNT(pc.productId) AS productCount FROM ProductCategory pc, Product obj "
+			+ "WHERE obj.id = pc.productId AND (:name = '' OR LOWER(obj.name) LIKE LOWER(CONCAT('%', :name, '%')) ESCAPE '\\') "
+			+ "AND (:minPrice IS NULL OR obj.price >= :minPrice) AND (:maxPrice IS NULL OR obj.price <= :maxPrice) "
+			+ "AND (:minDate IS NULL OR obj.date >= :minDate) AND (:maxDate IS NULL OR obj.date <= :maxDate) "
+			+ "AND (:anyCategory = true OR EXISTS "
+			+ "(SELECT f.productId FROM ProductCategory f WHERE f.productId = pc.productId AND f.categoryId IN :categoryIds)) "
+			+ "AND (:allCount = 0 OR (SELECT COUNT(pa.productId) FROM ProductCategory pa "
+			+ "WHERE pa.productId = obj.id AND pa.categoryId IN :allCategoryIds) = :allCount) "
+			+ "AND (:noExcluded = true OR NOT EXISTS "
+			+ "(SELECT pn.productId FROM ProductCategory pn WHERE pn.productId = obj.id AND pn.categoryId IN :excludedCategoryIds)) "
+			+ "GROUP BY pc.categoryId")
+	List<CategoryCountProjection> countPerCategoryByFilter(@Param("anyCategory") boolean anyCategory, @Param("categoryIds") List<Long> categoryIds,
+			@Param("allCount") int allCount, @Param("allCategoryIds") List<Long> allCategoryIds,
+			@Param("noExcluded") boolean noExcluded, @Param("excludedCategoryIds") List<Long> excludedCategoryIds,
+			@Param("name") String name, @Param("minPrice") Double minPrice,
+			@Param("maxPrice") Double maxPrice, @Param("minDate") Instant minDate, @Param("maxDate") Instant maxDate);
+	
+	@Query("SELECT pc.categoryId AS categoryId, COUNT(pc.productId) AS productCount FROM ProductCategory pc "
+			+ "WHERE pc.productId IN :ids GROUP BY pc.categoryId")
+	List<CategoryCountProjection> countPerCategoryByProductIdIn(@Param("ids") Collection<Long> ids);
+	
+	//projeção direto no DTO: seleciona só id, name, price, imgUrl e date, sem hidratar entidades
+	@Query("SELECT new com.devsuperior.dscatalog.dto.ProductSummaryDto(obj.id, obj.name, obj.price, obj.imgUrl, obj.date) "
+			+ "FROM Product obj")
+	Slice<ProductSummaryDto> findAllSummaries(Pageable pageable);
+	
+	//inicializa as categorias de todos os produtos da página numa única consulta (evita o N+1 do lazy loading)
+	@Query("SELECT DISTINCT obj FROM Product obj LEFT JOIN FETCH obj.categories WHERE obj IN :products")
+	List<Product> findProductsWithCategories(@Param("products") List<Product> products);
+	
+	//operações em massa: um único UPDATE/DELETE por bloco de ids, sem carregar as entidades
+	
+	//lidos antes do DELETE da categoria, para os índices em memória removerem só esses produtos
+	@Query(value = "SELECT product_id FROM tb_product_category WHERE category_id = :categoryId", nativeQuery = true)
+	List<Long> findIdsByCategoryId(@Param("categoryId") Long categoryId);
+	
+	//os produtos da categoria num só DELETE; os vínculos saem pelo ON DELETE CASCADE de tb_product_category.
+	//nativo porque o DELETE do HQL apagaria antes os vínculos, e o EXISTS não acharia mais nenhum produto
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query(value = "DELETE FROM tb_product p WHERE EXISTS (SELECT 1 FROM tb_product_category l "
+			+ "WHERE l.product_id = p.id AND l.category_id = :categoryId)", nativeQuery = true)
+	int deleteAllByCategoryId(@Param("categoryId") Long categoryId);
+	
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query(value = "DELETE FROM tb_product_category WHERE product_id IN (:ids)", nativeQuery = true)
+	int deleteCategoryLinksByProductIdIn(@Param("ids") List<Long> ids);
+	
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query("DELETE FROM Product obj WHERE obj.id IN :ids")
+	int deleteAllByIdIn(@Param("ids") List<Long> ids);
+	
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query("UPDATE Product obj SET obj.price = obj.price * :factor, obj.version = obj.version + 1, obj.updatedAt = CURRENT_TIMESTAMP")
+	int multiplyPrices(@Param("factor") Double factor);
+	
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query("UPDATE Product obj SET obj.price = obj.price * :factor, obj.version = obj.version + 1, obj.updatedAt = CURRENT_TIMESTAMP "
+			+ "WHERE obj.id IN (SELECT p.id FROM Product p JOIN p.categories cat WHERE cat.id = :categoryId)")
+	int multiplyPricesByCategory(@Param("factor") Double factor, @Param("categoryId") Long categoryId);
+	
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query("UPDATE Product obj SET obj.price = obj.price + :amount, obj.version = obj.version + 1, obj.updatedAt = CURRENT_TIMESTAMP")
+	int addToPrices(@Param("amount") Double amount);
+	
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query("UPDATE Product obj SET obj.price = obj.price + :amount, obj.version = obj.version + 1, obj.updatedAt = CURRENT_TIMESTAMP "
+			+ "WHERE obj.id IN (SELECT p.id FROM Product p JOIN p.categories cat WHERE cat.id = :categoryId)")
+	int addToPricesByCategory(@Param("amount") Double amount, @Param("categoryId") Long categoryId);
+
+	
+	//exportação: percorre a tabela com cursor JDBC (fetch size) em vez de materializar todas as linhas.
+	//CacheMode IGNORE: a varredura não coloca a tabela inteira no cache de segundo nível, expulsando os quentes
+	@QueryHints({
+		@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"),
+		@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true"),
+		@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "false"),
+		@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHE_MODE, value = "IGNORE")
+	})
+	@Query("SELECT obj FROM Product obj ORDER BY obj.id")
+	Stream<Product> streamAll();
+	
+	//carga do índice de busca: só os campos de texto e de resumo
+	@Query("SELECT obj.id AS id, obj.name AS name, obj.description AS description, obj.price AS price, "
+			+ "obj.imgUrl AS imgUrl, obj.date AS date FROM Product obj")
+	List<ProductTextProjection> findAllTexts();
+	
+	@Query("SELECT obj.id AS id, obj.name AS name FROM Product obj")
+	List<IdNameProjection> findAllNames();
+	
+	//carga da réplica em colunas: sem a descrição, lida só para as linhas de cada página
+	@Query("SELECT new com.devsuperior.dscatalog.dto.ProductSummaryDto(obj.id, obj.name, obj.price, obj.imgUrl, obj.date) "
+			+ "FROM Product obj")
+	List<ProductSummaryDto> findAllSummaries();
+	
+	@Query("SELECT obj.id AS id, obj.description AS description FROM Product obj WHERE obj.id IN :ids")
+	List<ProductDescriptionProjection> findDescriptionsByIdIn(@Param("ids") Collection<Long> ids);
+	
+	@Query("SELECT obj.id FROM Product obj")
+	List<Long> findAllIds();
+	
+	//carga do CategoryBitmapIndex: todos os vínculos produto-categoria, direto de tb_product_category
+	@Query("SELECT pc.productId AS productId, pc.categoryId AS categoryId FROM ProductCategory pc")
+	List<ProductCategoryLinkProjection> findAllCategoryLinks();
+	
+	@Query("SELECT p.id AS productId, cat.id AS categoryId FROM Product p JOIN p.categories cat WHERE p.id IN :ids")
+	List<ProductCategoryLinkProjection> findCategoryLinksByProductIdIn(@Param("ids") List<Long> ids);
+	
+	//paginação por keyset: ordena por (name, id) e continua a partir da última chave, sem OFFSET nem COUNT
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
+	@Query("SELECT obj FROM Product obj ORDER BY obj.name ASC, obj.id ASC")
+	Slice<Product> seekFirstByNameAsc(Pageable pageable);
+	
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
+	@Query("SELECT obj FROM Product obj ORDER BY obj.name DESC, obj.id DESC")
+	Slice<Product> seekFirstByNameDesc(Pageable pageable);
+	
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
+	@Query("SELECT obj FROM Product obj "
+			+ "WHERE obj.name > :name OR (obj.name = :name AND obj.id > :id) "
+			+ "ORDER BY obj.name ASC, obj.id ASC")
+	Slice<Product> seekAfterByNameAsc(@Param("name") String name, @Param("id") Long id, Pageable pageable);
+	
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
+	@Query("SELECT obj FROM Product obj "
+			+ "WHERE obj.name < :name OR (obj.name = :name AND obj.id < :id) "
+			+ "ORDER BY obj.name DESC, obj.id DESC")
+	Slice<Product> seekAfterByNameDesc(@Param("name") String name, @Param("id") Long id, Pageable pageable);
 
 }
@@ -0,0 +1,10 @@
+package com.devsuperior.dscatalog.repositories.projections;
+
+//quantidade de produtos de uma categoria (facetas da listagem e da busca)
+public interface CategoryCountProjection {
+	
+	Long getCategoryId();
+	
+	Long getProductCount();
+
+}
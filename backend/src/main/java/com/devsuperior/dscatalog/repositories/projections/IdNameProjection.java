@@ -0,0 +1,10 @@
+package com.devsuperior.dscatalog.repositories.projections;
+
+//apenas id e nome de uma linha (usado pelo índice de autocompletar)
+public interface IdNameProjection {
+	
+	Long getId();
+	
+	String getName();
+
+}
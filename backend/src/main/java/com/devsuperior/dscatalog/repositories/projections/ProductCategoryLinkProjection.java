@@ -0,0 +1,10 @@
+package com.devsuperior.dscatalog.repositories.projections;
+
+//uma linha de tb_product_category (usada para anexar categorias sem carregar as coleções)
+public interface ProductCategoryLinkProjection {
+	
+	Long getProductId();
+	
+	Long getCategoryId();
+
+}
@@ -0,0 +1,10 @@
+package com.devsuperior.dscatalog.repositories.projections;
+
+//id e descrição de um produto (a réplica em colunas não guarda descrições e as lê só para a página devolvida)
+public interface ProductDescriptionProjection {
+	
+	Long getId();
+	
+	String getDescription();
+
+}
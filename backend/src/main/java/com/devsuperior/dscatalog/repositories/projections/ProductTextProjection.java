@@ -0,0 +1,20 @@
+package com.devsuperior.dscatalog.repositories.projections;
+
+import java.time.Instant;
+
+//campos de texto e de resumo de um produto, lidos sem hidratar a entidade (usados pelo índice de busca)
+public interface ProductTextProjection {
+	
+	Long getId();
+	
+	String getName();
+	
+	String getDescription();
+	
+	Double getPrice();
+	
+	String getImgUrl();
+	
+	Instant getDate();
+
+}
@@ -0,0 +1,69 @@
+package com.devsuperior.dscatalog.routing;
+
+import java.util.function.Supplier;
+
+import javax.servlet.http.HttpServletResponse;
+
+//estado do roteamento na thread da requisição: se as leituras devem ir ao primário (o cliente mandou um token de
+//consistência ainda recente, ou a própria requisição já confirmou uma escrita) e a resposta onde o token de uma
+//escrita confirmada é devolvido
+public final class DataSourceRouting {
+	
+	public static final String TOKEN_HEADER = "X-Consistency-Token";
+	
+	private static final ThreadLocal<DataSourceRouting> CURRENT = new ThreadLocal<>();
+	private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<>();
+	
+	private final HttpServletResponse response;
+	private boolean primaryForced;
+	
+	
+	private DataSourceRouting(HttpServletResponse response, boolean primaryForced) {
+		this.response = response;
+		this.primaryForced = primaryForced;
+	}
+	
+	public static void begin(HttpServletResponse response, boolean primaryForced) {
+		CURRENT.set(new DataSourceRouting(response, primaryForced));
+	}
+	
+	public static void end() {
+		CURRENT.remove();
+	}
+	
+	//leituras que não podem ver uma réplica atrasada, dentro ou fora de uma requisição
+	//(ex.: a recarga dos índices em memória logo após o commit de uma escrita)
+	public static <T> T onPrimary(Supplier<T> action) {
+		Boolean previous = PRIMARY_REQUIRED.get();
+		PRIMARY_REQUIRED.set(Boolean.TRUE);
+		try {
+			return action.get();
+		} finally {
+			if (previous == null) {
+				PRIMARY_REQUIRED.remove();
+			}
+		}
+	}
+	
+	static boolean isPrimaryForced() {
+		if (PRIMARY_REQUIRED.get() != null) {
+			return true;
+		}
+		DataSourceRouting routing = CURRENT.get();
+		return routing != null && routing.primaryForced;
+	}
+	
+	//chamado após o commit de uma transação de escrita, antes do corpo da resposta ser escrito.
+	//o resto da requisição também lê do primário, que é o único que já tem a escrita
+	static void writeCommitted() {
+		DataSourceRouting routing = CURRENT.get();
+		if (routing == null) {
+			return;
+		}
+		routing.primaryForced = true;
+		if (!routing.response.isCommitted()) {
+			routing.response.setHeader(TOKEN_HEADER, String.valueOf(System.currentTimeMillis()));
+		}
+	}
+	
+}
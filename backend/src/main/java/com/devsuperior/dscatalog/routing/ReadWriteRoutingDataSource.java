@@ -0,0 +1,84 @@
+package com.devsuperior.dscatalog.routing;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+//escolhe o banco de cada conexão: transações @Transactional(readOnly = true) vão para as réplicas (em rodízio),
+//o resto (escritas e acessos fora de transação) para o primário. a escolha é feita quando a conexão é de fato
+//aberta, então precisa ficar atrás de um LazyConnectionDataSourceProxy: o JpaTransactionManager pega a conexão
+//antes de marcar a transação como somente leitura.
+//uma transação de escrita no primário devolve, após o commit, um token de consistência na resposta (DataSourceRouting)
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+	
+	static final String PRIMARY = "primary";
+	
+	private static final Object WRITE_MARK = new Object();
+	
+	private final List<String> replicas = new ArrayList<>();
+	private final AtomicInteger next = new AtomicInteger();
+	private final Map<String, Counter> connections = new HashMap<>();
+	
+	
+	public ReadWriteRoutingDataSource(DataSource primary, List<DataSource> replicaDataSources, MeterRegistry registry) {
+		Map<Object, Object> targets = new HashMap<>();
+		targets.put(PRIMARY, primary);
+		for (int i = 0; i < replicaDataSources.size(); i++) {
+			String key = "replica-" + (i + 1);
+			targets.put(key, replicaDataSources.get(i));
+			replicas.add(key);
+		}
+		setTargetDataSources(targets);
+		setDefaultTargetDataSource(primary);
+		targets.keySet().forEach(x -> connections.put((String) x, Counter.builder("dscatalog.datasource.connections")
+				.description("connections opened per routed database").tag("target", (String) x).register(registry)));
+		afterPropertiesSet();
+	}
+	
+	@Override
+	protected Object determineCurrentLookupKey() {
+		String key;
+		if (!replicas.isEmpty() && TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+				&& !DataSourceRouting.isPrimaryForced()) {
+			key = replicas.get(Math.floorMod(next.getAndIncrement(), replicas.size()));
+		} else {
+			key = PRIMARY;
+			markWrite();
+		}
+		connections.get(key).increment();
+		return key;
+	}
+	
+	//uma vez por transação de escrita: o token sai depois do commit
+	private static void markWrite() {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()
+				|| TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+				|| TransactionSynchronizationManager.hasResource(WRITE_MARK)) {
+			return;
+		}
+		TransactionSynchronizationManager.bindResource(WRITE_MARK, Boolean.TRUE);
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				DataSourceRouting.writeCommitted();
+			}
+			
+			@Override
+			public void afterCompletion(int status) {
+				TransactionSynchronizationManager.unbindResourceIfPossible(WRITE_MARK);
+			}
+		});
+	}
+	
+}
@@ -0,0 +1,47 @@
+package com.devsuperior.dscatalog.routing;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+//leitura das próprias escritas: o cliente reenvia o X-Consistency-Token recebido na última escrita e, enquanto ele
+//for mais novo que o atraso máximo das réplicas (dscatalog.routing.max-replica-lag), as leituras vão ao primário
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+	
+	private final long maxReplicaLagMillis;
+	
+	
+	public ReadYourWritesFilter(long maxReplicaLagMillis) {
+		this.maxReplicaLagMillis = maxReplicaLagMillis;
+	}
+	
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		DataSourceRouting.begin(response, isRecent(request.getHeader(DataSourceRouting.TOKEN_HEADER)));
+		try {
+			filterChain.doFilter(request, response);
+		} finally {
+			DataSourceRouting.end();
+		}
+	}
+	
+	private boolean isRecent(String token) {
+		if (token == null || token.isBlank()) {
+			return false;
+		}
+		try {
+			//um token do futuro não foi emitido por uma escrita e manteria as leituras no primário indefinidamente
+			long age = System.currentTimeMillis() - Long.parseLong(token.trim());
+			return age >= 0 && age < maxReplicaLagMillis;
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+	
+}
@@ -0,0 +1,44 @@
+package com.devsuperior.dscatalog.runners;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.devsuperior.dscatalog.services.CatalogGeneratorService;
+
+//"--dscatalog.generator.products=100000" gera um catálogo sintético na subida da aplicação (ou o profile
+//loadtest, que já traz um tamanho padrão). os demais parâmetros ficam em dscatalog.generator.*
+@Component
+@ConditionalOnProperty(name = CatalogGeneratorRunner.PRODUCTS_PROPERTY)
+public class CatalogGeneratorRunner implements ApplicationRunner {
+	
+	public static final String PRODUCTS_PROPERTY = "dscatalog.generator.products";
+	
+	@Autowired
+	private CatalogGeneratorService catalogGeneratorService;
+	
+	@Value("${" + PRODUCTS_PROPERTY + "}")
+	private long products;
+	
+	@Value("${dscatalog.generator.categories:50}")
+	private int categories;
+	
+	@Value("${dscatalog.generator.skew:1.0}")
+	private double skew;
+	
+	@Value("${dscatalog.generator.seed:42}")
+	private long seed;
+	
+	@Value("${dscatalog.generator.chunk-size:1000}")
+	private int chunkSize;
+	
+	
+	@Override
+	public void run(ApplicationArguments args) throws Exception {
+		catalogGeneratorService.generate(products, categories, skew, seed, chunkSize);
+	}
+	
+}
@@ -0,0 +1,55 @@
+package com.devsuperior.dscatalog.runners;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.devsuperior.dscatalog.dto.ImportResultDto;
+import com.devsuperior.dscatalog.services.ProductImportService;
+import com.devsuperior.dscatalog.services.util.FileFormat;
+
+//modo de linha de comando: "--dscatalog.import.file=produtos.csv" importa o arquivo na subida da aplicação.
+//o formato vem da extensão (.csv ou .ndjson), ou de "--dscatalog.import.format".
+@Component
+@ConditionalOnProperty(name = ProductImportRunner.FILE_PROPERTY)
+public class ProductImportRunner implements ApplicationRunner {
+	
+	public static final String FILE_PROPERTY = "dscatalog.import.file";
+	
+	private static final Logger log = LoggerFactory.getLogger(ProductImportRunner.class);
+	
+	@Autowired
+	private ProductImportService productImportService;
+	
+	@Value("${" + FILE_PROPERTY + "}")
+	private String file;
+	
+	@Value("${dscatalog.import.format:}")
+	private String format;
+	
+	
+	@Override
+	public void run(ApplicationArguments args) throws Exception {
+		Path path = Path.of(file);
+		FileFormat fileFormat = format.isBlank() ? FileFormat.fromFileName(path.getFileName().toString()) : FileFormat.from(format);
+		log.info("Importing products from {} as {}", path, fileFormat);
+		
+		ImportResultDto result;
+		try (InputStream inputStream = Files.newInputStream(path)) {
+			result = productImportService.importAll(inputStream, fileFormat);
+		}
+		log.info("Import finished: read={}, created={}, rejected={}, failed={}, chunks={}",
+				result.getRead(), result.getCreated(), result.getRejected(), result.getFailed(), result.getChunks());
+		result.getErrors().forEach(x -> log.warn(x));
+	}
+
+}
@@ -0,0 +1,171 @@
+package com.devsuperior.dscatalog.services;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.devsuperior.dscatalog.entities.Category;
+import com.devsuperior.dscatalog.entities.Product;
+import com.devsuperior.dscatalog.repositories.CategoryRepository;
+import com.devsuperior.dscatalog.repositories.ProductBatchRepository;
+import com.devsuperior.dscatalog.services.cache.CategoryCache;
+import com.devsuperior.dscatalog.services.cache.ListingCountCache;
+import com.devsuperior.dscatalog.services.util.ProductsChanged;
+
+//catálogo sintético para testes de carga e de escala: N produtos e M categorias gravados em lotes JDBC,
+//um bloco por transação. a distribuição imita um catálogo real: poucas categorias concentram a maior parte
+//dos produtos (Zipf com expoente skew) e a maioria dos produtos tem uma ou duas categorias.
+//com a mesma semente os dados gerados são sempre os mesmos.
+@Service
+public class CatalogGeneratorService {
+	
+	private static final Logger log = LoggerFactory.getLogger(CatalogGeneratorService.class);
+	
+	//probabilidade acumulada de um produto ter 1, 2, 3, 4 ou 5 categorias
+	private static final double[] FAN_OUT = {0.60, 0.85, 0.95, 0.99, 1.00};
+	
+	private static final String[] ADJECTIVES = {"Gamer", "Pro", "Ultra", "Slim", "Max", "Mini", "Plus", "Lite", "Prime",
+			"Turbo", "Smart", "Classic", "Neo", "Air", "Studio"};
+	private static final String[] NOUNS = {"Notebook", "Monitor", "Teclado", "Mouse", "Headset", "Cadeira", "Livro",
+			"Smartphone", "Tablet", "Câmera", "Impressora", "Roteador", "Console", "Caixa de Som", "Smartwatch",
+			"Processador", "Placa de Vídeo", "SSD", "Webcam", "Microfone"};
+	private static final String DESCRIPTION = "Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod "
+			+ "tempor incididunt ut labore et dolore magna aliqua. Ut enim ad minim veniam, quis nostrud exercitation.";
+	private static final Instant FIRST_DATE = Instant.parse("2018-01-01T00:00:00Z");
+	private static final long DATE_RANGE_SECONDS = 5L * 365 * 24 * 3600;
+	
+	@Autowired
+	private ProductBatchRepository productBatchRepository;
+	
+	@Autowired
+	private CategoryRepository categoryRepository;
+	
+	@Autowired
+	private CategoryCache categoryCache;
+	
+	@Autowired
+	private ListingCountCache countCache;
+	
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+	
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+	
+	
+	//devolve quantos produtos foram gravados. os índices em memória são carregados depois (ApplicationReadyEvent),
+	//por isso a geração roda num ApplicationRunner, antes da aplicação ficar pronta.
+	public long generate(long products, int categories, double skew, long seed, int chunkSize) {
+		if (products < 0 || categories < 1 || skew < 0 || chunkSize < 1) {
+			throw new IllegalArgumentException("Invalid generator settings: products=" + products + ", categories="
+					+ categories + ", skew=" + skew + ", chunkSize=" + chunkSize);
+		}
+		long start = System.nanoTime();
+		Random random = new Random(seed);
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		
+		long[] categoryIds = transaction.execute(status -> createCategories(categories));
+		double[] popularity = zipf(categoryIds.length, skew);
+		//a ordem de popularidade não segue a ordem dos ids
+		shuffle(categoryIds, random);
+		
+		long created = 0;
+		List<Product> chunk = new ArrayList<>(chunkSize);
+		for (long i = 1; i <= products; i++) {
+			chunk.add(product(i, random, categoryIds, popularity));
+			if (chunk.size() == chunkSize || i == products) {
+				transaction.executeWithoutResult(status -> {
+					productBatchRepository.insertAll(chunk);
+					eventPublisher.publishEvent(ProductsChanged.saved(chunk));
+				});
+				created += chunk.size();
+				chunk.clear();
+				if (created % (chunkSize * 100L) == 0) {
+					log.info("Generated {} of {} products", created, products);
+				}
+			}
+		}
+		categoryCache.invalidate();
+		countCache.invalidate(ListingCountCache.CATEGORIES);
+		log.info("Catalog generated: {} products over {} categories in {} ms", created, categoryIds.length,
+				(System.nanoTime() - start) / 1_000_000);
+		return created;
+	}
+	
+	//reaproveita as categorias geradas em uma execução anterior, pelo nome
+	private long[] createCategories(int count) {
+		List<String> names = new ArrayList<>(count);
+		for (int i = 1; i <= count; i++) {
+			names.add(String.format("Categoria %04d", i));
+		}
+		Map<String, Category> existing = categoryRepository.findByNameIn(names).stream()
+				.collect(Collectors.toMap(x -> x.getName(), x -> x));
+		List<Category> missing = names.stream().filter(x -> !existing.containsKey(x)).map(x -> new Category(null, x))
+				.collect(Collectors.toList());
+		categoryRepository.saveAll(missing).forEach(x -> existing.put(x.getName(), x));
+		return names.stream().mapToLong(x -> existing.get(x).getId()).toArray();
+	}
+	
+	private Product product(long index, Random random, long[] categoryIds, double[] popularity) {
+		String name = NOUNS[random.nextInt(NOUNS.length)] + " " + ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " " + index;
+		//preços log-normais: muitos produtos baratos e uma cauda de produtos caros
+		double price = Math.round(Math.exp(5.5 + random.nextGaussian()) * 100.0) / 100.0;
+		Instant date = FIRST_DATE.plusSeconds((long) (random.nextDouble() * DATE_RANGE_SECONDS));
+		Product product = new Product(null, name, DESCRIPTION, price,
+				"https://raw.githubusercontent.com/devsuperior/dscatalog-resources/master/backend/img/" + (index % 25 + 1)
+						+ "-big.jpg", date);
+		
+		int fanOut = Math.min(categoryIds.length, pick(FAN_OUT, random.nextDouble()) + 1);
+		Set<Long> chosen = new LinkedHashSet<>();
+		while (chosen.size() < fanOut) {
+			chosen.add(categoryIds[pick(popularity, random.nextDouble())]);
+		}
+		chosen.forEach(x -> product.getCategories().add(new Category(x, null)));
+		return product;
+	}
+	
+	//distribuição acumulada de Zipf: a categoria de posição k tem peso 1 / k^skew (skew = 0 é uniforme)
+	private static double[] zipf(int size, double skew) {
+		double[] cumulative = new double[size];
+		double total = 0.0;
+		for (int k = 0; k < size; k++) {
+			total += 1.0 / Math.pow(k + 1, skew);
+			cumulative[k] = total;
+		}
+		for (int k = 0; k < size; k++) {
+			cumulative[k] /= total;
+		}
+		return cumulative;
+	}
+	
+	//posição sorteada numa distribuição acumulada
+	private static int pick(double[] cumulative, double value) {
+		int index = Arrays.binarySearch(cumulative, value);
+		index = index >= 0 ? index : -index - 1;
+		return Math.min(index, cumulative.length - 1);
+	}
+	
+	private static void shuffle(long[] values, Random random) {
+		for (int i = values.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			long x = values[i];
+			values[i] = values[j];
+			values[j] = x;
+		}
+	}
+	
+}
@@ -1,5 +1,7 @@
 package com.devsuperior.dscatalog.services;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 import javax.persistence.EntityNotFoundException;
@@ -8,15 +10,30 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort.Direction;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.devsuperior.dscatalog.dto.CacheStatsDto;
 import com.devsuperior.dscatalog.dto.CategoryDto;
+import com.devsuperior.dscatalog.dto.CursorPageDto;
+import com.devsuperior.dscatalog.dto.PageDto;
+import com.devsuperior.dscatalog.dto.SliceDto;
+import com.devsuperior.dscatalog.dto.SuggestionDto.Type;
 import com.devsuperior.dscatalog.entities.Category;
 import com.devsuperior.dscatalog.repositories.CategoryRepository;
+import com.devsuperior.dscatalog.services.cache.CategoryCache;
+import com.devsuperior.dscatalog.services.cache.ListingCountCache;
+import com.devsuperior.dscatalog.services.cache.ListingCountCache.CountResult;
+import com.devsuperior.dscatalog.services.exceptions.ServiceBadRequestException;
 import com.devsuperior.dscatalog.services.exceptions.ServiceDataBaseException;
 import com.devsuperior.dscatalog.services.exceptions.ServiceNotFoundException;
+import com.devsuperior.dscatalog.services.search.SuggestIndex;
+import com.devsuperior.dscatalog.services.util.KeysetCursor;
+import com.devsuperior.dscatalog.services.util.ResourceVersion;
 
 @Service
 public class CategoryService {
@@ -31,6 +48,15 @@ public class CategoryService {
 	@Autowired
 	private CategoryRepository categoryRepository;
 	
+	@Autowired
+	private ListingCountCache countCache;
+	
+	@Autowired
+	private CategoryCache categoryCache;
+	
+	@Autowired
+	private SuggestIndex suggestIndex;
+	
 //	@Transactional(readOnly = true)
 //	public Page<CategoryDto> findAllPaged(PageRequest pageRequest) {
 //		Page<Category> categoriesDto = categoryRepository.findAll(pageRequest);
@@ -39,15 +65,84 @@ public class CategoryService {
 	
 	@Transactional(readOnly = true)
 	public Page<CategoryDto> findAllPaged(Pageable pageable) {
-		Page<Category> categoriesDto = categoryRepository.findAll(pageable);
-		return categoriesDto.map(x -> new CategoryDto(x));
+		return findAllPaged(pageable, false);
+	}
+	
+	//ordenações por id/name são servidas pelo CategoryCache; as demais vão ao banco, com o total vindo do
+	//cache de contagens (com approximateCount um total recém-invalidado ainda pode ser servido)
+	@Transactional(readOnly = true)
+	public Page<CategoryDto> findAllPaged(Pageable pageable, boolean approximateCount) {
+		Optional<Page<CategoryDto>> cached = categoryCache.findAllPaged(pageable);
+		if (cached.isPresent()) {
+			return cached.get();
+		}
+		Slice<Category> categories = categoryRepository.findAllSliced(pageable);
+		CountResult total = countCache.count(ListingCountCache.CATEGORIES, "", pageable, categories, approximateCount,
+				() -> categoryRepository.count());
+		return new PageDto<>(categories.map(x -> new CategoryDto(x)).getContent(), pageable, total.getCount(), total.isApproximate());
+	}
+	
+	@Transactional(readOnly = true)
+	public SliceDto<CategoryDto> findAllSliced(Pageable pageable) {
+		Slice<Category> categories = categoryRepository.findAllSliced(pageable);
+		return new SliceDto<>(categories.map(x -> new CategoryDto(x)));
+	}
+	
+	@Transactional(readOnly = true)
+	public CursorPageDto<CategoryDto> findAllSeek(String after, Integer size, Direction direction) {
+		if (size == null || size < 1 || size > KeysetCursor.MAX_SIZE) {
+			throw new ServiceBadRequestException("Page size must be between 1 and " + KeysetCursor.MAX_SIZE + "!");
+		}
+		Pageable limit = PageRequest.of(0, size);
+		Slice<Category> slice;
+		if (after == null || after.isBlank()) {
+			slice = direction.isAscending()
+					? categoryRepository.seekFirstByNameAsc(limit)
+					: categoryRepository.seekFirstByNameDesc(limit);
+		} else {
+			//a direção vem do próprio cursor, para que todas as páginas sigam a mesma ordenação
+			KeysetCursor cursor = KeysetCursor.decode(after);
+			slice = cursor.getDirection().isAscending()
+					? categoryRepository.seekAfterByNameAsc(cursor.getName(), cursor.getId(), limit)
+					: categoryRepository.seekAfterByNameDesc(cursor.getName(), cursor.getId(), limit);
+			direction = cursor.getDirection();
+		}
+		
+		String nextCursor = null;
+		if (slice.hasNext()) {
+			Category last = slice.getContent().get(slice.getNumberOfElements() - 1);
+			nextCursor = new KeysetCursor(direction, last.getId(), last.getName()).encode();
+		}
+		return new CursorPageDto<>(slice.map(x -> new CategoryDto(x)).getContent(), size, nextCursor);
 	}
 	
 	@Transactional(readOnly = true)
 	public CategoryDto findById(Long id) {
+		Optional<CategoryDto> obj = categoryCache.find(id);
+		return obj.orElseThrow(() -> new ServiceNotFoundException("Entity Not Found!"));
+	}
+	
+	//validadores do GET condicional, tirados do CategoryCache (o banco só é consultado num miss)
+	@Transactional(readOnly = true)
+	public ResourceVersion findVersionById(Long id) {
+		Optional<ResourceVersion> cached = categoryCache.version(id);
+		if (cached.isPresent()) {
+			return cached.get();
+		}
 		Optional<Category> obj = categoryRepository.findById(id);
 		Category category = obj.orElseThrow(() -> new ServiceNotFoundException("Entity Not Found!"));
-		return new CategoryDto(category);
+		Instant lastModified = category.getUpdatedAt() != null ? category.getUpdatedAt() : category.getCreatedAt();
+		return ResourceVersion.of(lastModified, category.getId(), category.getName());
+	}
+	
+	//ETag das listagens: impressão digital da tabela inteira + parâmetros da requisição
+	public ResourceVersion findListVersion(String query) {
+		ResourceVersion table = categoryCache.tableVersion();
+		return new ResourceVersion(ResourceVersion.of(null, table.getETag(), query).getETag(), null);
+	}
+	
+	public CacheStatsDto getCacheStats() {
+		return categoryCache.getStats();
 	}
 	
 	@Transactional
@@ -55,6 +150,9 @@ public class CategoryService {
 		Category category = new Category();
 		category.setName(categoryDto.getName());
 		category = categoryRepository.save(category);
+		countCache.invalidate(ListingCountCache.CATEGORIES);
+		categoryCache.invalidate();
+		suggestIndex.put(Type.CATEGORY, category.getId(), category.getName());
 		return new CategoryDto(category);	
 	}
 
@@ -64,6 +162,8 @@ public class CategoryService {
 			Category newCategory = categoryRepository.getById(id); //cria apenas uma referencia da Entidade
 			newCategory.setName(categoryDto.getName());
 			newCategory = categoryRepository.save(newCategory);	
+			categoryCache.invalidate();
+			suggestIndex.put(Type.CATEGORY, newCategory.getId(), newCategory.getName());
 			return new CategoryDto(newCategory);
 		} catch (EntityNotFoundException e) {
 			throw new ServiceNotFoundException("ID ["+ id +"] Not Found!");
@@ -73,6 +173,10 @@ public class CategoryService {
 	public void delete(Long id) {
 		try {
 			categoryRepository.deleteById(id);
+			countCache.invalidate(ListingCountCache.CATEGORIES);
+			countCache.invalidate(ListingCountCache.PRODUCTS);
+			categoryCache.invalidate();
+			suggestIndex.remove(Type.CATEGORY, List.of(id));
 		} catch (EmptyResultDataAccessException e) {
 			throw new ServiceNotFoundException("ID ["+ id +"] Not Found!");
 		} catch (DataIntegrityViolationException e) {
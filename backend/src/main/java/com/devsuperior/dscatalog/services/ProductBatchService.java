@@ -0,0 +1,119 @@
+package com.devsuperior.dscatalog.services;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.devsuperior.dscatalog.dto.BatchItemResultDto;
+import com.devsuperior.dscatalog.dto.BatchItemResultDto.Status;
+import com.devsuperior.dscatalog.dto.BatchResultDto;
+import com.devsuperior.dscatalog.dto.CategoryDto;
+import com.devsuperior.dscatalog.dto.ProductDto;
+import com.devsuperior.dscatalog.entities.Category;
+import com.devsuperior.dscatalog.entities.Product;
+import com.devsuperior.dscatalog.repositories.ProductBatchRepository;
+import com.devsuperior.dscatalog.services.cache.CategoryCache;
+import com.devsuperior.dscatalog.services.util.ProductsChanged;
+
+//carga de produtos em lote: valida cada item, grava em blocos de chunk-size, um bloco por transação,
+//e devolve o resultado de cada item (CREATED, REJECTED na validação ou FAILED se o bloco falhou no banco).
+@Service
+public class ProductBatchService {
+	
+	@Autowired
+	private ProductBatchRepository productBatchRepository;
+	
+	@Autowired
+	private CategoryCache categoryCache;
+	
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+	
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+	
+	@Value("${dscatalog.batch.chunk-size:500}")
+	private int chunkSize;
+	
+	
+	public BatchResultDto insertAll(List<ProductDto> productsDto) {
+		BatchResultDto result = new BatchResultDto();
+		List<Product> chunk = new ArrayList<>(chunkSize);
+		List<Integer> chunkIndexes = new ArrayList<>(chunkSize);
+		
+		for (int i = 0; i < productsDto.size(); i++) {
+			ProductDto productDto = productsDto.get(i);
+			String error = validate(productDto);
+			if (error != null) {
+				result.add(new BatchItemResultDto(i, Status.REJECTED, null, error));
+				continue;
+			}
+			chunk.add(productDtoToProduct(productDto));
+			chunkIndexes.add(i);
+			if (chunk.size() == chunkSize) {
+				insertChunk(chunk, chunkIndexes, result);
+			}
+		}
+		insertChunk(chunk, chunkIndexes, result);
+		return result;
+	}
+	
+	private void insertChunk(List<Product> chunk, List<Integer> chunkIndexes, BatchResultDto result) {
+		if (chunk.isEmpty()) {
+			return;
+		}
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		try {
+			transaction.executeWithoutResult(status -> {
+				productBatchRepository.insertAll(chunk);
+				//por bloco: um bloco com commit já aparece nas listagens e nos índices mesmo que um bloco seguinte
+				//falhe, inclusive com uma exceção que não é do banco e interrompe o lote
+				eventPublisher.publishEvent(ProductsChanged.saved(chunk));
+			});
+			for (int i = 0; i < chunk.size(); i++) {
+				result.add(new BatchItemResultDto(chunkIndexes.get(i), Status.CREATED, chunk.get(i).getId(), null));
+			}
+		} catch (DataAccessException e) {
+			for (Integer index : chunkIndexes) {
+				result.add(new BatchItemResultDto(index, Status.FAILED, null, "DataBase Error!"));
+			}
+		}
+		chunk.clear();
+		chunkIndexes.clear();
+	}
+	
+	private String validate(ProductDto productDto) {
+		if (productDto == null) {
+			return "Product is required!";
+		}
+		if (productDto.getName() == null || productDto.getName().isBlank()) {
+			return "Name is required!";
+		}
+		if (productDto.getDate() == null) {
+			return "Date is required!";
+		}
+		for (CategoryDto catDto : productDto.getCategories()) {
+			if (catDto.getId() == null || !categoryCache.contains(catDto.getId())) {
+				return "Category ID ["+ catDto.getId() +"] Not Found!";
+			}
+		}
+		return null;
+	}
+	
+	private Product productDtoToProduct(ProductDto productDto) {
+		Product product = new Product(null, productDto.getName(), productDto.getDescription(), productDto.getPrice(),
+				productDto.getImgUrl(), productDto.getDate());
+		for (CategoryDto catDto : productDto.getCategories()) {
+			product.getCategories().add(new Category(catDto.getId(), catDto.getName()));
+		}
+		return product;
+	}
+	
+}
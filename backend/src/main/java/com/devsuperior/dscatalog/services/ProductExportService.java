@@ -0,0 +1,148 @@
+package com.devsuperior.dscatalog.services;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.devsuperior.dscatalog.dto.CategoryDto;
+import com.devsuperior.dscatalog.dto.ProductDto;
+import com.devsuperior.dscatalog.entities.Product;
+import com.devsuperior.dscatalog.repositories.ProductRepository;
+import com.devsuperior.dscatalog.repositories.projections.ProductCategoryLinkProjection;
+import com.devsuperior.dscatalog.services.cache.CategoryCache;
+import com.devsuperior.dscatalog.services.util.FileFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+//exportação do catálogo inteiro com memória constante: lê um Stream<Product> com fetch size,
+//anexa as categorias bloco a bloco (uma consulta por bloco + CategoryCache), escreve direto na saída
+//e limpa o contexto de persistência a cada bloco para que as entidades lidas não se acumulem.
+@Service
+public class ProductExportService {
+	
+	private static final int CHUNK_SIZE = 500;
+	private static final String CSV_HEADER = "id,name,description,price,imgUrl,date,categories";
+	
+	@Autowired
+	private ProductRepository productRepository;
+	
+	@Autowired
+	private CategoryCache categoryCache;
+	
+	@Autowired
+	private ObjectMapper objectMapper;
+	
+	@PersistenceContext
+	private EntityManager entityManager;
+	
+	
+	//devolve o número de produtos escritos; a saída não é fechada aqui
+	@Transactional(readOnly = true)
+	public long export(FileFormat format, OutputStream outputStream) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+		if (format == FileFormat.CSV) {
+			writer.write(CSV_HEADER);
+			writer.write('\n');
+		}
+	
+		long count = 0;
+		List<Product> chunk = new ArrayList<>(CHUNK_SIZE);
+		//o CacheMode da consulta só vale enquanto ela executa; as linhas do Stream são montadas depois, com o modo
+		//da sessão, que por isso também ignora o cache de segundo nível até o fim da exportação
+		Session session = entityManager.unwrap(Session.class);
+		CacheMode previousCacheMode = session.getCacheMode();
+		session.setCacheMode(CacheMode.IGNORE);
+		try (Stream<Product> products = productRepository.streamAll()) {
+			Iterator<Product> iterator = products.iterator();
+			while (iterator.hasNext()) {
+				chunk.add(iterator.next());
+				if (chunk.size() == CHUNK_SIZE) {
+					count += writeChunk(chunk, format, writer);
+				}
+			}
+			count += writeChunk(chunk, format, writer);
+		} finally {
+			session.setCacheMode(previousCacheMode);
+		}
+		writer.flush();
+		return count;
+	}
+	
+	private int writeChunk(List<Product> chunk, FileFormat format, Writer writer) throws IOException {
+		if (chunk.isEmpty()) {
+			return 0;
+		}
+		List<Long> ids = chunk.stream().map(x -> x.getId()).collect(Collectors.toList());
+		Map<Long, List<CategoryDto>> categories = new HashMap<>();
+		for (ProductCategoryLinkProjection link : productRepository.findCategoryLinksByProductIdIn(ids)) {
+			categoryCache.find(link.getCategoryId()).ifPresent(
+					cat -> categories.computeIfAbsent(link.getProductId(), x -> new ArrayList<>()).add(cat));
+		}
+	
+		for (Product product : chunk) {
+			ProductDto productDto = new ProductDto(product);
+			productDto.getCategories().addAll(categories.getOrDefault(product.getId(), List.of()));
+			if (format == FileFormat.CSV) {
+				writeCsv(productDto, writer);
+			} else {
+				writer.write(objectMapper.writeValueAsString(productDto));
+				writer.write('\n');
+			}
+		}
+		int written = chunk.size();
+		chunk.clear();
+		entityManager.clear();
+		writer.flush();
+		return written;
+	}
+	
+	private static void writeCsv(ProductDto productDto, Writer writer) throws IOException {
+		String categories = productDto.getCategories().stream()
+				.map(x -> x.getName())
+				.collect(Collectors.joining("|"));
+		writer.write(String.valueOf(productDto.getId()));
+		writer.write(',');
+		writer.write(csv(productDto.getName()));
+		writer.write(',');
+		writer.write(csv(productDto.getDescription()));
+		writer.write(',');
+		writer.write(productDto.getPrice() == null ? "" : String.valueOf(productDto.getPrice()));
+		writer.write(',');
+		writer.write(csv(productDto.getImgUrl()));
+		writer.write(',');
+		writer.write(productDto.getDate() == null ? "" : productDto.getDate().toString());
+		writer.write(',');
+		writer.write(csv(categories));
+		writer.write('\n');
+	}
+	
+	//aspas somente quando o valor contém separador, aspas ou quebra de linha (RFC 4180)
+	private static String csv(String value) {
+		if (value == null) {
+			return "";
+		}
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+			return value;
+		}
+		return "\"" + value.replace("\"", "\"\"") + "\"";
+	}
+	
+}
@@ -0,0 +1,315 @@
+package com.devsuperior.dscatalog.services;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.devsuperior.dscatalog.dto.ImportResultDto;
+import com.devsuperior.dscatalog.entities.Category;
+import com.devsuperior.dscatalog.entities.Product;
+import com.devsuperior.dscatalog.repositories.ProductBatchRepository;
+import com.devsuperior.dscatalog.services.cache.CategoryCache;
+import com.devsuperior.dscatalog.services.exceptions.ServiceBadRequestException;
+import com.devsuperior.dscatalog.services.util.CsvReader;
+import com.devsuperior.dscatalog.services.util.FileFormat;
+import com.devsuperior.dscatalog.services.util.ProductsChanged;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+//importação de arquivos grandes (CSV com cabeçalho ou NDJSON, no mesmo layout da exportação) com memória limitada.
+//o parser lê a entrada aos poucos numa thread própria e entrega blocos de chunk-size linhas à escrita por uma fila
+//limitada: se o banco não acompanha, o parser fica bloqueado (backpressure) em vez de acumular linhas.
+//a escrita resolve os nomes de categoria uma vez por bloco e grava cada bloco numa transação com JDBC batch.
+@Service
+public class ProductImportService {
+	
+	private static final List<ImportRow> END_OF_INPUT = new ArrayList<>();
+	
+	@Autowired
+	private ProductBatchRepository productBatchRepository;
+	
+	@Autowired
+	private CategoryCache categoryCache;
+	
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+	
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+	
+	@Autowired
+	private ObjectMapper objectMapper;
+	
+	@Value("${dscatalog.import.chunk-size:1000}")
+	private int chunkSize;
+	
+	@Value("${dscatalog.import.queue-capacity:4}")
+	private int queueCapacity;
+	
+	
+	public ImportResultDto importAll(InputStream inputStream, FileFormat format) throws IOException {
+		ImportResultDto result = new ImportResultDto();
+		BlockingQueue<List<ImportRow>> queue = new ArrayBlockingQueue<>(queueCapacity);
+		ExecutorService parser = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "product-import-parser"));
+		try {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+			Future<Void> parsing = parser.submit(() -> parseAll(reader, format, queue, result));
+			//a gravação fica na thread chamadora, que mantém o contexto transacional de quem chamou
+			writeAll(queue, parsing, result);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Import interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		} finally {
+			parser.shutdownNow();
+		}
+		return result;
+	}
+	
+	//o fim da entrada é sempre sinalizado, mesmo quando o parser falha, para a escrita não ficar esperando
+	private Void parseAll(BufferedReader reader, FileFormat format, BlockingQueue<List<ImportRow>> queue,
+			ImportResultDto result) throws IOException, InterruptedException {
+		try {
+			if (format == FileFormat.CSV) {
+				parseCsv(reader, queue, result);
+			} else {
+				parseNdjson(reader, queue, result);
+			}
+		} finally {
+			queue.put(END_OF_INPUT);
+		}
+		return null;
+	}
+	
+	private void parseCsv(BufferedReader reader, BlockingQueue<List<ImportRow>> queue, ImportResultDto result)
+			throws IOException, InterruptedException {
+		CsvReader csv = new CsvReader(reader);
+		List<String> header = csv.readRecord();
+		if (header == null || !header.contains("name")) {
+			throw new ServiceBadRequestException("CSV header with a name column is required!");
+		}
+		Map<String, Integer> columns = new HashMap<>();
+		for (int i = 0; i < header.size(); i++) {
+			columns.put(header.get(i).trim(), i);
+		}
+		
+		List<ImportRow> chunk = new ArrayList<>(chunkSize);
+		List<String> record;
+		while ((record = csv.readRecord()) != null) {
+			ImportRow row = new ImportRow(csv.getRecordLine());
+			row.name = column(record, columns, "name");
+			row.description = column(record, columns, "description");
+			row.imgUrl = column(record, columns, "imgUrl");
+			String price = column(record, columns, "price");
+			String date = column(record, columns, "date");
+			String categories = column(record, columns, "categories");
+			try {
+				row.price = price == null ? null : Double.valueOf(price);
+				row.date = date == null ? null : Instant.parse(date);
+			} catch (NumberFormatException | DateTimeParseException e) {
+				row.error = "Invalid price or date!";
+			}
+			if (categories != null) {
+				for (String name : categories.split("\\|")) {
+					if (!name.isBlank()) {
+						row.categoryNames.add(name.trim());
+					}
+				}
+			}
+			chunk = offer(chunk, row, queue, result);
+		}
+		flush(chunk, queue, result);
+	}
+	
+	private void parseNdjson(BufferedReader lines, BlockingQueue<List<ImportRow>> queue, ImportResultDto result)
+			throws IOException, InterruptedException {
+		List<ImportRow> chunk = new ArrayList<>(chunkSize);
+		String line;
+		long lineNumber = 0;
+		while ((line = lines.readLine()) != null) {
+			lineNumber++;
+			if (line.isBlank()) {
+				continue;
+			}
+			ImportRow row = new ImportRow(lineNumber);
+			try {
+				JsonNode node = objectMapper.readTree(line);
+				row.name = text(node, "name");
+				row.description = text(node, "description");
+				row.imgUrl = text(node, "imgUrl");
+				//asDouble() faria de "abc" um 0.0: preço que não é número JSON invalida a linha
+				JsonNode price = node.path("price");
+				row.price = price.isNumber() ? price.asDouble() : null;
+				String date = text(node, "date");
+				row.date = date == null ? null : Instant.parse(date);
+				if (!price.isNumber() && !price.isMissingNode() && !price.isNull()) {
+					row.error = "Invalid price or date!";
+				}
+				for (JsonNode category : node.path("categories")) {
+					//aceita {"id": 1}, {"name": "Livros"} ou apenas "Livros"
+					if (category.isTextual()) {
+						row.categoryNames.add(category.asText().trim());
+					} else if (category.hasNonNull("name")) {
+						row.categoryNames.add(category.get("name").asText().trim());
+					} else if (category.hasNonNull("id")) {
+						row.categoryIds.add(category.get("id").asLong());
+					}
+				}
+			} catch (JsonProcessingException e) {
+				row.error = "Invalid JSON!";
+			} catch (DateTimeParseException e) {
+				row.error = "Invalid price or date!";
+			}
+			chunk = offer(chunk, row, queue, result);
+		}
+		flush(chunk, queue, result);
+	}
+	
+	private List<ImportRow> offer(List<ImportRow> chunk, ImportRow row, BlockingQueue<List<ImportRow>> queue,
+			ImportResultDto result) throws InterruptedException {
+		chunk.add(row);
+		if (chunk.size() < chunkSize) {
+			return chunk;
+		}
+		flush(chunk, queue, result);
+		return new ArrayList<>(chunkSize);
+	}
+	
+	//put bloqueia enquanto a fila está cheia: é aqui que o parser espera pela gravação (backpressure)
+	private static void flush(List<ImportRow> chunk, BlockingQueue<List<ImportRow>> queue, ImportResultDto result)
+			throws InterruptedException {
+		if (!chunk.isEmpty()) {
+			result.addRead(chunk.size());
+			queue.put(chunk);
+		}
+	}
+	
+	private void writeAll(BlockingQueue<List<ImportRow>> queue, Future<Void> parsing, ImportResultDto result)
+			throws InterruptedException, ExecutionException {
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		List<ImportRow> chunk;
+		try {
+			while ((chunk = queue.take()) != END_OF_INPUT) {
+				writeChunk(chunk, transaction, result);
+			}
+		} catch (RuntimeException e) {
+			parsing.cancel(true);
+			throw e;
+		}
+		//propaga um erro de leitura (cabeçalho inválido, falha de I/O)
+		parsing.get();
+	}
+	
+	private void writeChunk(List<ImportRow> chunk, TransactionTemplate transaction, ImportResultDto result) {
+		//todos os nomes de categoria do bloco resolvidos de uma vez
+		Set<String> names = new HashSet<>();
+		chunk.forEach(x -> names.addAll(x.categoryNames));
+		Map<String, Long> categoryIds = names.isEmpty() ? Map.of() : categoryCache.findIdsByName(names);
+		
+		List<Product> products = new ArrayList<>(chunk.size());
+		for (ImportRow row : chunk) {
+			String error = row.error != null ? row.error : validate(row, categoryIds);
+			if (error != null) {
+				result.addRejected(row.line, error);
+				continue;
+			}
+			Product product = new Product(null, row.name, row.description, row.price, row.imgUrl, row.date);
+			row.categoryNames.forEach(x -> product.getCategories().add(new Category(categoryIds.get(x), x)));
+			row.categoryIds.forEach(x -> product.getCategories().add(new Category(x, null)));
+			products.add(product);
+		}
+		if (products.isEmpty()) {
+			return;
+		}
+		try {
+			transaction.executeWithoutResult(status -> {
+				productBatchRepository.insertAll(products);
+				eventPublisher.publishEvent(ProductsChanged.saved(products));
+			});
+			result.addCreated(products.size());
+		} catch (DataAccessException e) {
+			result.addFailed(products.size(), chunk.get(0).line, "DataBase Error!");
+		}
+	}
+	
+	private String validate(ImportRow row, Map<String, Long> categoryIds) {
+		if (row.name == null || row.name.isBlank()) {
+			return "Name is required!";
+		}
+		if (row.date == null) {
+			return "Date is required!";
+		}
+		for (String name : row.categoryNames) {
+			if (!categoryIds.containsKey(name)) {
+				return "Category ["+ name +"] Not Found!";
+			}
+		}
+		for (Long id : row.categoryIds) {
+			if (!categoryCache.contains(id)) {
+				return "Category ID ["+ id +"] Not Found!";
+			}
+		}
+		return null;
+	}
+	
+	private static String column(List<String> record, Map<String, Integer> columns, String name) {
+		Integer index = columns.get(name);
+		if (index == null || index >= record.size() || record.get(index).isEmpty()) {
+			return null;
+		}
+		return record.get(index);
+	}
+	
+	private static String text(JsonNode node, String field) {
+		return node.hasNonNull(field) ? node.get(field).asText() : null;
+	}
+	
+	//uma linha lida do arquivo; as categorias ainda estão por nome até o bloco ser gravado
+	private static class ImportRow {
+		
+		private final long line;
+		private String name;
+		private String description;
+		private Double price;
+		private String imgUrl;
+		private Instant date;
+		private final List<String> categoryNames = new ArrayList<>();
+		private final List<Long> categoryIds = new ArrayList<>();
+		private String error;
+		
+		private ImportRow(long line) {
+			this.line = line;
+		}
+	
+	}
+	
+}
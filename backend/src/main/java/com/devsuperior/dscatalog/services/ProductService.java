@@ -1,29 +1,65 @@
 package com.devsuperior.dscatalog.services;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
+import javax.persistence.EntityManagerFactory;
 import javax.persistence.EntityNotFoundException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort.Direction;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.devsuperior.dscatalog.dto.BulkResultDto;
 import com.devsuperior.dscatalog.dto.CategoryDto;
+import com.devsuperior.dscatalog.dto.CursorPageDto;
+import com.devsuperior.dscatalog.dto.FacetDto;
+import com.devsuperior.dscatalog.dto.PageDto;
+import com.devsuperior.dscatalog.dto.PriceUpdateDto;
 import com.devsuperior.dscatalog.dto.ProductDto;
+import com.devsuperior.dscatalog.dto.ProductSummaryDto;
+import com.devsuperior.dscatalog.dto.SliceDto;
+import com.devsuperior.dscatalog.dto.SuggestionDto;
 import com.devsuperior.dscatalog.entities.Category;
 import com.devsuperior.dscatalog.entities.Product;
 import com.devsuperior.dscatalog.repositories.CategoryRepository;
 import com.devsuperior.dscatalog.repositories.ProductRepository;
+import com.devsuperior.dscatalog.repositories.projections.CategoryCountProjection;
+import com.devsuperior.dscatalog.services.cache.CategoryCache;
+import com.devsuperior.dscatalog.services.cache.ListingCountCache;
+import com.devsuperior.dscatalog.services.cache.ListingCountCache.CountResult;
+import com.devsuperior.dscatalog.services.cache.ProductListVersion;
+import com.devsuperior.dscatalog.services.exceptions.ServiceBadRequestException;
 import com.devsuperior.dscatalog.services.exceptions.ServiceDataBaseException;
 import com.devsuperior.dscatalog.services.exceptions.ServiceNotFoundException;
+import com.devsuperior.dscatalog.services.search.ProductSearchIndex;
+import com.devsuperior.dscatalog.services.search.SuggestIndex;
+import com.devsuperior.dscatalog.services.util.KeysetCursor;
+import com.devsuperior.dscatalog.services.util.ProductFilter;
+import com.devsuperior.dscatalog.services.util.ProductsChanged;
+import com.devsuperior.dscatalog.services.util.ResourceVersion;
 
 @Service
 public class ProductService {
-	
+  
   /*//Injeção de Dependencia Manual via Construtor
 	private ProductRepository productRepository;
 	
@@ -31,12 +67,36 @@ public class ProductService {
 		this.productRepository = productRepository;
 	}*/
 	
+	private static final int BULK_CHUNK_SIZE = 1000;
+	
 	@Autowired
 	private ProductRepository productRepository;
 	
+	@Autowired
+	private ListingCountCache countCache;
+	
+	@Autowired
+	private CategoryCache categoryCache;
+	
+	@Autowired
+	private ProductListVersion listVersion;
+	
 	@Autowired
 	private CategoryRepository categoryRepository;
 	
+	@Autowired
+	private ProductSearchIndex searchIndex;
+	
+	@Autowired
+	private SuggestIndex suggestIndex;
+	
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+	
+	//toda escrita publica um ProductsChanged: os caches das listagens e os índices em memória se atualizam a partir dele
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+	
 //	@Transactional(readOnly = true)
 //	public Page<ProductDto> findAllPaged(PageRequest pageRequest) {
 //		Page<Product> productsDto = productRepository.findAll(pageRequest);
@@ -45,8 +105,163 @@ public class ProductService {
 	
 	@Transactional(readOnly = true)
 	public Page<ProductDto> findAllPaged(Pageable pageable) {
-		Page<Product> productsDto = productRepository.findAll(pageable);
-		return productsDto.map(x -> new ProductDto(x));
+		return findAllPaged(pageable, false, false);
+	}
+	
+	@Transactional(readOnly = true)
+	public Page<ProductDto> findAllPaged(Pageable pageable, boolean approximateCount, boolean includeCategories) {
+		return findAllPaged(List.of(), "", pageable, approximateCount, includeCategories);
+	}
+	
+	@Transactional(readOnly = true)
+	public Page<ProductDto> findAllPaged(List<Long> categoryIds, String name, Pageable pageable, boolean approximateCount,
+			boolean includeCategories) {
+		return findAllPaged(ProductFilter.of(categoryIds, name), pageable, approximateCount, includeCategories);
+	}
+	
+	//filtra por categorias (qualquer uma delas), parte do nome e faixas de preço/data; sem filtros lista a tabela inteira.
+	//o total vem do cache de contagens, por filtro; com approximateCount um total recém-invalidado ainda pode ser servido.
+	//com includeCategories as categorias da página inteira são carregadas em uma consulta extra.
+	@Transactional(readOnly = true)
+	public Page<ProductDto> findAllPaged(ProductFilter filter, Pageable pageable, boolean approximateCount,
+			boolean includeCategories) {
+		List<Long> categories = filter.getCategoryIds();
+		String term = filter.getNamePattern();
+		Slice<Product> products;
+		LongSupplier counter;
+		if (filter.hasRanges() || filter.hasCategorySets()) {
+			List<Long> categoryIds = orPlaceholder(categories);
+			List<Long> all = orPlaceholder(filter.getAllCategoryIds());
+			List<Long> excluded = orPlaceholder(filter.getExcludedCategoryIds());
+			int allCount = filter.getAllCategoryIds().size();
+			boolean noExcluded = filter.getExcludedCategoryIds().isEmpty();
+			products = productRepository.findByFilterSliced(!filter.hasCategories(), categoryIds, allCount, all, noExcluded,
+					excluded, term, filter.getMinPrice(), filter.getMaxPrice(), filter.getMinDate(), filter.getMaxDate(),
+					pageable);
+			counter = () -> productRepository.countByFilter(!filter.hasCategories(), categoryIds, allCount, all, noExcluded,
+					excluded, term, filter.getMinPrice(), filter.getMaxPrice(), filter.getMinDate(), filter.getMaxDate());
+		} else if (categories.isEmpty() && term.isEmpty()) {
+			products = productRepository.findAllSliced(pageable);
+			counter = () -> productRepository.count();
+		} else if (categories.isEmpty()) {
+			products = productRepository.findByNameSliced(term, pageable);
+			counter = () -> productRepository.countByName(term);
+		} else if (term.isEmpty()) {
+			products = productRepository.findByCategoriesSliced(categories, pageable);
+			counter = () -> productRepository.countByCategories(categories);
+		} else {
+			products = productRepository.findByCategoriesAndNameSliced(categories, term, pageable);
+			counter = () -> productRepository.countByCategoriesAndName(categories, term);
+		}
+		CountResult total = countCache.count(ListingCountCache.PRODUCTS, filter.key(), pageable, products, approximateCount, counter);
+		
+		List<ProductDto> content;
+		if (includeCategories && products.hasContent()) {
+			productRepository.findProductsWithCategories(products.getContent());
+			content = products.map(x -> new ProductDto(x, x.getCategories())).getContent();
+		} else {
+			content = products.map(x -> new ProductDto(x)).getContent();
+		}
+		return new PageDto<>(content, pageable, total.getCount(), total.isApproximate());
+	}
+	
+	@Transactional(readOnly = true)
+	public Page<ProductSummaryDto> findAllSummaries(Pageable pageable, boolean approximateCount) {
+		Slice<ProductSummaryDto> products = productRepository.findAllSummaries(pageable);
+		CountResult total = countCache.count(ListingCountCache.PRODUCTS, "", pageable, products, approximateCount,
+				() -> productRepository.count());
+		return new PageDto<>(products.getContent(), pageable, total.getCount(), total.isApproximate());
+	}
+	
+	@Transactional(readOnly = true)
+	public SliceDto<ProductDto> findAllSliced(Pageable pageable) {
+		Slice<Product> products = productRepository.findAllSliced(pageable);
+		return new SliceDto<>(products.map(x -> new ProductDto(x)));
+	}
+	
+	@Transactional(readOnly = true)
+	public CursorPageDto<ProductDto> findAllSeek(String after, Integer size, Direction direction) {
+		if (size == null || size < 1 || size > KeysetCursor.MAX_SIZE) {
+			throw new ServiceBadRequestException("Page size must be between 1 and " + KeysetCursor.MAX_SIZE + "!");
+		}
+		Pageable limit = PageRequest.of(0, size);
+		Slice<Product> slice;
+		if (after == null || after.isBlank()) {
+			slice = direction.isAscending()
+					? productRepository.seekFirstByNameAsc(limit)
+					: productRepository.seekFirstByNameDesc(limit);
+		} else {
+			//a direção vem do próprio cursor, para que todas as páginas sigam a mesma ordenação
+			KeysetCursor cursor = KeysetCursor.decode(after);
+			slice = cursor.getDirection().isAscending()
+					? productRepository.seekAfterByNameAsc(cursor.getName(), cursor.getId(), limit)
+					: productRepository.seekAfterByNameDesc(cursor.getName(), cursor.getId(), limit);
+			direction = cursor.getDirection();
+		}
+		
+		String nextCursor = null;
+		if (slice.hasNext()) {
+			Product last = slice.getContent().get(slice.getNumberOfElements() - 1);
+			nextCursor = new KeysetCursor(direction, last.getId(), last.getName()).encode();
+		}
+		return new CursorPageDto<>(slice.map(x -> new ProductDto(x)).getContent(), size, nextCursor);
+	}
+	
+	//busca textual servida pelo índice invertido em memória, sem consultar o banco
+	public Page<ProductSummaryDto> search(String query, Pageable pageable) {
+		if (query == null || query.isBlank()) {
+			throw new ServiceBadRequestException("Search term is required!");
+		}
+		return searchIndex.search(query, pageable);
+	}
+	
+	//facetas da listagem: o mesmo filtro de findAllPaged agregado por categoria em uma só consulta
+	@Transactional(readOnly = true)
+	public List<FacetDto> findFacets(ProductFilter filter) {
+		List<Long> categories = filter.getCategoryIds();
+		String term = filter.getNamePattern();
+		List<CategoryCountProjection> counts;
+		if (filter.hasRanges() || filter.hasCategorySets()) {
+			counts = productRepository.countPerCategoryByFilter(!filter.hasCategories(), orPlaceholder(categories),
+					filter.getAllCategoryIds().size(), orPlaceholder(filter.getAllCategoryIds()),
+					filter.getExcludedCategoryIds().isEmpty(), orPlaceholder(filter.getExcludedCategoryIds()), term,
+					filter.getMinPrice(), filter.getMaxPrice(), filter.getMinDate(), filter.getMaxDate());
+		} else if (categories.isEmpty() && term.isEmpty()) {
+			counts = productRepository.countPerCategory();
+		} else if (categories.isEmpty()) {
+			counts = productRepository.countPerCategoryByName(term);
+		} else if (term.isEmpty()) {
+			counts = productRepository.countPerCategoryByCategories(categories);
+		} else {
+			counts = productRepository.countPerCategoryByCategoriesAndName(categories, term);
+		}
+		Map<Long, Long> facets = new HashMap<>();
+		counts.forEach(x -> facets.merge(x.getCategoryId(), x.getProductCount(), Long::sum));
+		return categoryCache.facets(facets);
+	}
+	
+	//facetas da busca: os ids vêm do índice e são agregados em blocos (uma consulta até BULK_CHUNK_SIZE resultados)
+	@Transactional(readOnly = true)
+	public List<FacetDto> searchFacets(String query) {
+		if (query == null || query.isBlank()) {
+			throw new ServiceBadRequestException("Search term is required!");
+		}
+		List<Long> ids = searchIndex.findIds(query);
+		Map<Long, Long> facets = new HashMap<>();
+		for (int i = 0; i < ids.size(); i += BULK_CHUNK_SIZE) {
+			List<Long> chunk = ids.subList(i, Math.min(i + BULK_CHUNK_SIZE, ids.size()));
+			productRepository.countPerCategoryByProductIdIn(chunk)
+					.forEach(x -> facets.merge(x.getCategoryId(), x.getProductCount(), Long::sum));
+		}
+		return categoryCache.facets(facets);
+	}
+	
+	//autocompletar de nomes de produtos e categorias, servido pela trie em memória
+	public List<SuggestionDto> suggest(String prefix, int limit) {
+		if (limit < 1 || limit > suggestIndex.getTopK()) {
+			throw new ServiceBadRequestException("Invalid Limit!");
+		}
+		return suggestIndex.suggest(prefix == null ? "" : prefix, limit);
 	}
 	
 	@Transactional(readOnly = true)
@@ -56,48 +271,184 @@ public class ProductService {
 		return new ProductDto(product, product.getCategories());
 	}
 	
+	//GET condicional com um só carregamento do produto (em geral do cache de segundo nível): os validadores vêm do
+	//@Version e das datas da entidade + estado das categorias, e o ProductDto só é montado quando notModified
+	//recusa a versão que o cliente tem
+	@Transactional(readOnly = true)
+	public Optional<ProductDto> findByIdIfModified(Long id, Predicate<ResourceVersion> notModified) {
+		Optional<Product> obj = productRepository.findById(id);
+		Product product = obj.orElseThrow(() -> new ServiceNotFoundException("Entity Not Found!"));
+		ResourceVersion categories = categoryCache.tableVersion();
+		Instant lastModified = product.getUpdatedAt() != null ? product.getUpdatedAt() : product.getCreatedAt();
+		ResourceVersion version = ResourceVersion.of(ResourceVersion.latest(lastModified, categories.getLastModified()),
+				id, product.getVersion(), categories.getETag());
+		if (notModified.test(version)) {
+			return Optional.empty();
+		}
+		return Optional.of(new ProductDto(product, product.getCategories()));
+	}
+	
+	//ETag das listagens: versão em memória dos produtos + categorias + parâmetros, sem consultar o banco.
+	//sem Last-Modified, pois uma exclusão não altera a maior data de modificação. vazio quando a versão em memória
+	//está desligada (ProductListVersion)
+	public Optional<ResourceVersion> findListVersion(String query) {
+		return listVersion.tableVersion().map(products -> {
+			ResourceVersion categories = categoryCache.tableVersion();
+			String eTag = ResourceVersion.of(null, products.getETag(), categories.getETag(), query).getETag();
+			return new ResourceVersion(eTag, null);
+		});
+	}
+	
 	@Transactional
 	public ProductDto insert(ProductDto productDto) {
 		Product product = new Product();
 		productDtoToProduct(productDto, product);
 		product = productRepository.save(product);
+		eventPublisher.publishEvent(ProductsChanged.saved(product, true));
 		return new ProductDto(product);	
 	}
-
+	
 	@Transactional
 	public ProductDto update(Long id, ProductDto productDto) {
 		try {
 			Product newProduct = productRepository.getById(id); //cria apenas uma referencia da Entidade
-			productDtoToProduct(productDto, newProduct);
+			boolean categoriesChanged = productDtoToProduct(productDto, newProduct);
 			newProduct = productRepository.save(newProduct);	
+			eventPublisher.publishEvent(ProductsChanged.saved(newProduct, categoriesChanged));
 			return new ProductDto(newProduct);
 		} catch (EntityNotFoundException e) {
 			throw new ServiceNotFoundException("ID ["+ id +"] Not Found!");
 		}
 	}
-
+	
 	public void delete(Long id) {
 		try {
 			productRepository.deleteById(id);
+			eventPublisher.publishEvent(ProductsChanged.removed(List.of(id), false));
 		} catch (EmptyResultDataAccessException e) {
 			throw new ServiceNotFoundException("ID ["+ id +"] Not Found!");
 		} catch (DataIntegrityViolationException e) {
 			throw new ServiceDataBaseException("DataBase Integrity Violation!");
 		}
 	}
-
-	private void productDtoToProduct(ProductDto productDto, Product product) {
+	
+	//remove por lista de ids e/ou categoria com DELETEs em massa: a categoria num único DELETE, os ids em blocos
+	@Transactional
+	public BulkResultDto deleteAll(List<Long> ids, Long categoryId) {
+		if ((ids == null || ids.isEmpty()) && categoryId == null) {
+			throw new ServiceBadRequestException("Inform ids or categoryId!");
+		}
+		int affected = 0;
+		Set<Long> removed = new LinkedHashSet<>();
+		boolean unknownRemoved = false;
+		if (categoryId != null) {
+			List<Long> categoryIds = productRepository.findIdsByCategoryId(categoryId);
+			int deleted = productRepository.deleteAllByCategoryId(categoryId);
+			affected += deleted;
+			removed.addAll(categoryIds);
+			//um produto ligado à categoria por outra transação entre o SELECT e o DELETE: os índices são recarregados
+			unknownRemoved = deleted > categoryIds.size();
+		}
+		
+		//ids já removidos pela categoria não contam de novo
+		List<Long> allIds = ids == null ? List.of() : new ArrayList<>(new LinkedHashSet<>(ids));
+		for (int from = 0; from < allIds.size(); from += BULK_CHUNK_SIZE) {
+			List<Long> chunk = allIds.subList(from, Math.min(from + BULK_CHUNK_SIZE, allIds.size()));
+			productRepository.deleteCategoryLinksByProductIdIn(chunk);
+			affected += productRepository.deleteAllByIdIn(chunk);
+		}
+		removed.addAll(allIds);
+		if (affected > 0) {
+			evictProductCache();
+			eventPublisher.publishEvent(ProductsChanged.removed(removed, unknownRemoved));
+		}
+		return new BulkResultDto(affected);
+	}
+	
+	//reajuste percentual ou absoluto num único UPDATE, opcionalmente restrito a uma categoria
+	@Transactional
+	public BulkResultDto updatePrices(PriceUpdateDto priceUpdateDto) {
+		Double percentage = priceUpdateDto.getPercentage();
+		Double amount = priceUpdateDto.getAmount();
+		Long categoryId = priceUpdateDto.getCategoryId();
+		if ((percentage == null) == (amount == null)) {
+			throw new ServiceBadRequestException("Inform either percentage or amount!");
+		}
+		if (percentage != null && percentage <= -100.0) {
+			throw new ServiceBadRequestException("Percentage must be greater than -100!");
+		}
+		
+		int affected;
+		if (percentage != null) {
+			double factor = 1.0 + percentage / 100.0;
+			affected = categoryId == null
+					? productRepository.multiplyPrices(factor)
+					: productRepository.multiplyPricesByCategory(factor, categoryId);
+		} else {
+			affected = categoryId == null
+					? productRepository.addToPrices(amount)
+					: productRepository.addToPricesByCategory(amount, categoryId);
+		}
+		if (affected > 0) {
+			evictProductCache();
+			//a faixa de preço faz parte da chave dos totais. só os preços mudaram: os índices que guardam preço são
+			//recarregados em segundo plano, e os pedidos que chegarem antes da recarga começar viram um só
+			eventPublisher.publishEvent(ProductsChanged.pricesChanged());
+		}
+		return new BulkResultDto(affected);
+	}
+	
+	//depois de um UPDATE/DELETE em massa o Hibernate só limpa o cache de segundo nível de Product no fim da transação:
+	//sem limpar já, a própria transação leria do cache os produtos antigos
+	private void evictProductCache() {
+		entityManagerFactory.getCache().evict(Product.class);
+	}
+	
+	//devolve se o conjunto de categorias do produto mudou, para o CategoryBitmapIndex só ser tocado quando preciso
+	private boolean productDtoToProduct(ProductDto productDto, Product product) {
 		product.setName(productDto.getName());
 		product.setDescription(productDto.getDescription());
 		product.setPrice(productDto.getPrice());
 		product.setImgUrl(productDto.getImgUrl());
 		product.setDate(productDto.getDate());
 		
-		product.getCategories().clear();
-		for (CategoryDto catDto : productDto.getCategories()) {
-			Category category =  categoryRepository.getById(catDto.getId());
-			product.getCategories().add(category);
+		//o snapshot do CategoryCache só confirma que as categorias existem; as que ele não conhece são buscadas num
+		//único SELECT ... IN, e a ausente é rejeitada. o vínculo usa sempre a entidade gerenciada (getById): uma
+		//cópia montada à parte levaria um nome possivelmente antigo para o produto. o proxy é inicializado ao entrar
+		//no Set, normalmente pelo cache de segundo nível de Category; as ausentes dele vêm juntas num único SELECT
+		//(@BatchSize), por isso todas as referências são criadas antes da primeira entrar no Set
+		Set<Long> previous = categoryIdsOf(product);
+		Set<Long> current = new TreeSet<>();
+		productDto.getCategories().forEach(x -> current.add(x.getId()));
+		Set<Long> known = categoryCache.findKnown(current).keySet();
+		Map<Long, Category> loaded = new HashMap<>();
+		List<Long> unknown = current.stream().filter(x -> !known.contains(x)).collect(Collectors.toList());
+		if (!unknown.isEmpty()) {
+			categoryRepository.findAllById(unknown).forEach(x -> loaded.put(x.getId(), x));
+		}
+		for (Long id : current) {
+			if (!known.contains(id) && !loaded.containsKey(id)) {
+				throw new ServiceBadRequestException("Category ID ["+ id +"] Not Found!");
+			}
 		}
+		List<Category> categories = new ArrayList<>();
+		for (Long id : current) {
+			categories.add(loaded.containsKey(id) ? loaded.get(id) : categoryRepository.getById(id));
+		}
+		product.getCategories().clear();
+		product.getCategories().addAll(categories);
+		return !previous.equals(current);
+	}
+	
+	private static Set<Long> categoryIdsOf(Product product) {
+		Set<Long> ids = new TreeSet<>();
+		product.getCategories().forEach(x -> ids.add(x.getId()));
+		return ids;
+	}
+	
+	//IN () vazio não é SQL válido: a lista vazia vira um id qualquer e a condição é desligada por outro parâmetro
+	private static List<Long> orPlaceholder(List<Long> ids) {
+		return ids.isEmpty() ? List.of(0L) : ids;
 	}
 	
 }
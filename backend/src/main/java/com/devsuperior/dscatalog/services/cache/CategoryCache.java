@@ -0,0 +1,235 @@
+package com.devsuperior.dscatalog.services.cache;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import com.devsuperior.dscatalog.dto.CacheStatsDto;
+import com.devsuperior.dscatalog.dto.CategoryDto;
+import com.devsuperior.dscatalog.dto.FacetDto;
+import com.devsuperior.dscatalog.entities.Category;
+import com.devsuperior.dscatalog.repositories.CategoryRepository;
+import com.devsuperior.dscatalog.services.util.NameCollation;
+import com.devsuperior.dscatalog.services.util.ResourceVersion;
+import com.devsuperior.dscatalog.services.util.TransactionHooks;
+
+//cópia em memória da tb_category (pequena e raramente alterada).
+//a tabela inteira é carregada de uma vez e descartada a cada escrita feita pelo CategoryService.
+@Component
+public class CategoryCache {
+	
+	@Autowired
+	private CategoryRepository categoryRepository;
+	
+	//ordem dos nomes igual à do ORDER BY do banco, que responde as mesmas listagens quando o cache não serve
+	@Autowired
+	private NameCollation collation;
+	
+	private volatile Snapshot snapshot;
+	private final AtomicLong generation = new AtomicLong();
+	
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong loads = new AtomicLong();
+	
+	
+	public Optional<CategoryDto> find(Long id) {
+		CategoryDto category = snapshot().categories.get(id);
+		if (category != null) {
+			hits.incrementAndGet();
+			return Optional.of(copy(category));
+		}
+		//pode ter sido criada por outra instância da aplicação: confirma no banco
+		misses.incrementAndGet();
+		return categoryRepository.findById(id).map(x -> new CategoryDto(x));
+	}
+	
+	public boolean contains(Long id) {
+		return find(id).isPresent();
+	}
+	
+	//só o que está no snapshot, sem consultar o banco: os ids ausentes ficam fora do mapa e o chamador decide
+	public Map<Long, CategoryDto> findKnown(Collection<Long> ids) {
+		Map<Long, CategoryDto> found = new HashMap<>();
+		Map<Long, CategoryDto> current = snapshot().categories;
+		for (Long id : ids) {
+			CategoryDto category = current.get(id);
+			if (category != null) {
+				found.put(id, copy(category));
+			}
+		}
+		hits.addAndGet(found.size());
+		misses.addAndGet(ids.size() - found.size());
+		return found;
+	}
+	
+	//resolve vários nomes de uma vez; os ausentes no snapshot são confirmados no banco numa única consulta
+	public Map<String, Long> findIdsByName(Collection<String> names) {
+		Map<String, Long> ids = new HashMap<>();
+		List<String> missing = new ArrayList<>();
+		Map<String, Long> current = snapshot().idsByName;
+		for (String name : names) {
+			Long id = current.get(name);
+			if (id != null) {
+				ids.put(name, id);
+			} else {
+				missing.add(name);
+			}
+		}
+		hits.addAndGet(ids.size());
+		if (!missing.isEmpty()) {
+			misses.addAndGet(missing.size());
+			categoryRepository.findByNameIn(missing).forEach(x -> ids.put(x.getName(), x.getId()));
+		}
+		return ids;
+	}
+	
+	//facetas a partir de contagens por id de categoria: nomes do snapshot, maiores contagens primeiro e,
+	//no empate, ordem dos nomes
+	public List<FacetDto> facets(Map<Long, Long> counts) {
+		List<FacetDto> facets = new ArrayList<>();
+		counts.forEach((id, count) -> find(id).ifPresent(x -> facets.add(new FacetDto(id, x.getName(), count))));
+		facets.sort(Comparator.comparing((FacetDto x) -> x.getCount()).reversed()
+				.thenComparing(x -> x.getName(), collation.comparator())
+				.thenComparing(x -> x.getCategoryId()));
+		return facets;
+	}
+	
+	//página servida da memória quando a ordenação usa apenas id e/ou name; caso contrário Optional vazio
+	public Optional<Page<CategoryDto>> findAllPaged(Pageable pageable) {
+		Comparator<CategoryDto> comparator = comparator(pageable.getSort());
+		if (comparator == null) {
+			return Optional.empty();
+		}
+		hits.incrementAndGet();
+		Map<Long, CategoryDto> current = snapshot().categories;
+		List<CategoryDto> content = current.values().stream()
+				.sorted(comparator)
+				.skip(pageable.isPaged() ? pageable.getOffset() : 0L)
+				.limit(pageable.isPaged() ? pageable.getPageSize() : Long.MAX_VALUE)
+				.map(x -> copy(x))
+				.collect(Collectors.toList());
+		return Optional.of(new PageImpl<>(content, pageable, current.size()));
+	}
+	
+	//validadores HTTP de uma categoria, tirados do snapshot (Optional vazio se não estiver em memória)
+	public Optional<ResourceVersion> version(Long id) {
+		Snapshot current = snapshot();
+		CategoryDto category = current.categories.get(id);
+		if (category == null) {
+			return Optional.empty();
+		}
+		return Optional.of(ResourceVersion.of(current.lastModified.get(id), category.getId(), category.getName()));
+	}
+	
+	//validadores da tabela inteira: mudam sempre que alguma categoria é criada, alterada ou removida
+	public ResourceVersion tableVersion() {
+		Snapshot current = snapshot();
+		return new ResourceVersion(current.fingerprint, current.maxLastModified);
+	}
+	
+	//descarta na hora e de novo ao fim da transação, para não guardar dados que ainda podem sofrer rollback
+	public void invalidate() {
+		clear();
+		TransactionHooks.afterCompletion(() -> clear());
+	}
+	
+	public CacheStatsDto getStats() {
+		Snapshot current = snapshot;
+		return new CacheStatsDto(hits.get(), misses.get(), loads.get(), current == null ? 0 : current.categories.size());
+	}
+	
+	private Snapshot snapshot() {
+		Snapshot current = snapshot;
+		if (current != null) {
+			return current;
+		}
+		long startGeneration = generation.get();
+		Snapshot loaded = new Snapshot(categoryRepository.findAll());
+		loads.incrementAndGet();
+		synchronized (this) {
+			if (generation.get() == startGeneration) {
+				snapshot = loaded;
+			}
+		}
+		return loaded;
+	}
+	
+	private synchronized void clear() {
+		generation.incrementAndGet();
+		snapshot = null;
+	}
+	
+	private Comparator<CategoryDto> comparator(Sort sort) {
+		Comparator<CategoryDto> comparator = null;
+		for (Sort.Order order : sort) {
+			Comparator<CategoryDto> next;
+			if (order.getProperty().equals("id")) {
+				next = Comparator.comparing(CategoryDto::getId);
+			} else if (order.getProperty().equals("name")) {
+				next = Comparator.comparing(CategoryDto::getName, collation.comparator());
+			} else {
+				return null;
+			}
+			next = order.isAscending() ? next : next.reversed();
+			comparator = comparator == null ? next : comparator.thenComparing(next);
+		}
+		Comparator<CategoryDto> byId = Comparator.comparing(CategoryDto::getId);
+		return comparator == null ? byId : comparator.thenComparing(byId);
+	}
+	
+	private static CategoryDto copy(CategoryDto category) {
+		return new CategoryDto(category.getId(), category.getName());
+	}
+	
+	private static final class Snapshot {
+		
+		private final Map<Long, CategoryDto> categories;
+		private final Map<Long, Instant> lastModified;
+		private final Map<String, Long> idsByName;
+		private final String fingerprint;
+		private final Instant maxLastModified;
+		
+		private Snapshot(List<Category> entities) {
+			Map<Long, CategoryDto> categories = new LinkedHashMap<>();
+			Map<Long, Instant> lastModified = new HashMap<>();
+			Map<String, Long> idsByName = new HashMap<>();
+			List<Object> parts = new ArrayList<>();
+			Instant max = null;
+			for (Category category : entities) {
+				Instant modified = category.getUpdatedAt() != null ? category.getUpdatedAt() : category.getCreatedAt();
+				categories.put(category.getId(), new CategoryDto(category));
+				lastModified.put(category.getId(), modified);
+				idsByName.put(category.getName(), category.getId());
+				parts.add(category.getId());
+				parts.add(category.getName());
+				if (modified != null && (max == null || modified.isAfter(max))) {
+					max = modified;
+				}
+			}
+			this.categories = Collections.unmodifiableMap(categories);
+			this.lastModified = lastModified;
+			this.idsByName = idsByName;
+			this.fingerprint = ResourceVersion.of(max, parts.toArray()).getETag();
+			this.maxLastModified = max;
+		}
+		
+	}
+
+}
@@ -0,0 +1,149 @@
+package com.devsuperior.dscatalog.services.cache;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+import com.devsuperior.dscatalog.services.util.ProductsChanged;
+import com.devsuperior.dscatalog.services.util.TransactionHooks;
+
+//guarda o total (SELECT COUNT) das listagens paginadas, por entidade e filtro.
+//escritas invalidam o namespace; no modo aproximado um total invalidado ainda pode ser servido por algum tempo.
+//o modo aproximado não estima nada: sem entrada (primeiro acesso ao filtro, ou descartada) a contagem é exata.
+//os filtros são texto livre, então as entradas ficam num LRU limitado a max-entries.
+@Component
+public class ListingCountCache {
+	
+	public static final String PRODUCTS = "products";
+	public static final String CATEGORIES = "categories";
+	
+	private final Map<String, CountEntry> entries;
+	private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+	
+	@Value("${dscatalog.cache.count.approximate-ttl:30s}")
+	private Duration approximateTtl = Duration.ofSeconds(30);
+	
+	public ListingCountCache(@Value("${dscatalog.cache.count.max-entries:1000}") int maxEntries) {
+		//LinkedHashMap em ordem de acesso: remove o total usado há mais tempo ao passar do limite
+		entries = Collections.synchronizedMap(new LinkedHashMap<String, CountEntry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CountEntry> eldest) {
+				return size() > maxEntries;
+			}
+		});
+	}
+	
+	
+	//total de uma página cujo conteúdo já foi lido: na última página ele sai do offset, sem contagem
+	public CountResult count(String namespace, String filter, Pageable pageable, Slice<?> slice,
+			boolean approximate, LongSupplier counter) {
+		if (!slice.hasNext() && (slice.hasContent() || pageable.getOffset() == 0)) {
+			return new CountResult(pageable.getOffset() + slice.getNumberOfElements(), false);
+		}
+		return approximate ? approximate(namespace, filter, counter) : exact(namespace, filter, counter);
+	}
+	
+	public CountResult exact(String namespace, String filter, LongSupplier counter) {
+		CountEntry entry = entries.get(key(namespace, filter));
+		if (entry != null && !entry.stale) {
+			return new CountResult(entry.count, false);
+		}
+		return new CountResult(load(namespace, filter, counter), false);
+	}
+	
+	public CountResult approximate(String namespace, String filter, LongSupplier counter) {
+		CountEntry entry = entries.get(key(namespace, filter));
+		if (entry != null) {
+			if (!entry.stale) {
+				return new CountResult(entry.count, false);
+			}
+			if (System.nanoTime() - entry.staleSince < approximateTtl.toNanos()) {
+				return new CountResult(entry.count, true);
+			}
+		}
+		return new CountResult(load(namespace, filter, counter), false);
+	}
+	
+	//invalida na hora e de novo ao fim da transação, para descartar contagens feitas enquanto ela estava aberta
+	public void invalidate(String namespace) {
+		markStale(namespace);
+		TransactionHooks.afterCompletion(() -> markStale(namespace));
+	}
+	
+	//recebido na publicação, ainda dentro da transação de quem gravou: a invalidação imediata precisa dela
+	@EventListener
+	public void onProductsChanged(ProductsChanged event) {
+		invalidate(PRODUCTS);
+	}
+	
+	private long load(String namespace, String filter, LongSupplier counter) {
+		long generation = generation(namespace).get();
+		long count = counter.getAsLong();
+		//só guarda se nenhuma escrita aconteceu durante a contagem
+		if (generation(namespace).get() == generation) {
+			entries.put(key(namespace, filter), new CountEntry(count, false, 0L));
+		}
+		return count;
+	}
+	
+	private void markStale(String namespace) {
+		generation(namespace).incrementAndGet();
+		long now = System.nanoTime();
+		String prefix = namespace + "|";
+		entries.replaceAll((key, entry) -> key.startsWith(prefix) && !entry.stale
+				? new CountEntry(entry.count, true, now)
+				: entry);
+	}
+	
+	private AtomicLong generation(String namespace) {
+		return generations.computeIfAbsent(namespace, x -> new AtomicLong());
+	}
+	
+	private static String key(String namespace, String filter) {
+		return namespace + "|" + filter;
+	}
+	
+	
+	private static final class CountEntry {
+		private final long count;
+		private final boolean stale;
+		private final long staleSince;
+		
+		private CountEntry(long count, boolean stale, long staleSince) {
+			this.count = count;
+			this.stale = stale;
+			this.staleSince = staleSince;
+		}
+	}
+	
+	public static final class CountResult {
+		private final long count;
+		private final boolean approximate;
+		
+		public CountResult(long count, boolean approximate) {
+			this.count = count;
+			this.approximate = approximate;
+		}
+		
+		public long getCount() {
+			return count;
+		}
+		
+		public boolean isApproximate() {
+			return approximate;
+		}
+	}
+	
+}
@@ -0,0 +1,51 @@
+package com.devsuperior.dscatalog.services.cache;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.devsuperior.dscatalog.services.util.ProductsChanged;
+import com.devsuperior.dscatalog.services.util.ResourceVersion;
+import com.devsuperior.dscatalog.services.util.TransactionHooks;
+
+//versão em memória da tb_product para o ETag das listagens: cada escrita de produto incrementa o contador, sem
+//agregar a tabela a cada requisição. o id da instância entra no ETag, então um reinício gera ETags novos e o
+//cliente só recebe um 200 a mais.
+//só vale com uma instância e com todas as escritas passando por ela: o contador não vê a escrita de outra
+//instância nem um UPDATE direto no banco, e devolveria 304 para uma listagem que mudou. por isso fica desligado
+//com o roteamento de leituras ligado (implantação com réplicas) e pode ser desligado em dscatalog.cache.list-etag
+@Component
+public class ProductListVersion {
+	
+	private final String instance = UUID.randomUUID().toString();
+	private final AtomicLong version = new AtomicLong();
+	private final boolean enabled;
+	
+	
+	public ProductListVersion(@Value("${dscatalog.cache.list-etag.enabled:true}") boolean enabled,
+			@Value("${dscatalog.routing.enabled:false}") boolean routingEnabled) {
+		this.enabled = enabled && !routingEnabled;
+	}
+	
+	//vazio quando desligado: as listagens saem sem ETag e sempre com 200
+	public Optional<ResourceVersion> tableVersion() {
+		return enabled ? Optional.of(ResourceVersion.of(null, instance, version.get())) : Optional.empty();
+	}
+	
+	//muda na hora e de novo ao fim da transação, para um ETag lido enquanto ela estava aberta não valer depois
+	public void invalidate() {
+		version.incrementAndGet();
+		TransactionHooks.afterCompletion(() -> version.incrementAndGet());
+	}
+	
+	//recebido na publicação, ainda dentro da transação de quem gravou
+	@EventListener
+	public void onProductsChanged(ProductsChanged event) {
+		invalidate();
+	}
+	
+}
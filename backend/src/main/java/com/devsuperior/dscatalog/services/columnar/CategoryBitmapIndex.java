@@ -0,0 +1,260 @@
+package com.devsuperior.dscatalog.services.columnar;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.devsuperior.dscatalog.repositories.ProductRepository;
+import com.devsuperior.dscatalog.repositories.projections.ProductCategoryLinkProjection;
+import com.devsuperior.dscatalog.routing.DataSourceRouting;
+import com.devsuperior.dscatalog.services.util.IndexRebuildScheduler;
+import com.devsuperior.dscatalog.services.util.ProductFilter;
+import com.devsuperior.dscatalog.services.util.ProductsChanged;
+import com.devsuperior.dscatalog.services.util.ProductsChanged.Reload;
+import com.devsuperior.dscatalog.services.util.ProductsChanged.SavedProduct;
+
+//tb_product_category em memória: para cada categoria, o conjunto comprimido (RoaringBitmap) dos ids dos seus
+//produtos, mais o conjunto de todos os produtos (base do "sem a categoria X").
+//perguntas como "em Livros E Computadores mas não em Eletrônicos" viram AND/OR/ANDNOT entre bitmaps, sem joins.
+//é mantido pelo evento ProductsChanged após o commit, só quando o conjunto de categorias de um produto muda.
+@Component
+public class CategoryBitmapIndex {
+	
+	private static final Logger log = LoggerFactory.getLogger(CategoryBitmapIndex.class);
+	
+	@Autowired
+	private ProductRepository productRepository;
+	
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+	
+	@Autowired
+	private IndexRebuildScheduler rebuildScheduler;
+	
+	//dscatalog.indexes.enabled=false (importação pela linha de comando): o índice fica vazio e não é mantido
+	@Value("${dscatalog.indexes.enabled:true}")
+	private boolean enabled = true;
+	
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private Index index = new Index();
+	private volatile boolean ready;
+	
+	//alterações que chegam durante a carga são reaplicadas sobre o índice novo
+	private List<Consumer<Index>> pendingChanges;
+	private final Object rebuildLock = new Object();
+	
+	
+	@EventListener(ApplicationReadyEvent.class)
+	public void onApplicationReady() {
+		if (!enabled) {
+			return;
+		}
+		rebuild();
+	}
+	
+	//uma carga por vez, para que duas sobrepostas não disputem a mesma lista de pendências
+	public void rebuild() {
+		synchronized (rebuildLock) {
+			long start = System.nanoTime();
+			synchronized (this) {
+				pendingChanges = new ArrayList<>();
+			}
+			Index loaded;
+			try {
+				TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+				transaction.setReadOnly(true);
+				loaded = DataSourceRouting.onPrimary(() -> transaction.execute(status -> load()));
+			} catch (RuntimeException e) {
+				synchronized (this) {
+					pendingChanges = null;
+				}
+				throw e;
+			}
+			synchronized (this) {
+				pendingChanges.forEach(x -> x.accept(loaded));
+				pendingChanges = null;
+				write(() -> index = loaded);
+				ready = true;
+			}
+			log.info("Category bitmap index built: {} products, {} categories in {} ms", loaded.all.cardinality(),
+					loaded.products.size(), (System.nanoTime() - start) / 1_000_000);
+		}
+	}
+	
+	public boolean isReady() {
+		return ready;
+	}
+	
+	//só depois do commit de quem gravou (ou na hora, se a escrita não estava numa transação). DELETEs em massa que
+	//não dizem quais produtos saíram recarregam o índice em segundo plano; reajustes de preço não o afetam
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+	public void onProductsChanged(ProductsChanged event) {
+		if (!enabled) {
+			return;
+		}
+		List<SavedProduct> changed = event.getSaved().stream().filter(x -> x.getCategoryIds() != null)
+				.collect(Collectors.toList());
+		if (!changed.isEmpty() || !event.getRemoved().isEmpty()) {
+			apply(x -> {
+				changed.forEach(product -> x.put(product.getId(), product.getCategoryIds()));
+				event.getRemoved().forEach(id -> x.remove(id));
+			});
+		}
+		if (event.getReload() == Reload.ALL) {
+			rebuildScheduler.schedule("category-bitmap-index", () -> rebuild());
+		}
+	}
+	
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return (int) index.all.cardinality();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	//ids dos produtos que atendem ao filtro de categorias: em todas de allCategoryIds, em alguma de categoryIds
+	//e em nenhuma de excludedCategoryIds. vazio quando o filtro não tem condição de categoria.
+	public Optional<RoaringBitmap> select(ProductFilter filter) {
+		if (!filter.hasCategories() && !filter.hasCategorySets()) {
+			return Optional.empty();
+		}
+		lock.readLock().lock();
+		try {
+			//enquanto o resultado for um dos bitmaps do índice, que continuam mudando, ele é copiado antes de sair
+			RoaringBitmap result = null;
+			boolean shared = false;
+			for (Long categoryId : filter.getAllCategoryIds()) {
+				shared = result == null;
+				result = result == null ? index.products(categoryId) : RoaringBitmap.and(result, index.products(categoryId));
+			}
+			if (filter.hasCategories()) {
+				RoaringBitmap any = new RoaringBitmap();
+				for (Long categoryId : filter.getCategoryIds()) {
+					any = RoaringBitmap.or(any, index.products(categoryId));
+				}
+				result = result == null ? any : RoaringBitmap.and(result, any);
+				shared = false;
+			}
+			if (result == null) {
+				result = index.all;
+				shared = true;
+			}
+			for (Long categoryId : filter.getExcludedCategoryIds()) {
+				result = RoaringBitmap.andNot(result, index.products(categoryId));
+				shared = false;
+			}
+			return Optional.of(shared ? result.copy() : result);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	//categorias do produto, em ordem de id
+	public List<Long> categoriesOf(Long productId) {
+		lock.readLock().lock();
+		try {
+			List<Long> categories = new ArrayList<>();
+			index.products.forEach((id, products) -> {
+				if (products.contains(productId)) {
+					categories.add(id);
+				}
+			});
+			return categories;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	//quantos dos produtos informados estão em cada categoria (facetas), sem materializar as interseções
+	public Map<Long, Long> countPerCategory(RoaringBitmap productIds) {
+		lock.readLock().lock();
+		try {
+			Map<Long, Long> counts = new HashMap<>();
+			index.products.forEach((id, products) -> {
+				long count = RoaringBitmap.andCardinality(products, productIds);
+				if (count > 0) {
+					counts.put(id, count);
+				}
+			});
+			return counts;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	private Index load() {
+		Index loaded = new Index();
+		productRepository.findAllIds().forEach(id -> loaded.all.add(id));
+		for (ProductCategoryLinkProjection link : productRepository.findAllCategoryLinks()) {
+			loaded.products.computeIfAbsent(link.getCategoryId(), x -> new RoaringBitmap()).add(link.getProductId());
+		}
+		return loaded;
+	}
+	
+	//antes da primeira carga as alterações são descartadas: ela já lerá tudo o que teve commit
+	private synchronized void apply(Consumer<Index> change) {
+		if (!ready && pendingChanges == null) {
+			return;
+		}
+		write(() -> change.accept(index));
+		if (pendingChanges != null) {
+			pendingChanges.add(change);
+		}
+	}
+	
+	private void write(Runnable change) {
+		lock.writeLock().lock();
+		try {
+			change.run();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	private static final class Index {
+		
+		private final RoaringBitmap all = new RoaringBitmap();
+		private final Map<Long, RoaringBitmap> products = new TreeMap<>();
+		
+		private RoaringBitmap products(Long categoryId) {
+			RoaringBitmap found = products.get(categoryId);
+			return found == null ? new RoaringBitmap() : found;
+		}
+		
+		private void put(Long productId, List<Long> categoryIds) {
+			products.values().forEach(x -> x.remove(productId));
+			categoryIds.forEach(x -> products.computeIfAbsent(x, key -> new RoaringBitmap()).add(productId));
+			products.values().removeIf(x -> x.isEmpty());
+			all.add(productId);
+		}
+		
+		private void remove(Long productId) {
+			products.values().forEach(x -> x.remove(productId));
+			products.values().removeIf(x -> x.isEmpty());
+			all.remove(productId);
+		}
+	
+	}
+	
+}
@@ -0,0 +1,595 @@
+package com.devsuperior.dscatalog.services.columnar;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.devsuperior.dscatalog.dto.FacetedPageDto;
+import com.devsuperior.dscatalog.dto.PageDto;
+import com.devsuperior.dscatalog.dto.ProductDto;
+import com.devsuperior.dscatalog.dto.ProductSummaryDto;
+import com.devsuperior.dscatalog.repositories.ProductRepository;
+import com.devsuperior.dscatalog.routing.DataSourceRouting;
+import com.devsuperior.dscatalog.services.cache.CategoryCache;
+import com.devsuperior.dscatalog.services.util.IndexRebuildScheduler;
+import com.devsuperior.dscatalog.services.util.NameCollation;
+import com.devsuperior.dscatalog.services.util.ProductFilter;
+import com.devsuperior.dscatalog.services.util.ProductsChanged;
+import com.devsuperior.dscatalog.services.util.ProductsChanged.Reload;
+
+//réplica de tb_product em memória, organizada por colunas (struct-of-arrays): ids, preços e datas em arrays
+//primitivos e nomes codificados por dicionário; as categorias vêm do CategoryBitmapIndex. as descrições ficam
+//só no banco e são lidas, numa consulta por id, apenas para as linhas da página devolvida.
+//responde a listagem com filtros de categoria, nome, preço e data, ordenação e paginação sem ir ao banco;
+//varreduras grandes rodam em paralelo. é mantida pelo evento ProductsChanged, aplicado após o commit.
+@Component
+public class ProductColumnStore {
+	
+	private static final Logger log = LoggerFactory.getLogger(ProductColumnStore.class);
+	
+	private static final int PARALLEL_THRESHOLD = 50_000;
+	//abaixo de 1/8 das linhas, percorrer os ids do bitmap de categorias sai mais barato que varrer as colunas
+	private static final int SELECTIVE_FRACTION = 8;
+	private static final int INITIAL_CAPACITY = 16;
+	private static final long NULL_DATE = Long.MIN_VALUE;
+	private static final Set<String> SORTABLE = Set.of("id", "name", "price", "date");
+	
+	@Autowired
+	private ProductRepository productRepository;
+	
+	@Autowired
+	private CategoryCache categoryCache;
+	
+	@Autowired
+	private CategoryBitmapIndex categoryIndex;
+	
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+	
+	@Autowired
+	private IndexRebuildScheduler rebuildScheduler;
+	
+	@Autowired
+	private NameCollation collation;
+	
+	//também desligada com os demais índices no modo de importação pela linha de comando
+	@Value("#{${dscatalog.columnar.enabled:true} and ${dscatalog.indexes.enabled:true}}")
+	private boolean enabled = true;
+	
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	//vazia até a primeira carga, que já usa a collation configurada
+	private Columns columns = new Columns(INITIAL_CAPACITY, NameCollation.BINARY).rank();
+	private volatile boolean ready;
+	
+	//alterações que chegam durante uma recarga são reaplicadas sobre as colunas novas
+	private List<Consumer<Columns>> pendingChanges;
+	private final Object rebuildLock = new Object();
+	//incrementada quando uma escrita em massa deixa as colunas desatualizadas: só a recarga que começou depois
+	//dela pode voltar a marcar a réplica como pronta
+	private final AtomicLong generation = new AtomicLong();
+	//antes da primeira carga as alterações são descartadas: ela já lerá tudo o que teve commit
+	private boolean loaded;
+	
+	
+	@EventListener(ApplicationReadyEvent.class)
+	public void onApplicationReady() {
+		if (enabled) {
+			rebuild();
+		}
+	}
+	
+	//uma recarga por vez: pendingChanges é de quem está recarregando, e duas recargas sobrepostas
+	//apagariam a lista uma da outra (NPE e alterações perdidas)
+	public void rebuild() {
+		synchronized (rebuildLock) {
+			long start = System.nanoTime();
+			long startedAt = generation.get();
+			synchronized (this) {
+				pendingChanges = new ArrayList<>();
+			}
+			Columns rebuilt;
+			try {
+				TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+				transaction.setReadOnly(true);
+				rebuilt = DataSourceRouting.onPrimary(() -> transaction.execute(status -> load()));
+			} catch (RuntimeException e) {
+				synchronized (this) {
+					pendingChanges = null;
+				}
+				throw e;
+			}
+			synchronized (this) {
+				pendingChanges.forEach(x -> x.accept(rebuilt));
+				pendingChanges = null;
+				write(() -> columns = rebuilt);
+				ready = generation.get() == startedAt;
+				loaded = true;
+			}
+			log.info("Product column store built: {} products in {} ms", rebuilt.rowById.size(),
+					(System.nanoTime() - start) / 1_000_000);
+		}
+	}
+	
+	//só depois do commit de quem gravou (ou na hora, se a escrita não estava numa transação). escritas em massa que
+	//não dizem quais produtos mudaram (ex.: reajuste de preços) recarregam a réplica em segundo plano e, até a recarga
+	//terminar, as listagens voltam ao banco em vez de ler colunas desatualizadas
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+	public void onProductsChanged(ProductsChanged event) {
+		if (!enabled) {
+			return;
+		}
+		List<Row> rows = new ArrayList<>();
+		event.getSaved().forEach(x -> rows.add(new Row(x.getId(), x.getName(), x.getPrice(), x.getImgUrl(), x.getDate())));
+		apply(x -> {
+			rows.forEach(row -> x.put(row));
+			event.getRemoved().forEach(id -> x.remove(id));
+		});
+		if (event.getReload() != Reload.NONE) {
+			generation.incrementAndGet();
+			ready = false;
+			rebuildScheduler.schedule("product-column-store", () -> rebuild());
+		}
+	}
+	
+	//vazio quando a consulta não pode ser atendida aqui: réplica desligada ou ainda não carregada (ela ou o índice de
+	//categorias), ordenação por outro campo, ou chamada dentro de uma transação, que precisa enxergar as próprias
+	//escritas ainda sem commit
+	public Optional<Page<ProductDto>> findAll(ProductFilter filter, Pageable pageable, boolean includeCategories,
+			boolean includeFacets) {
+		if (!ready || !categoryIndex.isReady() || TransactionSynchronizationManager.isActualTransactionActive()) {
+			return Optional.empty();
+		}
+		for (Sort.Order order : pageable.getSort()) {
+			if (!SORTABLE.contains(order.getProperty())) {
+				return Optional.empty();
+			}
+		}
+		Page<ProductDto> page;
+		lock.readLock().lock();
+		try {
+			Columns current = columns;
+			int[] matches = current.match(filter, categoryIndex.select(filter).orElse(null));
+			List<ProductDto> content = new ArrayList<>();
+			for (int row : current.page(matches, pageable)) {
+				ProductDto productDto = current.toDto(row);
+				if (includeCategories) {
+					categoryIndex.categoriesOf(current.ids[row])
+							.forEach(id -> categoryCache.find(id).ifPresent(x -> productDto.getCategories().add(x)));
+				}
+				content.add(productDto);
+			}
+			page = new PageDto<>(content, pageable, matches.length, false);
+			if (includeFacets) {
+				RoaringBitmap matched = new RoaringBitmap();
+				for (int row : matches) {
+					matched.add(current.ids[row]);
+				}
+				page = new FacetedPageDto<>(page, categoryCache.facets(categoryIndex.countPerCategory(matched)));
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		//fora do lock, para a consulta não segurar as escritas na réplica
+		fillDescriptions(page.getContent());
+		return Optional.of(page);
+	}
+	
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return columns.rowById.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	private Columns load() {
+		List<ProductSummaryDto> products = productRepository.findAllSummaries();
+		Columns loaded = new Columns(Math.max(INITIAL_CAPACITY, products.size()), collation.comparator());
+		for (ProductSummaryDto x : products) {
+			loaded.put(new Row(x.getId(), x.getName(), x.getPrice(), x.getImgUrl(), x.getDate()));
+		}
+		return loaded.rank();
+	}
+	
+	private void fillDescriptions(List<ProductDto> content) {
+		if (content.isEmpty()) {
+			return;
+		}
+		Map<Long, ProductDto> byId = new HashMap<>();
+		content.forEach(x -> byId.put(x.getId(), x));
+		productRepository.findDescriptionsByIdIn(byId.keySet())
+				.forEach(x -> byId.get(x.getId()).setDescription(x.getDescription()));
+	}
+	
+	private synchronized void apply(Consumer<Columns> change) {
+		if (!loaded && pendingChanges == null) {
+			return;
+		}
+		write(() -> {
+			change.accept(columns);
+			//linhas removidas só deixam de ocupar espaço quando as colunas são recompactadas
+			if (columns.deleted > Math.max(1024, columns.rowById.size())) {
+				columns = columns.compacted();
+			}
+		});
+		if (pendingChanges != null) {
+			pendingChanges.add(change);
+		}
+	}
+	
+	private void write(Runnable change) {
+		lock.writeLock().lock();
+		try {
+			change.run();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	//data como microssegundos da época, a mesma precisão do TIMESTAMP do banco
+	private static long toMicros(Instant date) {
+		return date == null ? NULL_DATE : date.getEpochSecond() * 1_000_000L + date.getNano() / 1_000;
+	}
+	
+	private static Instant fromMicros(long micros) {
+		return micros == NULL_DATE ? null : Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+				Math.floorMod(micros, 1_000_000L) * 1_000L);
+	}
+	
+	private interface RowComparator {
+		int compare(int a, int b);
+	}
+	
+	private static final class Row {
+		
+		private final Long id;
+		private final String name;
+		private final Double price;
+		private final String imgUrl;
+		private final Instant date;
+		
+		private Row(Long id, String name, Double price, String imgUrl, Instant date) {
+			this.id = id;
+			this.name = name;
+			this.price = price;
+			this.imgUrl = imgUrl;
+			this.date = date;
+		}
+	
+	}
+	
+	//não é thread-safe: leituras sob o read lock e alterações sob o write lock do ProductColumnStore
+	private static final class Columns {
+		
+		private long[] ids;
+		private double[] prices;
+		private long[] dates;
+		private int[] names;
+		private String[] imgUrls;
+		private int size;
+		private int deleted;
+		private final BitSet live = new BitSet();
+		private final Map<Long, Integer> rowById = new HashMap<>();
+		
+		//dicionário de nomes: cada nome distinto guardado uma vez e referenciado pelo código em names[].
+		//um código sem linhas (nome trocado ou produto removido) é liberado e reaproveitado pelo próximo nome novo
+		private final List<String> dictionary = new ArrayList<>();
+		private final Map<String, Integer> codes = new HashMap<>();
+		private int[] references = new int[INITIAL_CAPACITY];
+		private final Deque<Integer> freeCodes = new ArrayDeque<>();
+		
+		//posição de cada código na ordem da collation, com folgas entre um e outro: um nome novo recebe um valor entre
+		//os vizinhos e ordenar por nome vira comparar longs. só quando não há folga os valores são redistribuídos
+		private final TreeMap<String, Integer> sortedNames;
+		private long[] ranks = new long[INITIAL_CAPACITY];
+		private long spacing;
+		//falso durante a carga: os valores são calculados uma vez no fim, por rank()
+		private boolean ranked;
+		
+		private Columns(int capacity, Comparator<? super String> collation) {
+			ids = new long[capacity];
+			prices = new double[capacity];
+			dates = new long[capacity];
+			names = new int[capacity];
+			imgUrls = new String[capacity];
+			sortedNames = new TreeMap<>(collation);
+		}
+		
+		private void put(Row row) {
+			Integer existing = rowById.get(row.id);
+			int index = existing == null ? append(row.id) : existing;
+			int previousName = existing == null ? -1 : names[index];
+			ids[index] = row.id;
+			prices[index] = row.price == null ? Double.NaN : row.price;
+			dates[index] = toMicros(row.date);
+			names[index] = encode(row.name);
+			imgUrls[index] = row.imgUrl;
+			release(previousName);
+		}
+		
+		private int append(Long id) {
+			if (size == ids.length) {
+				int capacity = Math.max(INITIAL_CAPACITY, size * 2);
+				ids = Arrays.copyOf(ids, capacity);
+				prices = Arrays.copyOf(prices, capacity);
+				dates = Arrays.copyOf(dates, capacity);
+				names = Arrays.copyOf(names, capacity);
+				imgUrls = Arrays.copyOf(imgUrls, capacity);
+			}
+			int index = size++;
+			rowById.put(id, index);
+			live.set(index);
+			return index;
+		}
+		
+		private void remove(Long id) {
+			Integer index = rowById.remove(id);
+			if (index == null) {
+				return;
+			}
+			live.clear(index);
+			imgUrls[index] = null;
+			release(names[index]);
+			names[index] = -1;
+			deleted++;
+		}
+		
+		private int encode(String name) {
+			if (name == null) {
+				return -1;
+			}
+			Integer code = codes.get(name);
+			if (code == null) {
+				code = freeCodes.isEmpty() ? dictionary.size() : freeCodes.pop();
+				if (code == dictionary.size()) {
+					dictionary.add(name);
+				} else {
+					dictionary.set(code, name);
+				}
+				if (code == references.length) {
+					references = Arrays.copyOf(references, code * 2);
+					ranks = Arrays.copyOf(ranks, code * 2);
+				}
+				codes.put(name, code);
+				sortedNames.put(name, code);
+				if (ranked) {
+					placeRank(name, code);
+				}
+			}
+			references[code]++;
+			return code;
+		}
+		
+		private void release(int code) {
+			if (code < 0 || --references[code] > 0) {
+				return;
+			}
+			String name = dictionary.set(code, null);
+			codes.remove(name);
+			sortedNames.remove(name);
+			freeCodes.push(code);
+		}
+		
+		private void placeRank(String name, int code) {
+			Map.Entry<String, Integer> lower = sortedNames.lowerEntry(name);
+			Map.Entry<String, Integer> higher = sortedNames.higherEntry(name);
+			long low = lower == null ? 0L : ranks[lower.getValue()];
+			long high = higher == null ? Long.MAX_VALUE : ranks[higher.getValue()];
+			//no fim da ordem avança um espaçamento, e não metade do que resta, para nomes novos em ordem crescente
+			long gap = higher == null ? Math.min(spacing, (high - low) / 2) : (high - low) / 2;
+			if (gap > 0) {
+				ranks[code] = low + gap;
+			} else {
+				rank();
+			}
+		}
+		
+		//redistribui os valores em O(n), deixando a metade de cima livre para os nomes que vierem no fim da ordem
+		private Columns rank() {
+			spacing = Math.max(1L, Long.MAX_VALUE / 2 / (sortedNames.size() + 1));
+			long rank = 0L;
+			for (int code : sortedNames.values()) {
+				rank += spacing;
+				ranks[code] = rank;
+			}
+			ranked = true;
+			return this;
+		}
+		
+		//colunas novas só com as linhas vivas (e os nomes ainda usados), na mesma ordem
+		private Columns compacted() {
+			Columns compacted = new Columns(Math.max(INITIAL_CAPACITY, rowById.size()), sortedNames.comparator());
+			for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+				compacted.put(new Row(ids[row], names[row] < 0 ? null : dictionary.get(names[row]),
+						Double.isNaN(prices[row]) ? null : prices[row], imgUrls[row], fromMicros(dates[row])));
+			}
+			return compacted.rank();
+		}
+		
+		//a varredura compara só códigos e primitivos: o nome é casado uma vez por valor distinto do dicionário.
+		//products é o resultado do filtro de categorias (nulo sem esse filtro); se for pequeno, só as suas linhas são vistas
+		private int[] match(ProductFilter filter, RoaringBitmap products) {
+			boolean[] nameMatches = filter.hasName() ? matchNames(filter.getName()) : null;
+			boolean priceRange = filter.getMinPrice() != null || filter.getMaxPrice() != null;
+			double minPrice = filter.getMinPrice() == null ? Double.NEGATIVE_INFINITY : filter.getMinPrice();
+			double maxPrice = filter.getMaxPrice() == null ? Double.POSITIVE_INFINITY : filter.getMaxPrice();
+			boolean dateRange = filter.getMinDate() != null || filter.getMaxDate() != null;
+			long minDate = filter.getMinDate() == null ? NULL_DATE : toMicros(filter.getMinDate());
+			long maxDate = filter.getMaxDate() == null ? Long.MAX_VALUE : toMicros(filter.getMaxDate());
+			
+			//preço nulo (NaN) falha em qualquer comparação, como o NULL do SQL
+			IntPredicate accepts = row -> (nameMatches == null || (names[row] >= 0 && nameMatches[names[row]]))
+					&& (!priceRange || (prices[row] >= minPrice && prices[row] <= maxPrice))
+					&& (!dateRange || (dates[row] != NULL_DATE && dates[row] >= minDate && dates[row] <= maxDate));
+			if (products != null && products.cardinality() < rowById.size() / SELECTIVE_FRACTION) {
+				IntStream.Builder selected = IntStream.builder();
+				products.forEach(id -> {
+					Integer row = rowById.get(id);
+					if (row != null && accepts.test(row)) {
+						selected.add(row);
+					}
+				});
+				return selected.build().toArray();
+			}
+			IntPredicate candidates = products == null ? live::get : row -> live.get(row) && products.contains(ids[row]);
+			IntStream scan = IntStream.range(0, size).filter(candidates);
+			if (size >= PARALLEL_THRESHOLD) {
+				scan = scan.parallel();
+			}
+			return scan.filter(accepts).toArray();
+		}
+		
+		private boolean[] matchNames(String name) {
+			String term = name.toLowerCase(Locale.ROOT);
+			boolean[] matches = new boolean[dictionary.size()];
+			for (int code = 0; code < matches.length; code++) {
+				String candidate = dictionary.get(code);
+				matches[code] = candidate != null && candidate.toLowerCase(Locale.ROOT).contains(term);
+			}
+			return matches;
+		}
+		
+		//seleciona só as offset + size primeiras linhas com um heap limitado (O(n log k)) em vez de ordenar tudo
+		private int[] page(int[] matches, Pageable pageable) {
+			long offset = pageable.isPaged() ? pageable.getOffset() : 0L;
+			if (offset >= matches.length) {
+				return new int[0];
+			}
+			int k = pageable.isPaged() ? (int) Math.min(matches.length, offset + pageable.getPageSize()) : matches.length;
+			int[] top = smallest(matches, k, comparator(pageable.getSort()));
+			return Arrays.copyOfRange(top, (int) offset, k);
+		}
+		
+		//desempata sempre pelo id, para a paginação ser estável
+		private RowComparator comparator(Sort sort) {
+			RowComparator result = (a, b) -> 0;
+			for (Sort.Order order : sort) {
+				RowComparator column = column(order.getProperty());
+				RowComparator directed = order.isAscending() ? column : (a, b) -> column.compare(b, a);
+				RowComparator previous = result;
+				result = (a, b) -> {
+					int compared = previous.compare(a, b);
+					return compared != 0 ? compared : directed.compare(a, b);
+				};
+			}
+			RowComparator sorted = result;
+			return (a, b) -> {
+				int compared = sorted.compare(a, b);
+				return compared != 0 ? compared : Long.compare(ids[a], ids[b]);
+			};
+		}
+		
+		//nulos contam como menores (primeiro no ASC, por último no DESC), como no H2
+		private RowComparator column(String property) {
+			switch (property) {
+			case "name":
+				return (a, b) -> Long.compare(names[a] < 0 ? -1L : ranks[names[a]], names[b] < 0 ? -1L : ranks[names[b]]);
+			case "price":
+				return (a, b) -> {
+					boolean nullA = Double.isNaN(prices[a]);
+					boolean nullB = Double.isNaN(prices[b]);
+					if (nullA || nullB) {
+						return Boolean.compare(!nullA, !nullB);
+					}
+					return Double.compare(prices[a], prices[b]);
+				};
+			case "date":
+				return (a, b) -> Long.compare(dates[a], dates[b]);
+			default:
+				return (a, b) -> Long.compare(ids[a], ids[b]);
+			}
+		}
+		
+		private ProductDto toDto(int row) {
+			return new ProductDto(ids[row], names[row] < 0 ? null : dictionary.get(names[row]), null,
+					Double.isNaN(prices[row]) ? null : prices[row], imgUrls[row], fromMicros(dates[row]));
+		}
+		
+		//heap de máximo com as k menores linhas vistas até agora; ao final é esvaziado em ordem crescente
+		private static int[] smallest(int[] rows, int k, RowComparator comparator) {
+			int[] heap = new int[k];
+			int n = 0;
+			for (int row : rows) {
+				if (n < k) {
+					heap[n] = row;
+					siftUp(heap, n++, comparator);
+				} else if (comparator.compare(row, heap[0]) < 0) {
+					heap[0] = row;
+					siftDown(heap, 0, n, comparator);
+				}
+			}
+			for (int end = n - 1; end > 0; end--) {
+				swap(heap, 0, end);
+				siftDown(heap, 0, end, comparator);
+			}
+			return heap;
+		}
+		
+		private static void siftUp(int[] heap, int index, RowComparator comparator) {
+			while (index > 0) {
+				int parent = (index - 1) / 2;
+				if (comparator.compare(heap[index], heap[parent]) <= 0) {
+					return;
+				}
+				swap(heap, index, parent);
+				index = parent;
+			}
+		}
+		
+		private static void siftDown(int[] heap, int index, int n, RowComparator comparator) {
+			while (2 * index + 1 < n) {
+				int child = 2 * index + 1;
+				if (child + 1 < n && comparator.compare(heap[child + 1], heap[child]) > 0) {
+					child++;
+				}
+				if (comparator.compare(heap[child], heap[index]) <= 0) {
+					return;
+				}
+				swap(heap, index, child);
+				index = child;
+			}
+		}
+		
+		private static void swap(int[] heap, int a, int b) {
+			int x = heap[a];
+			heap[a] = heap[b];
+			heap[b] = x;
+		}
+	
+	}
+	
+}
@@ -0,0 +1,501 @@
+package com.devsuperior.dscatalog.services.columnar;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+//conjunto de ids comprimido no estilo Roaring: o id é dividido em chave alta (id >>> 16) e parte baixa (16 bits).
+//cada chave alta tem um contêiner com as partes baixas: um array ordenado de char enquanto tiver até 4096 valores
+//e um bitmap de 65536 bits (1024 longs) acima disso. AND/OR/ANDNOT andam pelas chaves em ordem e operam
+//contêiner a contêiner, de modo que intervalos densos de ids custam poucas palavras de 64 bits.
+//não é thread-safe; aceita ids entre 0 e 2^47 - 1.
+public final class RoaringBitmap {
+	
+	private static final int ARRAY_LIMIT = 4096;
+	private static final long MAX_ID = (1L << 47) - 1;
+	
+	private int[] keys = new int[4];
+	private Container[] containers = new Container[4];
+	private int size;
+	
+	
+	public void add(long id) {
+		check(id);
+		int key = (int) (id >>> 16);
+		char low = (char) id;
+		int index = Arrays.binarySearch(keys, 0, size, key);
+		if (index >= 0) {
+			containers[index] = containers[index].add(low);
+			return;
+		}
+		ArrayContainer container = new ArrayContainer(1);
+		container.add(low);
+		insertAt(-index - 1, key, container);
+	}
+	
+	public void remove(long id) {
+		if (id < 0 || id > MAX_ID) {
+			return;
+		}
+		int index = Arrays.binarySearch(keys, 0, size, (int) (id >>> 16));
+		if (index < 0) {
+			return;
+		}
+		Container container = containers[index].remove((char) id);
+		if (container.cardinality() == 0) {
+			removeAt(index);
+		} else {
+			containers[index] = container;
+		}
+	}
+	
+	public boolean contains(long id) {
+		if (id < 0 || id > MAX_ID) {
+			return false;
+		}
+		int index = Arrays.binarySearch(keys, 0, size, (int) (id >>> 16));
+		return index >= 0 && containers[index].contains((char) id);
+	}
+	
+	public long cardinality() {
+		long cardinality = 0;
+		for (int i = 0; i < size; i++) {
+			cardinality += containers[i].cardinality();
+		}
+		return cardinality;
+	}
+	
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	//ids em ordem crescente
+	public void forEach(LongConsumer action) {
+		for (int i = 0; i < size; i++) {
+			containers[i].forEach(((long) keys[i]) << 16, action);
+		}
+	}
+	
+	public RoaringBitmap copy() {
+		RoaringBitmap copy = new RoaringBitmap();
+		for (int i = 0; i < size; i++) {
+			copy.append(keys[i], containers[i].copy());
+		}
+		return copy;
+	}
+	
+	public static RoaringBitmap and(RoaringBitmap a, RoaringBitmap b) {
+		RoaringBitmap result = new RoaringBitmap();
+		int i = 0;
+		int j = 0;
+		while (i < a.size && j < b.size) {
+			if (a.keys[i] < b.keys[j]) {
+				i++;
+			} else if (a.keys[i] > b.keys[j]) {
+				j++;
+			} else {
+				Container container = a.containers[i].and(b.containers[j]);
+				if (container.cardinality() > 0) {
+					result.append(a.keys[i], container);
+				}
+				i++;
+				j++;
+			}
+		}
+		return result;
+	}
+	
+	public static RoaringBitmap or(RoaringBitmap a, RoaringBitmap b) {
+		RoaringBitmap result = new RoaringBitmap();
+		int i = 0;
+		int j = 0;
+		while (i < a.size || j < b.size) {
+			if (j == b.size || (i < a.size && a.keys[i] < b.keys[j])) {
+				result.append(a.keys[i], a.containers[i].copy());
+				i++;
+			} else if (i == a.size || a.keys[i] > b.keys[j]) {
+				result.append(b.keys[j], b.containers[j].copy());
+				j++;
+			} else {
+				result.append(a.keys[i], a.containers[i].or(b.containers[j]));
+				i++;
+				j++;
+			}
+		}
+		return result;
+	}
+	
+	public static RoaringBitmap andNot(RoaringBitmap a, RoaringBitmap b) {
+		RoaringBitmap result = new RoaringBitmap();
+		int j = 0;
+		for (int i = 0; i < a.size; i++) {
+			while (j < b.size && b.keys[j] < a.keys[i]) {
+				j++;
+			}
+			Container container = j < b.size && b.keys[j] == a.keys[i]
+					? a.containers[i].andNot(b.containers[j])
+					: a.containers[i].copy();
+			if (container.cardinality() > 0) {
+				result.append(a.keys[i], container);
+			}
+		}
+		return result;
+	}
+	
+	//tamanho da interseção sem materializá-la (ex.: facetas)
+	public static long andCardinality(RoaringBitmap a, RoaringBitmap b) {
+		long cardinality = 0;
+		int i = 0;
+		int j = 0;
+		while (i < a.size && j < b.size) {
+			if (a.keys[i] < b.keys[j]) {
+				i++;
+			} else if (a.keys[i] > b.keys[j]) {
+				j++;
+			} else {
+				cardinality += a.containers[i].andCardinality(b.containers[j]);
+				i++;
+				j++;
+			}
+		}
+		return cardinality;
+	}
+	
+	private static void check(long id) {
+		if (id < 0 || id > MAX_ID) {
+			throw new IllegalArgumentException("Id out of range: " + id);
+		}
+	}
+	
+	private void append(int key, Container container) {
+		insertAt(size, key, container);
+	}
+	
+	private void insertAt(int index, int key, Container container) {
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, size * 2);
+			containers = Arrays.copyOf(containers, size * 2);
+		}
+		System.arraycopy(keys, index, keys, index + 1, size - index);
+		System.arraycopy(containers, index, containers, index + 1, size - index);
+		keys[index] = key;
+		containers[index] = container;
+		size++;
+	}
+	
+	private void removeAt(int index) {
+		System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+		System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+		size--;
+		containers[size] = null;
+	}
+	
+	//as operações que podem mudar a densidade devolvem o contêiner no formato adequado (array ou bitmap)
+	private abstract static class Container {
+	
+		abstract Container add(char value);
+	
+		abstract Container remove(char value);
+	
+		abstract boolean contains(char value);
+	
+		abstract int cardinality();
+	
+		abstract Container and(Container other);
+	
+		abstract Container or(Container other);
+	
+		abstract Container andNot(Container other);
+	
+		abstract int andCardinality(Container other);
+	
+		abstract void forEach(long high, LongConsumer action);
+	
+		abstract Container copy();
+	
+		static Container of(long[] words, int cardinality) {
+			if (cardinality > ARRAY_LIMIT) {
+				return new BitmapContainer(words, cardinality);
+			}
+			ArrayContainer container = new ArrayContainer(cardinality);
+			for (int word = 0; word < words.length; word++) {
+				long bits = words[word];
+				while (bits != 0) {
+					container.values[container.cardinality++] = (char) (word * 64 + Long.numberOfTrailingZeros(bits));
+					bits &= bits - 1;
+				}
+			}
+			return container;
+		}
+	
+	}
+	
+	private static final class ArrayContainer extends Container {
+	
+		private char[] values;
+		private int cardinality;
+	
+		private ArrayContainer(int capacity) {
+			values = new char[Math.max(1, capacity)];
+		}
+	
+		@Override
+		Container add(char value) {
+			int index = Arrays.binarySearch(values, 0, cardinality, value);
+			if (index >= 0) {
+				return this;
+			}
+			if (cardinality == ARRAY_LIMIT) {
+				return toBitmap().add(value);
+			}
+			int insertAt = -index - 1;
+			if (cardinality == values.length) {
+				values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, cardinality * 2));
+			}
+			System.arraycopy(values, insertAt, values, insertAt + 1, cardinality - insertAt);
+			values[insertAt] = value;
+			cardinality++;
+			return this;
+		}
+	
+		@Override
+		Container remove(char value) {
+			int index = Arrays.binarySearch(values, 0, cardinality, value);
+			if (index >= 0) {
+				System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+				cardinality--;
+			}
+			return this;
+		}
+	
+		@Override
+		boolean contains(char value) {
+			return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+		}
+	
+		@Override
+		int cardinality() {
+			return cardinality;
+		}
+	
+		@Override
+		Container and(Container other) {
+			ArrayContainer result = new ArrayContainer(cardinality);
+			for (int i = 0; i < cardinality; i++) {
+				if (other.contains(values[i])) {
+					result.values[result.cardinality++] = values[i];
+				}
+			}
+			return result;
+		}
+	
+		@Override
+		Container or(Container other) {
+			if (other instanceof BitmapContainer) {
+				return other.or(this);
+			}
+			ArrayContainer array = (ArrayContainer) other;
+			if (cardinality + array.cardinality > ARRAY_LIMIT) {
+				Container result = toBitmap();
+				for (int i = 0; i < array.cardinality; i++) {
+					result = result.add(array.values[i]);
+				}
+				//valores repetidos podem deixar a união abaixo do limite
+				return result.cardinality() > ARRAY_LIMIT ? result : Container.of(((BitmapContainer) result).words, result.cardinality());
+			}
+			ArrayContainer result = new ArrayContainer(cardinality + array.cardinality);
+			int i = 0;
+			int j = 0;
+			while (i < cardinality || j < array.cardinality) {
+				char next;
+				if (j == array.cardinality || (i < cardinality && values[i] < array.values[j])) {
+					next = values[i++];
+				} else if (i == cardinality || values[i] > array.values[j]) {
+					next = array.values[j++];
+				} else {
+					next = values[i++];
+					j++;
+				}
+				result.values[result.cardinality++] = next;
+			}
+			return result;
+		}
+	
+		@Override
+		Container andNot(Container other) {
+			ArrayContainer result = new ArrayContainer(cardinality);
+			for (int i = 0; i < cardinality; i++) {
+				if (!other.contains(values[i])) {
+					result.values[result.cardinality++] = values[i];
+				}
+			}
+			return result;
+		}
+	
+		@Override
+		int andCardinality(Container other) {
+			int count = 0;
+			for (int i = 0; i < cardinality; i++) {
+				if (other.contains(values[i])) {
+					count++;
+				}
+			}
+			return count;
+		}
+	
+		@Override
+		void forEach(long high, LongConsumer action) {
+			for (int i = 0; i < cardinality; i++) {
+				action.accept(high | values[i]);
+			}
+		}
+	
+		@Override
+		Container copy() {
+			ArrayContainer copy = new ArrayContainer(cardinality);
+			System.arraycopy(values, 0, copy.values, 0, cardinality);
+			copy.cardinality = cardinality;
+			return copy;
+		}
+	
+		private BitmapContainer toBitmap() {
+			long[] words = new long[1024];
+			for (int i = 0; i < cardinality; i++) {
+				words[values[i] >>> 6] |= 1L << values[i];
+			}
+			return new BitmapContainer(words, cardinality);
+		}
+	
+	}
+	
+	private static final class BitmapContainer extends Container {
+	
+		private final long[] words;
+		private int cardinality;
+	
+		private BitmapContainer(long[] words, int cardinality) {
+			this.words = words;
+			this.cardinality = cardinality;
+		}
+	
+		@Override
+		Container add(char value) {
+			long bit = 1L << value;
+			if ((words[value >>> 6] & bit) == 0) {
+				words[value >>> 6] |= bit;
+				cardinality++;
+			}
+			return this;
+		}
+	
+		@Override
+		Container remove(char value) {
+			long bit = 1L << value;
+			if ((words[value >>> 6] & bit) != 0) {
+				words[value >>> 6] &= ~bit;
+				cardinality--;
+			}
+			return cardinality > ARRAY_LIMIT ? this : Container.of(words, cardinality);
+		}
+	
+		@Override
+		boolean contains(char value) {
+			return (words[value >>> 6] & (1L << value)) != 0;
+		}
+	
+		@Override
+		int cardinality() {
+			return cardinality;
+		}
+	
+		@Override
+		Container and(Container other) {
+			if (other instanceof ArrayContainer) {
+				return other.and(this);
+			}
+			long[] result = new long[1024];
+			int count = 0;
+			long[] otherWords = ((BitmapContainer) other).words;
+			for (int i = 0; i < result.length; i++) {
+				result[i] = words[i] & otherWords[i];
+				count += Long.bitCount(result[i]);
+			}
+			return Container.of(result, count);
+		}
+	
+		@Override
+		Container or(Container other) {
+			long[] result = words.clone();
+			int count = cardinality;
+			if (other instanceof ArrayContainer) {
+				ArrayContainer array = (ArrayContainer) other;
+				for (int i = 0; i < array.cardinality; i++) {
+					char value = array.values[i];
+					if ((result[value >>> 6] & (1L << value)) == 0) {
+						result[value >>> 6] |= 1L << value;
+						count++;
+					}
+				}
+				return new BitmapContainer(result, count);
+			}
+			long[] otherWords = ((BitmapContainer) other).words;
+			count = 0;
+			for (int i = 0; i < result.length; i++) {
+				result[i] |= otherWords[i];
+				count += Long.bitCount(result[i]);
+			}
+			return new BitmapContainer(result, count);
+		}
+	
+		@Override
+		Container andNot(Container other) {
+			long[] result = words.clone();
+			if (other instanceof ArrayContainer) {
+				ArrayContainer array = (ArrayContainer) other;
+				for (int i = 0; i < array.cardinality; i++) {
+					result[array.values[i] >>> 6] &= ~(1L << array.values[i]);
+				}
+			} else {
+				long[] otherWords = ((BitmapContainer) other).words;
+				for (int i = 0; i < result.length; i++) {
+					result[i] &= ~otherWords[i];
+				}
+			}
+			int count = 0;
+			for (long word : result) {
+				count += Long.bitCount(word);
+			}
+			return Container.of(result, count);
+		}
+	
+		@Override
+		int andCardinality(Container other) {
+			if (other instanceof ArrayContainer) {
+				return other.andCardinality(this);
+			}
+			long[] otherWords = ((BitmapContainer) other).words;
+			int count = 0;
+			for (int i = 0; i < words.length; i++) {
+				count += Long.bitCount(words[i] & otherWords[i]);
+			}
+			return count;
+		}
+	
+		@Override
+		void forEach(long high, LongConsumer action) {
+			for (int word = 0; word < words.length; word++) {
+				long bits = words[word];
+				while (bits != 0) {
+					action.accept(high | (word * 64 + Long.numberOfTrailingZeros(bits)));
+					bits &= bits - 1;
+				}
+			}
+		}
+	
+		@Override
+		Container copy() {
+			return new BitmapContainer(words.clone(), cardinality);
+		}
+	
+	}
+	
+}
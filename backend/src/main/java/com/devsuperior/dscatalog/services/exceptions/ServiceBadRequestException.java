@@ -0,0 +1,11 @@
+package com.devsuperior.dscatalog.services.exceptions;
+
+public class ServiceBadRequestException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+	
+	//construtor passando argumento para construtor da super classe
+	public ServiceBadRequestException(String msg) {
+		super(msg);
+	}
+
+}
@@ -0,0 +1,128 @@
+package com.devsuperior.dscatalog.services.reactive;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.DatabaseClient.GenericExecuteSpec;
+import org.springframework.stereotype.Service;
+
+import com.devsuperior.dscatalog.dto.CategoryDto;
+import com.devsuperior.dscatalog.dto.ProductDto;
+import com.devsuperior.dscatalog.services.exceptions.ServiceBadRequestException;
+import com.devsuperior.dscatalog.services.exceptions.ServiceNotFoundException;
+import com.devsuperior.dscatalog.services.util.ProductFilter;
+
+import io.r2dbc.spi.Row;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+//leituras não bloqueantes pelo R2DBC, no mesmo banco que o JPA grava (as escritas continuam no ProductService).
+//produto e categorias vêm num único SELECT com LEFT JOIN, ordenado pelo produto: as linhas de um mesmo produto
+//chegam juntas e viram um ProductDto assim que o produto seguinte aparece, então o Flux sai em streaming, no ritmo
+//pedido pelo assinante (backpressure), sem carregar o resultado inteiro nem uma consulta por produto.
+@Service
+public class ReactiveCatalogService {
+	
+	private static final String PRODUCT_COLUMNS = "p.id, p.name, p.description, p.price, p.img_url, p.date";
+	
+	@Autowired
+	private DatabaseClient databaseClient;
+	
+	//nome (contém, sem diferenciar maiúsculas) e categorias (qualquer uma) opcionais, ordenado por nome e id.
+	//size 0 devolve todos os produtos
+	public Flux<ProductDto> findAllProducts(String name, List<Long> categoryIds, int page, int size) {
+		if (page < 0 || size < 0) {
+			return Flux.error(new ServiceBadRequestException("Page and size must not be negative!"));
+		}
+		StringBuilder products = new StringBuilder("SELECT " + PRODUCT_COLUMNS + " FROM tb_product p WHERE 1 = 1");
+		if (!name.isBlank()) {
+			products.append(" AND LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%')) ESCAPE '\\'");
+		}
+		if (!categoryIds.isEmpty()) {
+			products.append(" AND EXISTS (SELECT 1 FROM tb_product_category x WHERE x.product_id = p.id"
+					+ " AND x.category_id IN (:categoryIds))");
+		}
+		products.append(" ORDER BY p.name, p.id");
+		if (size > 0) {
+			products.append(" LIMIT :limit OFFSET :offset");
+		}
+		GenericExecuteSpec spec = databaseClient.sql(withCategories(products.toString()));
+		if (!name.isBlank()) {
+			spec = spec.bind("name", ProductFilter.likePattern(name));
+		}
+		if (!categoryIds.isEmpty()) {
+			spec = spec.bind("categoryIds", categoryIds);
+		}
+		if (size > 0) {
+			spec = spec.bind("limit", size).bind("offset", (long) page * size);
+		}
+		return toProducts(spec);
+	}
+	
+	public Mono<ProductDto> findProductById(Long id) {
+		String product = "SELECT " + PRODUCT_COLUMNS + " FROM tb_product p WHERE p.id = :id";
+		return toProducts(databaseClient.sql(withCategories(product)).bind("id", id)).next()
+				.switchIfEmpty(Mono.error(() -> new ServiceNotFoundException("Entity Not Found!")));
+	}
+	
+	public Flux<CategoryDto> findAllCategories() {
+		return databaseClient.sql("SELECT c.id, c.name FROM tb_category c ORDER BY c.name, c.id")
+				.map((row, metadata) -> new CategoryDto(row.get("id", Long.class), row.get("name", String.class)))
+				.all();
+	}
+	
+	//a consulta de produtos vira tabela derivada: LIMIT e OFFSET contam produtos, não linhas do JOIN
+	private static String withCategories(String products) {
+		return "SELECT p.*, c.id AS category_id, c.name AS category_name FROM (" + products + ") p "
+				+ "LEFT JOIN tb_product_category pc ON pc.product_id = p.id "
+				+ "LEFT JOIN tb_category c ON c.id = pc.category_id "
+				+ "ORDER BY p.name, p.id, c.name";
+	}
+	
+	private static Flux<ProductDto> toProducts(GenericExecuteSpec spec) {
+		return spec.map((row, metadata) -> new ProductRow(row)).all()
+				.bufferUntilChanged(x -> x.id)
+				.map(ReactiveCatalogService::toProduct);
+	}
+	
+	private static ProductDto toProduct(List<ProductRow> rows) {
+		ProductRow first = rows.get(0);
+		ProductDto dto = new ProductDto(first.id, first.name, first.description, first.price, first.imgUrl, first.date);
+		rows.stream().filter(x -> x.categoryId != null)
+				.forEach(x -> dto.getCategories().add(new CategoryDto(x.categoryId, x.categoryName)));
+		return dto;
+	}
+	
+	//uma linha do JOIN, lida enquanto o Row é válido (dentro do map do DatabaseClient)
+	private static final class ProductRow {
+	
+		private final Long id;
+		private final String name;
+		private final String description;
+		private final Double price;
+		private final String imgUrl;
+		private final Instant date;
+		private final Long categoryId;
+		private final String categoryName;
+	
+	
+		private ProductRow(Row row) {
+			id = row.get("id", Long.class);
+			name = row.get("name", String.class);
+			description = row.get("description", String.class);
+			price = row.get("price", Double.class);
+			imgUrl = row.get("img_url", String.class);
+			//TIMESTAMP WITHOUT TIME ZONE gravado pelo Hibernate no fuso da JVM
+			LocalDateTime localDate = row.get("date", LocalDateTime.class);
+			date = localDate == null ? null : localDate.atZone(ZoneId.systemDefault()).toInstant();
+			categoryId = row.get("category_id", Long.class);
+			categoryName = row.get("category_name", String.class);
+		}
+	
+	}
+	
+}
@@ -0,0 +1,339 @@
+package com.devsuperior.dscatalog.services.search;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.devsuperior.dscatalog.dto.ProductSummaryDto;
+import com.devsuperior.dscatalog.repositories.ProductRepository;
+import com.devsuperior.dscatalog.repositories.projections.ProductTextProjection;
+import com.devsuperior.dscatalog.routing.DataSourceRouting;
+import com.devsuperior.dscatalog.services.util.IndexRebuildScheduler;
+import com.devsuperior.dscatalog.services.util.ProductsChanged;
+import com.devsuperior.dscatalog.services.util.ProductsChanged.Reload;
+
+//índice invertido em memória sobre name e description: termo -> (id do produto -> peso do termo no produto).
+//é montado na subida em paralelo (fork/join) e mantido pelo evento ProductsChanged, aplicado após o commit.
+//a busca exige todos os termos e ordena por TF-IDF, com os termos do nome valendo mais que os da descrição.
+@Component
+public class ProductSearchIndex {
+	
+	private static final Logger log = LoggerFactory.getLogger(ProductSearchIndex.class);
+	
+	private static final int NAME_WEIGHT = 3;
+	private static final int DESCRIPTION_WEIGHT = 1;
+	private static final int BUILD_THRESHOLD = 1000;
+	
+	@Autowired
+	private ProductRepository productRepository;
+	
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+	
+	@Autowired
+	private IndexRebuildScheduler rebuildScheduler;
+	
+	//false no modo de importação: nada de carga na subida nem de manutenção a cada produto gravado
+	@Value("${dscatalog.indexes.enabled:true}")
+	private boolean enabled = true;
+	
+	private volatile Index index = new Index(new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+	
+	//alterações que chegam durante uma reconstrução são reaplicadas sobre o índice novo
+	private List<Consumer<Index>> pendingChanges;
+	private final Object rebuildLock = new Object();
+	//antes da primeira carga as alterações são descartadas: ela já lerá tudo o que teve commit
+	private boolean loaded;
+	
+	
+	@EventListener(ApplicationReadyEvent.class)
+	public void onApplicationReady() {
+		if (!enabled) {
+			return;
+		}
+		rebuild();
+	}
+	
+	//uma reconstrução por vez, para que duas sobrepostas não disputem a mesma lista de pendências
+	public void rebuild() {
+		synchronized (rebuildLock) {
+			long start = System.nanoTime();
+			synchronized (this) {
+				pendingChanges = new ArrayList<>();
+			}
+			Index rebuilt;
+			try {
+				TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+				transaction.setReadOnly(true);
+				List<ProductTextProjection> products = DataSourceRouting.onPrimary(
+						() -> transaction.execute(status -> productRepository.findAllTexts()));
+				rebuilt = concurrent(ForkJoinPool.commonPool().invoke(new BuildTask(products, 0, products.size())));
+			} catch (RuntimeException e) {
+				synchronized (this) {
+					pendingChanges = null;
+				}
+				throw e;
+			}
+			synchronized (this) {
+				pendingChanges.forEach(x -> x.accept(rebuilt));
+				pendingChanges = null;
+				index = rebuilt;
+				loaded = true;
+			}
+			log.info("Product search index built: {} products, {} terms in {} ms", rebuilt.documents.size(),
+					rebuilt.postings.size(), (System.nanoTime() - start) / 1_000_000);
+		}
+	}
+	
+	//só depois do commit de quem gravou (ou na hora, se a escrita não estava numa transação). escritas em massa
+	//que não dizem quais produtos mudaram (inclusive as de preço, que aparece nos resultados) recarregam o índice
+	//em segundo plano
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+	public void onProductsChanged(ProductsChanged event) {
+		if (!enabled) {
+			return;
+		}
+		List<Document> documents = new ArrayList<>();
+		event.getSaved().forEach(x -> documents.add(new Document(x.getId(), x.getName(), x.getDescription(),
+				x.getPrice(), x.getImgUrl(), x.getDate())));
+		apply(x -> {
+			documents.forEach(document -> x.put(document));
+			event.getRemoved().forEach(id -> x.remove(id));
+		});
+		if (event.getReload() != Reload.NONE) {
+			rebuildScheduler.schedule("product-search-index", () -> rebuild());
+		}
+	}
+	
+	public Page<ProductSummaryDto> search(String query, Pageable pageable) {
+		Index current = index;
+		List<Hit> hits = match(current, query);
+		hits.sort(Comparator.comparingDouble((Hit x) -> x.score).reversed()
+				.thenComparing(x -> x.document.name)
+				.thenComparing(x -> x.document.id));
+		
+		List<ProductSummaryDto> content = new ArrayList<>();
+		long offset = pageable.isPaged() ? pageable.getOffset() : 0L;
+		int limit = pageable.isPaged() ? pageable.getPageSize() : hits.size();
+		for (long i = offset; i < hits.size() && content.size() < limit; i++) {
+			content.add(hits.get((int) i).document.toDto());
+		}
+		return new PageImpl<>(content, pageable, hits.size());
+	}
+	
+	//todos os ids que casam com a busca, sem ordenar (ex.: para as facetas)
+	public List<Long> findIds(String query) {
+		List<Long> ids = new ArrayList<>();
+		match(index, query).forEach(x -> ids.add(x.document.id));
+		return ids;
+	}
+	
+	public int size() {
+		return index.documents.size();
+	}
+	
+	//percorre a menor lista de postings e confere os demais termos por lookup
+	private static List<Hit> match(Index current, String query) {
+		Set<String> terms = new LinkedHashSet<>(TextAnalyzer.analyze(query));
+		if (terms.isEmpty()) {
+			return new ArrayList<>();
+		}
+		List<Map<Long, Integer>> postings = new ArrayList<>();
+		for (String term : terms) {
+			Map<Long, Integer> posting = current.postings.get(term);
+			if (posting == null) {
+				return new ArrayList<>();
+			}
+			postings.add(posting);
+		}
+		postings.sort(Comparator.comparingInt(x -> x.size()));
+		
+		int total = current.documents.size();
+		double[] idf = new double[postings.size()];
+		for (int i = 0; i < postings.size(); i++) {
+			int frequency = postings.get(i).size();
+			idf[i] = Math.log(1.0 + (total - frequency + 0.5) / (frequency + 0.5));
+		}
+		
+		List<Hit> hits = new ArrayList<>();
+		for (Map.Entry<Long, Integer> candidate : postings.get(0).entrySet()) {
+			double score = candidate.getValue() * idf[0];
+			boolean matchesAll = true;
+			for (int i = 1; i < postings.size() && matchesAll; i++) {
+				Integer weight = postings.get(i).get(candidate.getKey());
+				matchesAll = weight != null;
+				score += matchesAll ? weight * idf[i] : 0;
+			}
+			Document document = current.documents.get(candidate.getKey());
+			if (matchesAll && document != null) {
+				hits.add(new Hit(document, score / Math.sqrt(document.length)));
+			}
+		}
+		return hits;
+	}
+	
+	//o índice publicado usa mapas concorrentes, pois a busca lê enquanto as escritas o alteram
+	private static Index concurrent(Index built) {
+		Map<String, Map<Long, Integer>> postings = new ConcurrentHashMap<>();
+		built.postings.forEach((term, posting) -> postings.put(term, new ConcurrentHashMap<>(posting)));
+		return new Index(postings, new ConcurrentHashMap<>(built.documents));
+	}
+	
+	private synchronized void apply(Consumer<Index> change) {
+		if (!loaded && pendingChanges == null) {
+			return;
+		}
+		change.accept(index);
+		if (pendingChanges != null) {
+			pendingChanges.add(change);
+		}
+	}
+	
+	private static final class Index {
+		
+		private final Map<String, Map<Long, Integer>> postings;
+		private final Map<Long, Document> documents;
+		
+		private Index(Map<String, Map<Long, Integer>> postings, Map<Long, Document> documents) {
+			this.postings = postings;
+			this.documents = documents;
+		}
+		
+		private void put(Document document) {
+			remove(document.id);
+			document.weights.forEach((term, weight) ->
+					postings.computeIfAbsent(term, x -> new ConcurrentHashMap<>()).put(document.id, weight));
+			documents.put(document.id, document);
+		}
+		
+		private void remove(Long id) {
+			Document previous = documents.remove(id);
+			if (previous == null) {
+				return;
+			}
+			for (String term : previous.weights.keySet()) {
+				postings.computeIfPresent(term, (key, posting) -> {
+					posting.remove(id);
+					return posting.isEmpty() ? null : posting;
+				});
+			}
+		}
+	
+	}
+	
+	private static final class Document {
+		
+		private final Long id;
+		private final String name;
+		private final Double price;
+		private final String imgUrl;
+		private final Instant date;
+		private final Map<String, Integer> weights = new HashMap<>();
+		private final int length;
+		
+		private Document(Long id, String name, String description, Double price, String imgUrl, Instant date) {
+			this.id = id;
+			this.name = name;
+			this.price = price;
+			this.imgUrl = imgUrl;
+			this.date = date;
+			int terms = 0;
+			for (String term : TextAnalyzer.analyze(name)) {
+				weights.merge(term, NAME_WEIGHT, Integer::sum);
+				terms++;
+			}
+			for (String term : TextAnalyzer.analyze(description)) {
+				weights.merge(term, DESCRIPTION_WEIGHT, Integer::sum);
+				terms++;
+			}
+			this.length = Math.max(1, terms);
+		}
+		
+		private ProductSummaryDto toDto() {
+			return new ProductSummaryDto(id, name, price, imgUrl, date);
+		}
+	
+	}
+	
+	private static final class Hit {
+		
+		private final Document document;
+		private final double score;
+		
+		private Hit(Document document, double score) {
+			this.document = document;
+			this.score = score;
+		}
+	
+	}
+	
+	//divide a lista ao meio até o limite, indexa cada parte em paralelo e junta os índices parciais
+	private static final class BuildTask extends RecursiveTask<Index> {
+		private static final long serialVersionUID = 1L;
+		
+		private final transient List<ProductTextProjection> products;
+		private final int from;
+		private final int to;
+		
+		private BuildTask(List<ProductTextProjection> products, int from, int to) {
+			this.products = products;
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected Index compute() {
+			if (to - from <= BUILD_THRESHOLD) {
+				Index partial = new Index(new HashMap<>(), new HashMap<>());
+				for (int i = from; i < to; i++) {
+					ProductTextProjection x = products.get(i);
+					Document document = new Document(x.getId(), x.getName(), x.getDescription(), x.getPrice(),
+							x.getImgUrl(), x.getDate());
+					document.weights.forEach((term, weight) ->
+							partial.postings.computeIfAbsent(term, key -> new HashMap<>()).put(document.id, weight));
+					partial.documents.put(document.id, document);
+				}
+				return partial;
+			}
+			int middle = (from + to) >>> 1;
+			BuildTask left = new BuildTask(products, from, middle);
+			left.fork();
+			Index right = new BuildTask(products, middle, to).compute();
+			return merge(left.join(), right);
+		}
+		
+		//os ids das duas partes são disjuntos: basta somar as postings de cada termo
+		private static Index merge(Index left, Index right) {
+			right.postings.forEach((term, posting) ->
+					left.postings.computeIfAbsent(term, x -> new HashMap<>()).putAll(posting));
+			left.documents.putAll(right.documents);
+			return left;
+		}
+	
+	}
+	
+}
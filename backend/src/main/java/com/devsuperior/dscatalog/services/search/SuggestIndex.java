@@ -0,0 +1,480 @@
+package com.devsuperior.dscatalog.services.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.devsuperior.dscatalog.dto.SuggestionDto;
+import com.devsuperior.dscatalog.dto.SuggestionDto.Type;
+import com.devsuperior.dscatalog.repositories.CategoryRepository;
+import com.devsuperior.dscatalog.repositories.ProductRepository;
+import com.devsuperior.dscatalog.routing.DataSourceRouting;
+import com.devsuperior.dscatalog.services.util.IndexRebuildScheduler;
+import com.devsuperior.dscatalog.services.util.ProductsChanged;
+import com.devsuperior.dscatalog.services.util.ProductsChanged.Reload;
+import com.devsuperior.dscatalog.services.util.TransactionHooks;
+
+//autocompletar sobre os nomes de produtos e categorias: uma trie das palavras (sem acento, minúsculas) em que
+//cada nó guarda pronto o seu top-k, de modo que responder ao começo de uma palavra custa só descer a trie.
+//cada palavra distinta de um nome entra uma única vez; consultas com mais de uma palavra partem dos itens da
+//palavra completa mais rara e conferem a sequência no próprio nome.
+//a ordem é fixa por item: categorias antes de produtos, depois nomes mais curtos e então ordem alfabética.
+@Component
+public class SuggestIndex {
+	
+	private static final Logger log = LoggerFactory.getLogger(SuggestIndex.class);
+	
+	private static final Comparator<Entry> RANKING = Comparator.comparing((Entry x) -> x.type)
+			.thenComparingInt(x -> x.text.length())
+			.thenComparing(x -> x.text)
+			.thenComparing(x -> x.id);
+	
+	@Autowired
+	private ProductRepository productRepository;
+	
+	@Autowired
+	private CategoryRepository categoryRepository;
+	
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+	
+	@Autowired
+	private IndexRebuildScheduler rebuildScheduler;
+	
+	//desligado no modo de importação pela linha de comando, que encerra logo depois sem atender consultas
+	@Value("${dscatalog.indexes.enabled:true}")
+	private boolean enabled = true;
+	
+	@Value("${dscatalog.suggest.top-k:10}")
+	private int topK = 10;
+	
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private Trie trie = new Trie(topK);
+	
+	//alterações que chegam durante uma recarga são reaplicadas sobre a trie nova
+	private List<Consumer<Trie>> pendingChanges;
+	private final Object rebuildLock = new Object();
+	//antes da primeira carga as alterações são descartadas: ela já lerá tudo o que teve commit
+	private boolean loaded;
+	
+	
+	@EventListener(ApplicationReadyEvent.class)
+	public void onApplicationReady() {
+		if (!enabled) {
+			return;
+		}
+		rebuild();
+	}
+	
+	//uma recarga por vez; a trie nova é montada fora do lock de escrita e só então publicada
+	public void rebuild() {
+		synchronized (rebuildLock) {
+			long start = System.nanoTime();
+			synchronized (this) {
+				pendingChanges = new ArrayList<>();
+			}
+			Trie rebuilt;
+			try {
+				TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+				transaction.setReadOnly(true);
+				rebuilt = DataSourceRouting.onPrimary(() -> transaction.execute(status -> load()));
+			} catch (RuntimeException e) {
+				synchronized (this) {
+					pendingChanges = null;
+				}
+				throw e;
+			}
+			synchronized (this) {
+				pendingChanges.forEach(x -> x.accept(rebuilt));
+				pendingChanges = null;
+				write(() -> trie = rebuilt);
+				loaded = true;
+			}
+			log.info("Suggest index built: {} names in {} ms", rebuilt.entries.size(),
+					(System.nanoTime() - start) / 1_000_000);
+		}
+	}
+	
+	//no máximo top-k itens, que é o que cada nó guarda pronto (o ProductService recusa limit maior)
+	public List<SuggestionDto> suggest(String prefix, int limit) {
+		List<String> words = TextAnalyzer.words(prefix);
+		if (words.isEmpty()) {
+			return List.of();
+		}
+		//"pc " deve continuar casando só com a palavra seguinte; sem o espaço, a última palavra é só um começo
+		boolean open = !Character.isWhitespace(prefix.charAt(prefix.length() - 1));
+		int k = Math.min(limit, topK);
+		lock.readLock().lock();
+		try {
+			Entry[] found;
+			if (open && words.size() == 1) {
+				Node node = trie.find(words.get(0));
+				found = node == null ? Node.NO_ENTRIES : node.top;
+			} else {
+				found = trie.match(words, open, k);
+			}
+			List<SuggestionDto> result = new ArrayList<>(Math.min(found.length, k));
+			for (int i = 0; i < found.length && i < k; i++) {
+				result.add(new SuggestionDto(found[i].type, found[i].id, found[i].text));
+			}
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	public int getTopK() {
+		return topK;
+	}
+	
+	//categorias (CategoryService): as alterações só entram depois do commit da transação corrente (ou na hora, fora
+	//de transação). os produtos chegam pelo evento ProductsChanged
+	public void put(Type type, Long id, String name) {
+		if (!enabled) {
+			return;
+		}
+		Entry entry = new Entry(type, id, name);
+		TransactionHooks.afterCommit(() -> apply(x -> {
+			x.remove(entry);
+			x.add(entry);
+		}));
+	}
+	
+	public void remove(Type type, List<Long> ids) {
+		if (!enabled) {
+			return;
+		}
+		List<Entry> removed = ids.stream().map(x -> new Entry(type, x, null)).collect(Collectors.toList());
+		TransactionHooks.afterCommit(() -> apply(x -> removed.forEach(entry -> x.remove(entry))));
+	}
+	
+	//só depois do commit de quem gravou. DELETEs em massa que não dizem quais produtos saíram recarregam a trie em
+	//segundo plano; reajustes de preço não a afetam
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+	public void onProductsChanged(ProductsChanged event) {
+		if (!enabled) {
+			return;
+		}
+		List<Entry> saved = event.getSaved().stream().map(x -> new Entry(Type.PRODUCT, x.getId(), x.getName()))
+				.collect(Collectors.toList());
+		if (!saved.isEmpty() || !event.getRemoved().isEmpty()) {
+			apply(x -> {
+				saved.forEach(entry -> {
+					x.remove(entry);
+					x.add(entry);
+				});
+				event.getRemoved().forEach(id -> x.remove(new Entry(Type.PRODUCT, id, null)));
+			});
+		}
+		if (event.getReload() == Reload.ALL) {
+			rebuildScheduler.schedule("suggest-index", () -> rebuild());
+		}
+	}
+	
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return trie.entries.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	private Trie load() {
+		Trie loaded = new Trie(topK);
+		categoryRepository.findAll().forEach(x -> loaded.add(new Entry(Type.CATEGORY, x.getId(), x.getName())));
+		productRepository.findAllNames().forEach(x -> loaded.add(new Entry(Type.PRODUCT, x.getId(), x.getName())));
+		return loaded;
+	}
+	
+	private synchronized void apply(Consumer<Trie> change) {
+		if (!loaded && pendingChanges == null) {
+			return;
+		}
+		write(() -> change.accept(trie));
+		if (pendingChanges != null) {
+			pendingChanges.add(change);
+		}
+	}
+	
+	private void write(Runnable change) {
+		lock.writeLock().lock();
+		try {
+			change.run();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	private static final class Trie {
+		
+		private final int topK;
+		private final Node root = new Node();
+		private final Map<Entry, Entry> entries = new HashMap<>();
+		
+		private Trie(int topK) {
+			this.topK = topK;
+		}
+		
+		private void add(Entry entry) {
+			if (entry.words.length == 0) {
+				return;
+			}
+			entries.put(entry, entry);
+			for (String word : distinct(entry.words)) {
+				Node node = root;
+				for (int i = 0; i < word.length(); i++) {
+					node = node.childOrCreate(word.charAt(i));
+					node.offer(entry, topK);
+				}
+				node.addTerminal(entry);
+			}
+		}
+		
+		//desce o caminho de cada palavra do item e recompõe o top-k de baixo para cima, a partir dos filhos e dos
+		//terminais
+		private void remove(Entry probe) {
+			Entry entry = entries.remove(probe);
+			if (entry == null) {
+				return;
+			}
+			for (String word : distinct(entry.words)) {
+				Node[] path = new Node[word.length() + 1];
+				path[0] = root;
+				for (int i = 0; i < word.length(); i++) {
+					path[i + 1] = path[i].child(word.charAt(i));
+				}
+				path[word.length()].removeTerminal(entry);
+				for (int i = word.length(); i > 0; i--) {
+					path[i].recompute(topK);
+					if (path[i].isEmpty()) {
+						path[i - 1].removeChild(word.charAt(i - 1));
+					}
+				}
+			}
+		}
+		
+		private Node find(String word) {
+			Node node = root;
+			for (int i = 0; i < word.length() && node != null; i++) {
+				node = node.child(word.charAt(i));
+			}
+			return node;
+		}
+		
+		//consultas de várias palavras: os candidatos são os itens da palavra completa com menos itens
+		private Entry[] match(List<String> words, boolean open, int k) {
+			int complete = open ? words.size() - 1 : words.size();
+			Node rarest = null;
+			for (int i = 0; i < complete; i++) {
+				Node node = find(words.get(i));
+				if (node == null || node.terminalCount == 0) {
+					return Node.NO_ENTRIES;
+				}
+				if (rarest == null || node.terminalCount < rarest.terminalCount) {
+					rarest = node;
+				}
+			}
+			Entry[] found = Node.NO_ENTRIES;
+			for (int i = 0; i < rarest.terminalCount; i++) {
+				if (matches(rarest.terminals[i].words, words, open)) {
+					found = Node.offerTo(found, rarest.terminals[i], k);
+				}
+			}
+			return found;
+		}
+		
+		//as palavras da consulta aparecem em sequência no nome. a última pode ser só o começo de uma palavra (open) ou,
+		//com espaço no fim da consulta, precisa ser seguida de mais uma palavra
+		private static boolean matches(String[] words, List<String> query, boolean open) {
+			int n = query.size();
+			int lastStart = open ? words.length - n : words.length - n - 1;
+			for (int start = 0; start <= lastStart; start++) {
+				int i = 0;
+				while (i < n - 1 && words[start + i].equals(query.get(i))) {
+					i++;
+				}
+				String word = words[start + i];
+				if (i == n - 1 && (open ? word.startsWith(query.get(i)) : word.equals(query.get(i)))) {
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		private static Set<String> distinct(String[] words) {
+			return new LinkedHashSet<>(Arrays.asList(words));
+		}
+	
+	}
+	
+	private static final class Entry {
+		
+		private final Type type;
+		private final Long id;
+		private final String text;
+		private final String[] words;
+		
+		private Entry(Type type, Long id, String text) {
+			this.type = type;
+			this.id = id;
+			this.text = text;
+			this.words = TextAnalyzer.words(text).toArray(new String[0]);
+		}
+		
+		@Override
+		public int hashCode() {
+			return Objects.hash(type, id);
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Entry)) {
+				return false;
+			}
+			Entry other = (Entry) obj;
+			return type == other.type && Objects.equals(id, other.id);
+		}
+	
+	}
+	
+	//filhos, terminais e top-k em arrays (os filhos ordenados, com busca binária) em vez de mapas e listas, para a
+	//trie ocupar pouca memória
+	private static final class Node {
+		
+		private static final char[] NO_KEYS = new char[0];
+		private static final Node[] NO_CHILDREN = new Node[0];
+		private static final Entry[] NO_ENTRIES = new Entry[0];
+		
+		private char[] keys = NO_KEYS;
+		private Node[] children = NO_CHILDREN;
+		//itens em que o caminho até aqui é uma palavra completa; só as terminalCount primeiras posições valem
+		private Entry[] terminals = NO_ENTRIES;
+		private int terminalCount;
+		private Entry[] top = NO_ENTRIES;
+		
+		private Node child(char c) {
+			int index = Arrays.binarySearch(keys, c);
+			return index < 0 ? null : children[index];
+		}
+		
+		private Node childOrCreate(char c) {
+			int index = Arrays.binarySearch(keys, c);
+			if (index >= 0) {
+				return children[index];
+			}
+			int insertAt = -index - 1;
+			char[] newKeys = new char[keys.length + 1];
+			Node[] newChildren = new Node[children.length + 1];
+			System.arraycopy(keys, 0, newKeys, 0, insertAt);
+			System.arraycopy(children, 0, newChildren, 0, insertAt);
+			newKeys[insertAt] = c;
+			newChildren[insertAt] = new Node();
+			System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+			System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+			keys = newKeys;
+			children = newChildren;
+			return newChildren[insertAt];
+		}
+		
+		private void removeChild(char c) {
+			int index = Arrays.binarySearch(keys, c);
+			if (index < 0) {
+				return;
+			}
+			char[] newKeys = new char[keys.length - 1];
+			Node[] newChildren = new Node[children.length - 1];
+			System.arraycopy(keys, 0, newKeys, 0, index);
+			System.arraycopy(children, 0, newChildren, 0, index);
+			System.arraycopy(keys, index + 1, newKeys, index, keys.length - index - 1);
+			System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+			keys = newKeys;
+			children = newChildren;
+		}
+		
+		private void addTerminal(Entry entry) {
+			if (terminalCount == terminals.length) {
+				terminals = Arrays.copyOf(terminals, Math.max(1, terminalCount * 2));
+			}
+			terminals[terminalCount++] = entry;
+		}
+		
+		//a ordem dos terminais não importa: o último ocupa a posição do removido
+		private void removeTerminal(Entry entry) {
+			for (int i = 0; i < terminalCount; i++) {
+				if (terminals[i].equals(entry)) {
+					terminals[i] = terminals[--terminalCount];
+					terminals[terminalCount] = null;
+					break;
+				}
+			}
+			if (terminalCount == 0) {
+				terminals = NO_ENTRIES;
+			}
+		}
+		
+		private boolean isEmpty() {
+			return keys.length == 0 && terminalCount == 0;
+		}
+		
+		private void offer(Entry entry, int k) {
+			top = offerTo(top, entry, k);
+		}
+		
+		private void recompute(int k) {
+			Entry[] merged = NO_ENTRIES;
+			for (int i = 0; i < terminalCount; i++) {
+				merged = offerTo(merged, terminals[i], k);
+			}
+			for (Node child : children) {
+				for (Entry entry : child.top) {
+					merged = offerTo(merged, entry, k);
+				}
+			}
+			top = merged;
+		}
+		
+		//devolve o top-k com o item na sua posição, ou o mesmo array se ele já estiver lá ou ficar de fora
+		private static Entry[] offerTo(Entry[] top, Entry entry, int k) {
+			int index = 0;
+			while (index < top.length && RANKING.compare(top[index], entry) < 0) {
+				index++;
+			}
+			if (index >= k || (index < top.length && RANKING.compare(top[index], entry) == 0)) {
+				return top;
+			}
+			Entry[] merged = new Entry[Math.min(top.length + 1, k)];
+			System.arraycopy(top, 0, merged, 0, index);
+			merged[index] = entry;
+			System.arraycopy(top, index, merged, index + 1, merged.length - index - 1);
+			return merged;
+		}
+	
+	}
+	
+}
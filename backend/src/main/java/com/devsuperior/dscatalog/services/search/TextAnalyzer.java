@@ -0,0 +1,57 @@
+package com.devsuperior.dscatalog.services.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+//quebra textos em termos de busca: minúsculas, sem acentos ("Eletrônicos" -> "eletronicos"),
+//separados por qualquer caractere que não seja letra ou dígito e sem as stopwords mais comuns do português
+public final class TextAnalyzer {
+	
+	private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+	private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+	private static final Set<String> STOPWORDS = Set.of(
+			"a", "o", "as", "os", "e", "de", "da", "do", "das", "dos", "em", "na", "no", "nas", "nos",
+			"um", "uma", "para", "por", "com", "sem", "que", "se", "ao", "the", "of", "and");
+	
+	private TextAnalyzer() {
+	}
+	
+	
+	public static String fold(String text) {
+		String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+		return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+	}
+	
+	//palavras sem acento e em minúsculas, incluindo stopwords (para casar prefixos como "the lo")
+	public static List<String> words(String text) {
+		List<String> words = new ArrayList<>();
+		if (text == null || text.isBlank()) {
+			return words;
+		}
+		for (String word : SEPARATORS.split(fold(text))) {
+			if (!word.isEmpty()) {
+				words.add(word);
+			}
+		}
+		return words;
+	}
+	
+	//termos na ordem em que aparecem (com repetições, para a frequência no documento)
+	public static List<String> analyze(String text) {
+		List<String> terms = new ArrayList<>();
+		if (text == null || text.isBlank()) {
+			return terms;
+		}
+		for (String term : SEPARATORS.split(fold(text))) {
+			if (!term.isEmpty() && !STOPWORDS.contains(term)) {
+				terms.add(term);
+			}
+		}
+		return terms;
+	}
+
+}
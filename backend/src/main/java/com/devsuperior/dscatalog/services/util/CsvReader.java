@@ -0,0 +1,80 @@
+package com.devsuperior.dscatalog.services.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+//leitor de CSV (RFC 4180) registro a registro: aceita campos entre aspas com vírgulas,
+//aspas duplicadas e quebras de linha, sem carregar o arquivo inteiro
+public class CsvReader {
+	
+	private final Reader reader;
+	private long line = 1;
+	private long recordLine;
+	
+	
+	public CsvReader(Reader reader) {
+		this.reader = reader;
+	}
+	
+	
+	//próximo registro, ou null no fim do arquivo
+	public List<String> readRecord() throws IOException {
+		int c = read();
+		while (c == '\r' || c == '\n') {
+			c = read();
+		}
+		if (c < 0) {
+			return null;
+		}
+		recordLine = line;
+		List<String> fields = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		while (true) {
+			if (quoted) {
+				if (c < 0) {
+					throw new IOException("Unterminated quoted field at line " + recordLine);
+				}
+				if (c == '"') {
+					int next = read();
+					if (next == '"') {
+						field.append('"');
+					} else {
+						quoted = false;
+						c = next;
+						continue;
+					}
+				} else {
+					field.append((char) c);
+				}
+			} else if (c == '"' && field.length() == 0) {
+				quoted = true;
+			} else if (c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else if (c == '\n' || c == '\r' || c < 0) {
+				fields.add(field.toString());
+				return fields;
+			} else {
+				field.append((char) c);
+			}
+			c = read();
+		}
+	}
+	
+	//linha em que começou o último registro lido
+	public long getRecordLine() {
+		return recordLine;
+	}
+	
+	private int read() throws IOException {
+		int c = reader.read();
+		if (c == '\n') {
+			line++;
+		}
+		return c;
+	}
+
+}
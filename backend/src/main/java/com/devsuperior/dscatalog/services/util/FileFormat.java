@@ -0,0 +1,43 @@
+package com.devsuperior.dscatalog.services.util;
+
+import com.devsuperior.dscatalog.services.exceptions.ServiceBadRequestException;
+
+//formatos de arquivo aceitos na exportação e na importação de produtos
+public enum FileFormat {
+	
+	NDJSON("application/x-ndjson", "ndjson"),
+	CSV("text/csv", "csv");
+	
+	private final String contentType;
+	private final String extension;
+	
+	FileFormat(String contentType, String extension) {
+		this.contentType = contentType;
+		this.extension = extension;
+	}
+	
+	
+	public String getContentType() {
+		return contentType;
+	}
+
+	public String getExtension() {
+		return extension;
+	}
+	
+	public static FileFormat from(String value) {
+		for (FileFormat format : values()) {
+			if (format.extension.equalsIgnoreCase(value)) {
+				return format;
+			}
+		}
+		throw new ServiceBadRequestException("Invalid Format!");
+	}
+	
+	//formato pela extensão do arquivo (usado pelo modo de linha de comando)
+	public static FileFormat fromFileName(String fileName) {
+		int dot = fileName.lastIndexOf('.');
+		return from(dot < 0 ? "" : fileName.substring(dot + 1));
+	}
+
+}
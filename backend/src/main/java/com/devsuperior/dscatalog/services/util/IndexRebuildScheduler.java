@@ -0,0 +1,49 @@
+package com.devsuperior.dscatalog.services.util;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+//recargas dos índices em memória fora da thread da requisição, uma de cada vez.
+//pedidos para um índice que já tem recarga esperando na fila viram um só: a recarga da fila ainda vai ler o banco
+//depois de todos eles. um pedido feito durante a recarga em andamento entra na fila de novo
+@Component
+public class IndexRebuildScheduler {
+	
+	private static final Logger log = LoggerFactory.getLogger(IndexRebuildScheduler.class);
+	
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "index-rebuild");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private final Set<String> queued = ConcurrentHashMap.newKeySet();
+	
+	
+	public void schedule(String index, Runnable rebuild) {
+		if (!queued.add(index)) {
+			return;
+		}
+		executor.execute(() -> {
+			queued.remove(index);
+			try {
+				rebuild.run();
+			} catch (RuntimeException e) {
+				log.error("Rebuild of {} failed", index, e);
+			}
+		});
+	}
+	
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+	
+}
@@ -0,0 +1,59 @@
+package com.devsuperior.dscatalog.services.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.springframework.data.domain.Sort.Direction;
+
+import com.devsuperior.dscatalog.services.exceptions.ServiceBadRequestException;
+
+//token opaco da paginação por keyset (seek): guarda a direção e a chave (name, id)
+//da última linha entregue, para a próxima página começar logo depois dela sem OFFSET.
+public final class KeysetCursor {
+	
+	//maior página por keyset: o LIMIT vem do cliente e não pode virar uma varredura da tabela
+	public static final int MAX_SIZE = 100;
+	
+	private static final String SEPARATOR = ":";
+	
+	private final Direction direction;
+	private final Long id;
+	private final String name;
+	
+	
+	public KeysetCursor(Direction direction, Long id, String name) {
+		this.direction = direction;
+		this.id = id;
+		this.name = name;
+	}
+	
+	
+	public Direction getDirection() {
+		return direction;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+	
+	
+	public String encode() {
+		String raw = direction.name() + SEPARATOR + id + SEPARATOR + name;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	public static KeysetCursor decode(String token) {
+		try {
+			String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+			String[] parts = raw.split(SEPARATOR, 3);
+			return new KeysetCursor(Direction.valueOf(parts[0]), Long.valueOf(parts[1]), parts[2]);
+		} catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+			throw new ServiceBadRequestException("Invalid Cursor!");
+		}
+	}
+
+}
@@ -0,0 +1,38 @@
+package com.devsuperior.dscatalog.services.util;
+
+import java.text.Collator;
+import java.util.Comparator;
+import java.util.Locale;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+//ordem dos nomes quando a ordenação é feita em memória, que precisa ser a mesma do ORDER BY name do banco.
+//sem dscatalog.collation é a ordem binária (a do H2 e da collation "C" do PostgreSQL); com um locale (ex.: pt-BR),
+//é a do Collator desse locale, que deve corresponder ao LC_COLLATE do banco. nulos vêm antes de qualquer nome, como no H2
+@Component
+public class NameCollation {
+	
+	public static final Comparator<String> BINARY = Comparator.nullsFirst(Comparator.naturalOrder());
+	
+	private final Comparator<String> comparator;
+	
+	
+	public NameCollation(@Value("${dscatalog.collation:}") String locale) {
+		if (locale == null || locale.isBlank()) {
+			comparator = BINARY;
+		} else {
+			Collator collator = Collator.getInstance(Locale.forLanguageTag(locale));
+			//nomes diferentes que o Collator considera iguais ainda ganham uma ordem fixa
+			comparator = Comparator.nullsFirst((String a, String b) -> {
+				int compared = collator.compare(a, b);
+				return compared != 0 ? compared : a.compareTo(b);
+			});
+		}
+	}
+	
+	public Comparator<String> comparator() {
+		return comparator;
+	}
+	
+}
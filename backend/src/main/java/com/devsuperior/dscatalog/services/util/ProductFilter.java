@@ -0,0 +1,126 @@
+package com.devsuperior.dscatalog.services.util;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+
+//filtros da listagem de produtos: categorias (qualquer uma delas, todas elas e nenhuma delas), parte do nome e
+//faixas de preço e de data. as faixas são fechadas nas duas pontas e um limite nulo fica em aberto.
+public final class ProductFilter {
+	
+	private final List<Long> categoryIds;
+	private final List<Long> allCategoryIds;
+	private final List<Long> excludedCategoryIds;
+	private final String name;
+	private final Double minPrice;
+	private final Double maxPrice;
+	private final Instant minDate;
+	private final Instant maxDate;
+	
+	
+	public ProductFilter(List<Long> categoryIds, List<Long> allCategoryIds, List<Long> excludedCategoryIds, String name,
+			Double minPrice, Double maxPrice, Instant minDate, Instant maxDate) {
+		this.categoryIds = ids(categoryIds, new ArrayList<>());
+		this.allCategoryIds = ids(allCategoryIds, new TreeSet<>());
+		this.excludedCategoryIds = ids(excludedCategoryIds, new TreeSet<>());
+		this.name = name == null ? "" : name.trim();
+		this.minPrice = minPrice;
+		this.maxPrice = maxPrice;
+		this.minDate = minDate;
+		this.maxDate = maxDate;
+	}
+	
+	public static ProductFilter of(List<Long> categoryIds, String name) {
+		return new ProductFilter(categoryIds, null, null, name, null, null, null, null);
+	}
+	
+	
+	public List<Long> getCategoryIds() {
+		return categoryIds;
+	}
+	
+	public List<Long> getAllCategoryIds() {
+		return allCategoryIds;
+	}
+	
+	public List<Long> getExcludedCategoryIds() {
+		return excludedCategoryIds;
+	}
+	
+	public String getName() {
+		return name;
+	}
+	
+	//o nome como padrão de LIKE ... ESCAPE '\': % e _ digitados valem como texto, como no filtro em memória
+	public String getNamePattern() {
+		return likePattern(name);
+	}
+	
+	public Double getMinPrice() {
+		return minPrice;
+	}
+	
+	public Double getMaxPrice() {
+		return maxPrice;
+	}
+	
+	public Instant getMinDate() {
+		return minDate;
+	}
+	
+	public Instant getMaxDate() {
+		return maxDate;
+	}
+	
+	public boolean hasCategories() {
+		return !categoryIds.isEmpty();
+	}
+	
+	//condições de "todas estas" ou "nenhuma destas" categorias
+	public boolean hasCategorySets() {
+		return !allCategoryIds.isEmpty() || !excludedCategoryIds.isEmpty();
+	}
+	
+	public boolean hasName() {
+		return !name.isEmpty();
+	}
+	
+	public boolean hasRanges() {
+		return minPrice != null || maxPrice != null || minDate != null || maxDate != null;
+	}
+	
+	public boolean isEmpty() {
+		return !hasCategories() && !hasCategorySets() && !hasName() && !hasRanges();
+	}
+	
+	//ignora os ids nulos, que vêm de itens vazios na lista da query string (ex.: "?categoryId=1,,2")
+	private static List<Long> ids(List<Long> ids, Collection<Long> target) {
+		if (ids != null) {
+			ids.stream().filter(x -> x != null).forEach(x -> target.add(x));
+		}
+		return List.copyOf(target);
+	}
+	
+	public static String likePattern(String text) {
+		return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+	}
+	
+	//chave normalizada do filtro (ordem das categorias e caixa do nome não importam), usada no cache de contagens
+	public String key() {
+		if (isEmpty()) {
+			return "";
+		}
+		String key = "categoryId=" + new TreeSet<>(categoryIds) + "&name=" + name.toLowerCase(Locale.ROOT);
+		if (hasCategorySets()) {
+			key += "&allCategoryId=" + allCategoryIds + "&excludeCategoryId=" + excludedCategoryIds;
+		}
+		if (hasRanges()) {
+			key += "&price=" + minPrice + ".." + maxPrice + "&date=" + minDate + ".." + maxDate;
+		}
+		return key;
+	}
+	
+}
@@ -0,0 +1,127 @@
+package com.devsuperior.dscatalog.services.util;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.devsuperior.dscatalog.entities.Category;
+import com.devsuperior.dscatalog.entities.Product;
+
+//produtos gravados ou removidos, publicado (ApplicationEventPublisher) por toda escrita em tb_product.
+//os caches das listagens o recebem na hora, dentro da transação; os índices em memória, só depois do commit
+//(@TransactionalEventListener AFTER_COMMIT), e num rollback nada chega a eles.
+//os valores são copiados na publicação, para nenhum listener tocar em entidades depois do commit
+public class ProductsChanged {
+	
+	//o que uma escrita em massa alterou sem dizer em quais linhas, e que por isso exige recarregar os índices
+	public enum Reload {
+		NONE,
+		//só preços: apenas os índices que guardam preço
+		PRICES,
+		ALL
+	}
+	
+	private final List<SavedProduct> saved;
+	private final List<Long> removed;
+	private final Reload reload;
+	
+	
+	private ProductsChanged(List<SavedProduct> saved, List<Long> removed, Reload reload) {
+		this.saved = saved;
+		this.removed = removed;
+		this.reload = reload;
+	}
+	
+	public static ProductsChanged saved(Collection<Product> products) {
+		List<SavedProduct> saved = new ArrayList<>(products.size());
+		products.forEach(x -> saved.add(new SavedProduct(x, true)));
+		return new ProductsChanged(saved, List.of(), Reload.NONE);
+	}
+	
+	//categoriesChanged falso: o vínculo com as categorias ficou como estava
+	public static ProductsChanged saved(Product product, boolean categoriesChanged) {
+		return new ProductsChanged(List.of(new SavedProduct(product, categoriesChanged)), List.of(), Reload.NONE);
+	}
+	
+	//unknownRemoved: além de ids, saíram produtos que a escrita não sabe dizer quais
+	public static ProductsChanged removed(Collection<Long> ids, boolean unknownRemoved) {
+		return new ProductsChanged(List.of(), List.copyOf(ids), unknownRemoved ? Reload.ALL : Reload.NONE);
+	}
+	
+	public static ProductsChanged pricesChanged() {
+		return new ProductsChanged(List.of(), List.of(), Reload.PRICES);
+	}
+	
+	
+	public List<SavedProduct> getSaved() {
+		return saved;
+	}
+	
+	public List<Long> getRemoved() {
+		return removed;
+	}
+	
+	public Reload getReload() {
+		return reload;
+	}
+	
+	public static final class SavedProduct {
+		
+		private final Long id;
+		private final String name;
+		private final String description;
+		private final Double price;
+		private final String imgUrl;
+		private final Instant date;
+		private final List<Long> categoryIds;
+		
+		private SavedProduct(Product product, boolean categoriesChanged) {
+			id = product.getId();
+			name = product.getName();
+			description = product.getDescription();
+			price = product.getPrice();
+			imgUrl = product.getImgUrl();
+			date = product.getDate();
+			List<Long> categories = null;
+			if (categoriesChanged) {
+				categories = new ArrayList<>();
+				for (Category category : product.getCategories()) {
+					categories.add(category.getId());
+				}
+			}
+			categoryIds = categories;
+		}
+		
+		public Long getId() {
+			return id;
+		}
+		
+		public String getName() {
+			return name;
+		}
+		
+		public String getDescription() {
+			return description;
+		}
+		
+		public Double getPrice() {
+			return price;
+		}
+		
+		public String getImgUrl() {
+			return imgUrl;
+		}
+		
+		public Instant getDate() {
+			return date;
+		}
+		
+		//nulo quando as categorias não mudaram
+		public List<Long> getCategoryIds() {
+			return categoryIds;
+		}
+	
+	}
+	
+}
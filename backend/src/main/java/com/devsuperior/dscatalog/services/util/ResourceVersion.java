@@ -0,0 +1,59 @@
+package com.devsuperior.dscatalog.services.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.springframework.util.DigestUtils;
+
+//validadores HTTP de um recurso: ETag forte e, quando conhecido, o Last-Modified.
+//são calculados a partir de metadados de versão, antes (e sem precisar) de montar o DTO.
+public final class ResourceVersion {
+	
+	private final String eTag;
+	private final Instant lastModified;
+	
+	
+	public ResourceVersion(String eTag, Instant lastModified) {
+		this.eTag = eTag;
+		this.lastModified = lastModified;
+	}
+	
+	public static ResourceVersion of(Instant lastModified, Object... parts) {
+		String digest = DigestUtils.md5DigestAsHex(Arrays.deepToString(parts).getBytes(StandardCharsets.UTF_8));
+		return new ResourceVersion("\"" + digest + "\"", lastModified);
+	}
+
+	
+	//parâmetros da requisição em ordem estável, para compor o ETag das listagens
+	public static String describe(Map<String, String[]> parameters) {
+		return new TreeMap<>(parameters).entrySet().stream()
+				.map(x -> x.getKey() + "=" + String.join(",", x.getValue()))
+				.collect(Collectors.joining("&"));
+	}
+	
+	public static Instant latest(Instant first, Instant second) {
+		if (first == null || (second != null && second.isAfter(first))) {
+			return second;
+		}
+		return first;
+	}
+
+	
+	public String getETag() {
+		return eTag;
+	}
+
+	public Instant getLastModified() {
+		return lastModified;
+	}
+	
+	//formato esperado por WebRequest.checkNotModified: -1 quando não há Last-Modified
+	public long getLastModifiedMillis() {
+		return lastModified == null ? -1L : lastModified.toEpochMilli();
+	}
+
+}
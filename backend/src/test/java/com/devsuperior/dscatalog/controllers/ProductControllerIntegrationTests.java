@@ -1,24 +1,50 @@
 package com.devsuperior.dscatalog.controllers;
 
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.context.transaction.TestTransaction;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.devsuperior.dscatalog.dto.CategoryDto;
 import com.devsuperior.dscatalog.dto.ProductDto;
+import com.devsuperior.dscatalog.entities.Category;
 import com.devsuperior.dscatalog.factory.ProductFactory;
+import com.devsuperior.dscatalog.metrics.RequestStatistics;
+import com.devsuperior.dscatalog.metrics.SqlAssertions;
+import com.devsuperior.dscatalog.services.columnar.ProductColumnStore;
+import com.devsuperior.dscatalog.services.util.ProductFilter;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 @SpringBootTest			//carrega o contexto da aplicação.
@@ -32,6 +58,12 @@ public class ProductControllerIntegrationTests {
 	@Autowired
 	private ObjectMapper objectMapper; //transforam objetos Java em Json
 	
+	@Autowired
+	private ProductColumnStore productColumnStore;
+	
+	@PersistenceContext
+	private EntityManager entityManager;
+	
 	// variáveis auxiliares
 	private long existingId;	
 	private long nonExistingId;
@@ -65,6 +97,246 @@ public class ProductControllerIntegrationTests {
 		result.andExpect(jsonPath("$.content[2].name").value("PC Gamer Alfa"));
 	}
 	
+	@Test
+	public void findAllPagedShouldFilterByAnyOfTheCategories() throws Exception {
+		// action
+		ResultActions single = mockMvc.perform(get("/products?categoryId=2&sort=name,asc")
+				.accept(MediaType.APPLICATION_JSON));
+		ResultActions many = mockMvc.perform(get("/products?categoryId=1,2")
+				.accept(MediaType.APPLICATION_JSON));
+		
+		// assert
+		single.andExpect(status().isOk());
+		single.andExpect(jsonPath("$.totalElements").value(2));
+		single.andExpect(jsonPath("$.content[0].name").value("Rails for Dummies"));
+		single.andExpect(jsonPath("$.content[1].name").value("The Lord of the Rings"));
+		many.andExpect(jsonPath("$.totalElements").value(3));
+	}
+	
+	@Test
+	public void findAllPagedShouldIgnoreEmptyItemsInCategoryLists() throws Exception {
+		// action
+		ResultActions any = mockMvc.perform(get("/products?categoryId=1,,2")
+				.accept(MediaType.APPLICATION_JSON));
+		ResultActions all = mockMvc.perform(get("/products?allCategoryId=1,,3&excludeCategoryId=,")
+				.accept(MediaType.APPLICATION_JSON));
+		
+		// assert
+		any.andExpect(status().isOk());
+		any.andExpect(jsonPath("$.totalElements").value(3));
+		all.andExpect(status().isOk());
+		all.andExpect(jsonPath("$.totalElements").value(1));
+	}
+	
+	@Test
+	public void findAllPagedShouldFilterByNameIgnoringCase() throws Exception {
+		// action
+		ResultActions byName = mockMvc.perform(get("/products?name=MACBOOK")
+				.accept(MediaType.APPLICATION_JSON));
+		ResultActions byNameAndCategory = mockMvc.perform(get("/products?name=gamer&categoryId=3&size=5")
+				.accept(MediaType.APPLICATION_JSON));
+		ResultActions noMatch = mockMvc.perform(get("/products?name=gamer&categoryId=2")
+				.accept(MediaType.APPLICATION_JSON));
+		
+		// assert
+		byName.andExpect(jsonPath("$.totalElements").value(1));
+		byName.andExpect(jsonPath("$.content[0].name").value("Macbook Pro"));
+		byNameAndCategory.andExpect(jsonPath("$.totalElements").value(21));
+		byNameAndCategory.andExpect(jsonPath("$.numberOfElements").value(5));
+		noMatch.andExpect(jsonPath("$.totalElements").value(0));
+	}
+	
+	@Test
+	public void findAllPagedShouldFilterByPriceAndDateRanges() throws Exception {
+		// action
+		ResultActions byPrice = mockMvc.perform(get("/products?minPrice=1000&maxPrice=1400&sort=price,asc")
+				.accept(MediaType.APPLICATION_JSON));
+		ResultActions byDate = mockMvc.perform(get("/products?maxDate=2020-07-13T23:59:59Z")
+				.accept(MediaType.APPLICATION_JSON));
+		ResultActions byPriceAndCategory = mockMvc.perform(get("/products?maxPrice=1000&categoryId=2")
+				.accept(MediaType.APPLICATION_JSON));
+		
+		// assert
+		byPrice.andExpect(status().isOk());
+		byPrice.andExpect(jsonPath("$.totalElements").value(6));
+		byPrice.andExpect(jsonPath("$.content[0].name").value("PC Gamer"));
+		byDate.andExpect(jsonPath("$.totalElements").value(1));
+		byDate.andExpect(jsonPath("$.content[0].name").value("The Lord of the Rings"));
+		byPriceAndCategory.andExpect(jsonPath("$.totalElements").value(2));
+	}
+	
+	@Test
+	public void findAllPagedShouldCombineAllAndExcludedCategories() throws Exception {
+		// action
+		ResultActions inAll = mockMvc.perform(get("/products?allCategoryId=1,3")
+				.accept(MediaType.APPLICATION_JSON));
+		ResultActions anyButExcluded = mockMvc.perform(get("/products?categoryId=3&excludeCategoryId=1")
+				.accept(MediaType.APPLICATION_JSON));
+		ResultActions excluded = mockMvc.perform(get("/products?excludeCategoryId=3&excludeCategoryId=1")
+				.accept(MediaType.APPLICATION_JSON));
+		
+		// assert
+		inAll.andExpect(status().isOk());
+		inAll.andExpect(jsonPath("$.totalElements").value(1));
+		inAll.andExpect(jsonPath("$.content[0].id").value(2L));
+		anyButExcluded.andExpect(jsonPath("$.totalElements").value(22));
+		excluded.andExpect(jsonPath("$.totalElements").value(2));
+	}
+	
+	@Test
+	public void findAllPagedShouldReturnSameResultsFromColumnStoreAndFromDataBase() throws Exception {
+		// arrange
+		List<String> queries = List.of(
+				"/products?page=1&size=5",
+				"/products?categoryId=2&sort=name,asc&include=categories",
+				"/products?name=gamer&minPrice=1300&maxPrice=2000&sort=price,desc&sort=id,asc&include=facets",
+				"/products?maxDate=2020-07-13T23:59:59Z",
+				"/products?categoryId=3&size=4&page=2&sort=date,asc&sort=name,asc",
+				"/products?allCategoryId=3&excludeCategoryId=1&name=pc&include=categories,facets",
+				"/products?allCategoryId=1,3&categoryId=2,3&minPrice=0");
+		List<String> fromDataBase = new ArrayList<>();
+		for (String query : queries) {
+			fromDataBase.add(mockMvc.perform(get(query).accept(MediaType.APPLICATION_JSON))
+					.andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8));
+		}
+		
+		// action
+		TestTransaction.end(); //sem transação ativa a listagem é servida pela réplica em memória
+		List<String> fromColumnStore = new ArrayList<>();
+		for (String query : queries) {
+			fromColumnStore.add(mockMvc.perform(get(query).accept(MediaType.APPLICATION_JSON))
+					.andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8));
+		}
+		
+		// assert
+		Assertions.assertTrue(productColumnStore.findAll(ProductFilter.of(List.of(), ""), PageRequest.of(0, 1), false, false).isPresent());
+		Assertions.assertEquals(countTotalProducts, productColumnStore.size());
+		Assertions.assertEquals(fromDataBase, fromColumnStore);
+	}
+	
+	@Test
+	public void findAllPagedShouldMatchLikeWildcardsLiterallyInDataBaseAndColumnStore() throws Exception {
+		// arrange
+		List<String> queries = List.of(
+				"/products?name=%25",
+				"/products?name=_&categoryId=3",
+				"/products?name=pc_gamer&minPrice=0&include=facets",
+				"/products?name=%25_%25");
+		List<String> fromDataBase = new ArrayList<>();
+		for (String query : queries) {
+			fromDataBase.add(mockMvc.perform(get(query).accept(MediaType.APPLICATION_JSON))
+					.andExpect(jsonPath("$.totalElements").value(0))
+					.andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8));
+		}
+		
+		// action
+		TestTransaction.end(); //sem transação ativa a listagem é servida pela réplica em memória
+		List<String> fromColumnStore = new ArrayList<>();
+		for (String query : queries) {
+			fromColumnStore.add(mockMvc.perform(get(query).accept(MediaType.APPLICATION_JSON))
+					.andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8));
+		}
+		
+		// assert
+		Assertions.assertEquals(fromDataBase, fromColumnStore);
+	}
+	
+	@Test
+	public void findAllPagedShouldReturnCategoriesWhenIncludeCategories() throws Exception {
+		
+		// action
+		ResultActions result = mockMvc.perform(get("/products?page=0&size=12&sort=name,asc&include=categories")
+				.accept(MediaType.APPLICATION_JSON));
+		
+		// assert
+		result.andExpect(status().isOk());
+		result.andExpect(jsonPath("$.totalElements").value(countTotalProducts));
+		result.andExpect(jsonPath("$.content[0].name").value("Macbook Pro"));
+		result.andExpect(jsonPath("$.content[0].categories[0].name").value("Computadores"));
+	}
+	
+	@Test
+	public void findAllPagedShouldNotReturnCategoriesByDefault() throws Exception {
+		
+		// action
+		ResultActions result = mockMvc.perform(get("/products?page=0&size=12&sort=name,asc")
+				.accept(MediaType.APPLICATION_JSON));
+		
+		// assert
+		result.andExpect(status().isOk());
+		result.andExpect(jsonPath("$.content[0].categories").isEmpty());
+	}
+	
+	@Test
+	public void findAllSummariesShouldReturnLeanProductsWhenViewIsSummary() throws Exception {
+		
+		// action
+		ResultActions result = mockMvc.perform(get("/products?view=summary&page=0&size=12&sort=name,asc")
+				.accept(MediaType.APPLICATION_JSON));
+		
+		// assert
+		result.andExpect(status().isOk());
+		result.andExpect(jsonPath("$.totalElements").value(countTotalProducts));
+		result.andExpect(jsonPath("$.content[0].name").value("Macbook Pro"));
+		result.andExpect(jsonPath("$.content[0].price").value(1250.0));
+		result.andExpect(jsonPath("$.content[0].description").doesNotExist());
+	}
+	
+	@Test
+	public void findAllSlicedShouldReturnHasNextWithoutTotalElements() throws Exception {
+		
+		// action
+		ResultActions result = mockMvc.perform(get("/products?slice=true&page=0&size=12&sort=name,asc")
+				.accept(MediaType.APPLICATION_JSON));
+		
+		// assert
+		result.andExpect(status().isOk());
+		result.andExpect(jsonPath("$.hasNext").value(true));
+		result.andExpect(jsonPath("$.totalElements").doesNotExist());
+		result.andExpect(jsonPath("$.content[0].name").value("Macbook Pro"));
+	}
+	
+	@Test
+	public void findAllSeekShouldReturnNextCursorWhenAfterIsGiven() throws Exception {
+		
+		// action
+		ResultActions result = mockMvc.perform(get("/products?after=&size=3&direction=ASC")
+				.accept(MediaType.APPLICATION_JSON));
+		
+		// assert
+		result.andExpect(status().isOk());
+		result.andExpect(jsonPath("$.content[0].name").value("Macbook Pro"));
+		result.andExpect(jsonPath("$.hasNext").value(true));
+		result.andExpect(jsonPath("$.nextCursor").exists());
+	}
+	
+	@Test
+	public void findAllSeekShouldReturnBadRequestWhenSizeIsAboveLimit() throws Exception {
+		
+		// action
+		ResultActions result = mockMvc.perform(get("/products?after=&size=101")
+				.accept(MediaType.APPLICATION_JSON));
+		ResultActions categories = mockMvc.perform(get("/categories?after=&size=101")
+				.accept(MediaType.APPLICATION_JSON));
+		
+		// assert
+		result.andExpect(status().isBadRequest());
+		result.andExpect(jsonPath("$.error").value("Page size must be between 1 and 100!"));
+		categories.andExpect(status().isBadRequest());
+	}
+	
+	@Test
+	public void findAllSeekShouldReturnBadRequestWhenCursorIsInvalid() throws Exception {
+		
+		// action
+		ResultActions result = mockMvc.perform(get("/products?after=not-a-cursor")
+				.accept(MediaType.APPLICATION_JSON));
+		
+		// assert
+		result.andExpect(status().isBadRequest());
+		result.andExpect(jsonPath("$.error").value("Invalid Cursor!"));
+	}
+	
 	@Test
 	public void findByIdShouldReturnProductDtoWhenIdExists() throws Exception {
 		// arrange
@@ -95,6 +367,272 @@ public class ProductControllerIntegrationTests {
 		result.andExpect(jsonPath("$.error").value("Entity Not Found!"));
 	}
 	
+	@Test
+	public void findByIdShouldReturnNotModifiedWhenETagMatchesAndOkAfterUpdate() throws Exception {
+		// arrange
+		String eTag = mockMvc.perform(get("/products/{id}", existingId)
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		
+		// action
+		ResultActions notModified = mockMvc.perform(get("/products/{id}", existingId)
+				.header(HttpHeaders.IF_NONE_MATCH, eTag)
+				.accept(MediaType.APPLICATION_JSON));
+		mockMvc.perform(put("/products/{id}", existingId)
+				.content(objectMapper.writeValueAsString(productDto))
+				.contentType(MediaType.APPLICATION_JSON));
+		entityManager.flush(); //o commit do PUT, que aqui roda dentro da transação do teste, incrementaria o @Version
+		ResultActions modified = mockMvc.perform(get("/products/{id}", existingId)
+				.header(HttpHeaders.IF_NONE_MATCH, eTag)
+				.accept(MediaType.APPLICATION_JSON));
+		
+		// assert
+		notModified.andExpect(status().isNotModified());
+		modified.andExpect(status().isOk());
+		modified.andExpect(header().string(HttpHeaders.ETAG, not(eTag)));
+		modified.andExpect(jsonPath("$.name").value("Phone"));
+	}
+	
+	@Test
+	public void findAllPagedShouldReturnNotModifiedWhenETagMatchesAndOkAfterPriceUpdate() throws Exception {
+		// arrange
+		String eTag = mockMvc.perform(get("/products?page=0&size=12")
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		
+		// action
+		ResultActions notModified = mockMvc.perform(get("/products?page=0&size=12")
+				.header(HttpHeaders.IF_NONE_MATCH, eTag)
+				.accept(MediaType.APPLICATION_JSON));
+		ResultActions otherPage = mockMvc.perform(get("/products?page=1&size=12")
+				.header(HttpHeaders.IF_NONE_MATCH, eTag)
+				.accept(MediaType.APPLICATION_JSON));
+		mockMvc.perform(patch("/products/prices")
+				.content("{\"percentage\": 10.0}")
+				.contentType(MediaType.APPLICATION_JSON));
+		ResultActions modified = mockMvc.perform(get("/products?page=0&size=12")
+				.header(HttpHeaders.IF_NONE_MATCH, eTag)
+				.accept(MediaType.APPLICATION_JSON));
+		
+		// assert
+		notModified.andExpect(status().isNotModified());
+		otherPage.andExpect(status().isOk());
+		modified.andExpect(status().isOk());
+	}
+	
+	@Test
+	public void findAllPagedShouldAnswerConditionalGetWithoutQueryingDatabase() throws Exception {
+		// arrange
+		String eTag = mockMvc.perform(get("/products?page=0&size=12")
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		
+		// action & assert
+		SqlAssertions.assertStatementsAtMost(0, () -> mockMvc.perform(get("/products?page=0&size=12")
+				.header(HttpHeaders.IF_NONE_MATCH, eTag)
+				.accept(MediaType.APPLICATION_JSON)).andExpect(status().isNotModified()));
+	}
+	
+	@Test
+	public void searchShouldReturnMatchingProductsWhenQueryIsGiven() throws Exception {
+		// action
+		ResultActions result = mockMvc.perform(get("/products/search?q=macbook&size=5")
+				.accept(MediaType.APPLICATION_JSON));
+		
+		// assert
+		result.andExpect(status().isOk());
+		result.andExpect(jsonPath("$.totalElements").value(1));
+		result.andExpect(jsonPath("$.content[0].name").value("Macbook Pro"));
+	}
+	
+	@Test
+	public void findAllPagedShouldReturnFacetsOfTheWholeFilterWhenIncludeFacets() throws Exception {
+		// action
+		ResultActions all = mockMvc.perform(get("/products?include=facets&size=1")
+				.accept(MediaType.APPLICATION_JSON));
+		ResultActions filtered = mockMvc.perform(get("/products?include=facets&categoryId=1")
+				.accept(MediaType.APPLICATION_JSON));
+		ResultActions withoutFacets = mockMvc.perform(get("/products")
+				.accept(MediaType.APPLICATION_JSON));
+		
+		// assert
+		all.andExpect(status().isOk());
+		all.andExpect(jsonPath("$.numberOfElements").value(1));
+		all.andExpect(jsonPath("$.facets.length()").value(3));
+		all.andExpect(jsonPath("$.facets[0].name").value("Computadores"));
+		all.andExpect(jsonPath("$.facets[0].count").value(23));
+		all.andExpect(jsonPath("$.facets[1].name").value("Eletrônicos"));
+		all.andExpect(jsonPath("$.facets[1].count").value(2));
+		all.andExpect(jsonPath("$.facets[2].categoryId").value(1));
+		all.andExpect(jsonPath("$.facets[2].count").value(1));
+		filtered.andExpect(jsonPath("$.totalElements").value(1));
+		filtered.andExpect(jsonPath("$.facets.length()").value(2));
+		filtered.andExpect(jsonPath("$.facets[0].name").value("Computadores"));
+		filtered.andExpect(jsonPath("$.facets[1].name").value("Livros"));
+		withoutFacets.andExpect(jsonPath("$.facets").doesNotExist());
+	}
+	
+	@Test
+	public void searchShouldReturnFacetsWhenIncludeFacets() throws Exception {
+		// action
+		ResultActions result = mockMvc.perform(get("/products/search?q=gamer&size=5&include=facets")
+				.accept(MediaType.APPLICATION_JSON));
+		
+		// assert
+		result.andExpect(status().isOk());
+		result.andExpect(jsonPath("$.numberOfElements").value(5));
+		result.andExpect(jsonPath("$.facets.length()").value(1));
+		result.andExpect(jsonPath("$.facets[0].name").value("Computadores"));
+		result.andExpect(jsonPath("$.facets[0].count").value(21));
+	}
+	
+	@Test
+	public void suggestShouldReturnNamesWhenPrefixIsGiven() throws Exception {
+		// action
+		ResultActions result = mockMvc.perform(get("/products/suggest?prefix=mac&limit=5")
+				.accept(MediaType.APPLICATION_JSON));
+		
+		// assert
+		result.andExpect(status().isOk());
+		result.andExpect(jsonPath("$[0].text").value("Macbook Pro"));
+		result.andExpect(jsonPath("$[0].type").value("PRODUCT"));
+	}
+	
+	@Test
+	public void suggestShouldReturnBadRequestWhenLimitIsAboveTopK() throws Exception {
+		// action
+		ResultActions result = mockMvc.perform(get("/products/suggest?prefix=mac&limit=11")
+				.accept(MediaType.APPLICATION_JSON));
+		
+		// assert
+		result.andExpect(status().isBadRequest());
+	}
+	
+	@Test
+	public void exportShouldStreamAllProductsWithCategoriesAsNdjson() throws Exception {
+		// action
+		MvcResult started = mockMvc.perform(get("/products/export"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		ResultActions result = mockMvc.perform(asyncDispatch(started));
+		
+		// assert
+		result.andExpect(status().isOk());
+		result.andExpect(content().contentType("application/x-ndjson"));
+		String[] lines = result.andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8).split("\n");
+		Assertions.assertEquals(countTotalProducts, lines.length);
+		ProductDto first = objectMapper.readValue(lines[0], ProductDto.class);
+		Assertions.assertEquals(existingId, first.getId());
+		Assertions.assertEquals("The Lord of the Rings", first.getName());
+		Assertions.assertFalse(first.getCategories().isEmpty());
+	}
+	
+	@Test
+	public void exportShouldStreamCsvWithHeaderWhenFormatIsCsv() throws Exception {
+		// action
+		MvcResult started = mockMvc.perform(get("/products/export?format=csv"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		ResultActions result = mockMvc.perform(asyncDispatch(started));
+		
+		// assert
+		result.andExpect(status().isOk());
+		String[] lines = result.andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8).split("\n");
+		Assertions.assertEquals(countTotalProducts + 1, lines.length);
+		Assertions.assertEquals("id,name,description,price,imgUrl,date,categories", lines[0]);
+		Assertions.assertTrue(lines[1].startsWith(existingId + ",The Lord of the Rings,"));
+	}
+	
+	@Test
+	public void exportShouldReturnBadRequestWhenFormatIsUnknown() throws Exception {
+		// action
+		ResultActions result = mockMvc.perform(get("/products/export?format=xml"));
+		
+		// assert
+		result.andExpect(status().isBadRequest());
+		result.andExpect(jsonPath("$.error").value("Invalid Format!"));
+	}
+	
+	@Test
+	public void importAllShouldCreateValidRowsAndRejectInvalidOnesWhenCsvIsPosted() throws Exception {
+		// arrange
+		String csv = "name,description,price,date,categories\n"
+				+ "Kindle,\"Leitor de livros, com luz\",499.9,2022-04-01T10:00:00Z,Livros|Eletrônicos\n"
+				+ ",Sem nome,10.0,2022-04-01T10:00:00Z,Livros\n"
+				+ "Mouse,Sem fio,89.9,2022-04-01T10:00:00Z,Jardinagem\n";
+		
+		// action
+		ResultActions result = mockMvc.perform(post("/products/import?format=csv")
+				.content(csv.getBytes(StandardCharsets.UTF_8))
+				.contentType("text/csv")
+				.accept(MediaType.APPLICATION_JSON));
+		
+		// assert
+		result.andExpect(status().isOk());
+		result.andExpect(jsonPath("$.read").value(3));
+		result.andExpect(jsonPath("$.created").value(1));
+		result.andExpect(jsonPath("$.rejected").value(2));
+		result.andExpect(jsonPath("$.errors[0]").value("Line 3: Name is required!"));
+		result.andExpect(jsonPath("$.errors[1]").value("Line 4: Category [Jardinagem] Not Found!"));
+		mockMvc.perform(get("/products?page=0&size=1").accept(MediaType.APPLICATION_JSON))
+				.andExpect(jsonPath("$.totalElements").value(countTotalProducts + 1));
+	}
+	
+	@Test
+	public void importAllShouldReloadProductsWhenExportedNdjsonIsPosted() throws Exception {
+		// arrange
+		MvcResult started = mockMvc.perform(get("/products/export")).andReturn();
+		String ndjson = mockMvc.perform(asyncDispatch(started)).andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+		
+		// action
+		ResultActions result = mockMvc.perform(post("/products/import")
+				.content(ndjson.getBytes(StandardCharsets.UTF_8))
+				.contentType("application/x-ndjson")
+				.accept(MediaType.APPLICATION_JSON));
+		
+		// assert
+		result.andExpect(status().isOk());
+		result.andExpect(jsonPath("$.created").value(countTotalProducts));
+		result.andExpect(jsonPath("$.rejected").value(0));
+	}
+	
+	@Test
+	public void importAllShouldRejectNdjsonRowsWhosePriceIsNotNumber() throws Exception {
+		// arrange
+		String ndjson = "{\"name\": \"Mouse\", \"price\": \"abc\", \"date\": \"2022-04-01T10:00:00Z\"}\n"
+				+ "{\"name\": \"Teclado\", \"price\": true, \"date\": \"2022-04-01T10:00:00Z\"}\n";
+		
+		// action
+		ResultActions result = mockMvc.perform(post("/products/import")
+				.content(ndjson.getBytes(StandardCharsets.UTF_8))
+				.contentType("application/x-ndjson")
+				.accept(MediaType.APPLICATION_JSON));
+		
+		// assert
+		result.andExpect(status().isOk());
+		result.andExpect(jsonPath("$.read").value(2));
+		result.andExpect(jsonPath("$.created").value(0));
+		result.andExpect(jsonPath("$.rejected").value(2));
+		result.andExpect(jsonPath("$.errors[0]").value("Line 1: Invalid price or date!"));
+		result.andExpect(jsonPath("$.errors[1]").value("Line 2: Invalid price or date!"));
+	}
+	
+	@Test
+	public void importAllShouldReturnBadRequestWhenCsvHasNoHeader() throws Exception {
+		// action
+		ResultActions result = mockMvc.perform(post("/products/import?format=csv")
+				.content("Kindle,499.9\n")
+				.contentType("text/csv"));
+		
+		// assert
+		result.andExpect(status().isBadRequest());
+		result.andExpect(jsonPath("$.error").value("CSV header with a name column is required!"));
+	}
+	
 	@Test
 	public void insertShouldReturnProductDtoCreated() throws Exception {
 		// arrange
@@ -112,6 +650,47 @@ public class ProductControllerIntegrationTests {
 		result.andExpect(jsonPath("$.name").value("Phone"));
 	}
 	
+	@Test
+	public void insertShouldReturnBadRequestWhenCategoryDoesNotExist() throws Exception {
+		// arrange
+		productDto.getCategories().get(0).setId(nonExistingId);
+		String jsonBody = objectMapper.writeValueAsString(productDto);
+		
+		// action
+		ResultActions result = mockMvc.perform(post("/products/")
+				.content(jsonBody)
+				.contentType(MediaType.APPLICATION_JSON)
+				.accept(MediaType.APPLICATION_JSON));
+		
+		// assert
+		result.andExpect(status().isBadRequest());
+		result.andExpect(jsonPath("$.error").value("Category ID ["+ nonExistingId +"] Not Found!"));
+	}
+	
+	@Test
+	public void insertAllShouldReturnResultPerItemWhenBatchIsPosted() throws Exception {
+		// arrange
+		ProductDto invalidDto = ProductFactory.createProductDto();
+		invalidDto.setName(null);
+		String jsonBody = objectMapper.writeValueAsString(List.of(productDto, invalidDto, productDto));
+		
+		// action
+		ResultActions result = mockMvc.perform(post("/products/batch")
+				.content(jsonBody)
+				.contentType(MediaType.APPLICATION_JSON)
+				.accept(MediaType.APPLICATION_JSON));
+		
+		// assert
+		result.andExpect(status().isOk());
+		result.andExpect(jsonPath("$.created").value(2));
+		result.andExpect(jsonPath("$.rejected").value(1));
+		result.andExpect(jsonPath("$.items[0].status").value("CREATED"));
+		result.andExpect(jsonPath("$.items[0].id").exists());
+		result.andExpect(jsonPath("$.items[1].status").value("REJECTED"));
+		result.andExpect(jsonPath("$.items[1].message").value("Name is required!"));
+		result.andExpect(jsonPath("$.items[2].id").exists());
+	}
+	
 	@Test
 	public void updateShouldReturnProductDtoWheIdExists() throws Exception {
 		// arrange
@@ -149,6 +728,72 @@ public class ProductControllerIntegrationTests {
 		result.andExpect(jsonPath("$.error").value("ID ["+ nonExistingId +"] Not Found!"));
 	}
 	
+	@Test
+	public void deleteAllShouldReturnAffectedCountWhenIdsAreGiven() throws Exception {
+		
+		// action
+		ResultActions result = mockMvc.perform(delete("/products?ids=1,2,3")
+				.accept(MediaType.APPLICATION_JSON));
+		
+		// assert
+		result.andExpect(status().isOk());
+		result.andExpect(jsonPath("$.affected").value(3));
+	}
+	
+	@Test
+	public void deleteAllShouldRemoveProductsOfCategoryWithTheirLinksWhenCategoryIdIsGiven() throws Exception {
+		
+		// action
+		ResultActions result = mockMvc.perform(delete("/products?categoryId=1&ids=2,3")
+				.accept(MediaType.APPLICATION_JSON));
+		ResultActions category = mockMvc.perform(get("/products?categoryId=1")
+				.accept(MediaType.APPLICATION_JSON));
+		ResultActions otherCategory = mockMvc.perform(get("/products?categoryId=3")
+				.accept(MediaType.APPLICATION_JSON));
+		
+		// assert
+		result.andExpect(status().isOk());
+		result.andExpect(jsonPath("$.affected").value(2));
+		category.andExpect(jsonPath("$.totalElements").value(0));
+		otherCategory.andExpect(jsonPath("$.totalElements").value(21));
+	}
+	
+	@Test
+	public void updatePricesShouldReturnAffectedCountWhenCategoryIsGiven() throws Exception {
+		// arrange
+		String jsonBody = "{\"categoryId\": 3, \"percentage\": -10.0}";
+		
+		// action
+		ResultActions result = mockMvc.perform(patch("/products/prices")
+				.content(jsonBody)
+				.contentType(MediaType.APPLICATION_JSON)
+				.accept(MediaType.APPLICATION_JSON));
+		
+		// assert
+		result.andExpect(status().isOk());
+		result.andExpect(jsonPath("$.affected").value(23));
+	}
+	
+	@Test
+	public void updatePricesShouldRefreshCachedTotalOfPriceFilter() throws Exception {
+		// arrange
+		mockMvc.perform(get("/products?minPrice=1000&maxPrice=1400&size=2")
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(jsonPath("$.totalElements").value(6));
+		
+		// action
+		mockMvc.perform(patch("/products/prices")
+				.content("{\"amount\": -100.0}")
+				.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk());
+		ResultActions result = mockMvc.perform(get("/products?minPrice=1000&maxPrice=1400&size=2")
+				.accept(MediaType.APPLICATION_JSON));
+		
+		// assert
+		result.andExpect(status().isOk());
+		result.andExpect(jsonPath("$.totalElements").value(8));
+	}
+	
 	@Test
 	public void deleteShouldReturnNoContentWhenIdExists() throws Exception {
 		// arrange
@@ -177,6 +822,100 @@ public class ProductControllerIntegrationTests {
 		result.andExpect(jsonPath("$.error").value("ID ["+ nonExistingId +"] Not Found!"));
 	}
 	
+	@Test
+	public void findByIdShouldBeRecordedInMetrics() throws Exception {
+		// arrange
+		mockMvc.perform(get("/products/{id}", existingId).accept(MediaType.APPLICATION_JSON));
+		
+		// action
+		ResultActions controller = mockMvc.perform(get("/actuator/metrics/dscatalog.controller")
+				.param("tag", "class:ProductController", "method:findById"));
+		ResultActions service = mockMvc.perform(get("/actuator/metrics/dscatalog.service")
+				.param("tag", "class:ProductService", "method:findByIdIfModified", "exception:none"));
+		ResultActions statements = mockMvc.perform(get("/actuator/metrics/dscatalog.request.statements")
+				.param("tag", "uri:/products/{id}"));
+		ResultActions jdbcTime = mockMvc.perform(get("/actuator/metrics/dscatalog.request.jdbc.time")
+				.param("tag", "uri:/products/{id}"));
+		ResultActions duplicate = mockMvc.perform(get("/actuator/metrics/dscatalog.request.jdbc.statements"));
+		
+		// assert
+		controller.andExpect(status().isOk());
+		controller.andExpect(jsonPath("$.measurements[?(@.statistic == 'COUNT')].value", everyItem(greaterThanOrEqualTo(1.0))));
+		service.andExpect(status().isOk());
+		service.andExpect(jsonPath("$.measurements[?(@.statistic == 'COUNT')].value", everyItem(greaterThanOrEqualTo(1.0))));
+		statements.andExpect(status().isOk());
+		statements.andExpect(jsonPath("$.measurements[?(@.statistic == 'TOTAL')].value", everyItem(greaterThanOrEqualTo(1.0))));
+		jdbcTime.andExpect(status().isOk());
+		duplicate.andExpect(status().isNotFound());
+	}
+	
+	@Test
+	public void findByIdShouldRunAtMostTwoStatements() throws Exception {
+		// arrange
+		mockMvc.perform(get("/products/{id}", existingId)); //carrega os caches de categorias
+		
+		// action & assert
+		SqlAssertions.assertStatementsAtMost(2, () -> mockMvc.perform(get("/products/{id}", existingId)
+				.accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk()));
+	}
+	
+	@Test
+	public void updateShouldNotRepeatStatementsPerCategory() throws Exception {
+		// arrange
+		productDto.getCategories().clear();
+		for (long categoryId = 1L; categoryId <= 3L; categoryId++) {
+			productDto.getCategories().add(new CategoryDto(categoryId, null));
+		}
+		String jsonBody = objectMapper.writeValueAsString(productDto);
+		
+		// action & assert
+		SqlAssertions.assertNoRepeatedStatements(() -> mockMvc.perform(put("/products/{id}", existingId)
+				.content(jsonBody).contentType(MediaType.APPLICATION_JSON)).andExpect(status().isOk()));
+	}
+	
+	@Test
+	public void insertShouldNotSelectCategoriesKnownByCategoryCacheAndSecondLevelCache() throws Exception {
+		// arrange
+		productDto.getCategories().clear();
+		for (long categoryId = 1L; categoryId <= 3L; categoryId++) {
+			productDto.getCategories().add(new CategoryDto(categoryId, null));
+		}
+		String jsonBody = objectMapper.writeValueAsString(productDto);
+		mockMvc.perform(get("/categories/{id}", 1L).accept(MediaType.APPLICATION_JSON)); //carrega o snapshot
+		entityManager.createQuery("SELECT obj FROM Category obj").getResultList(); //carrega o cache de segundo nível
+		entityManager.clear();
+		
+		// action
+		RequestStatistics recording = SqlAssertions.record(() -> mockMvc.perform(post("/products")
+				.content(jsonBody).contentType(MediaType.APPLICATION_JSON)).andExpect(status().isCreated()));
+		
+		// assert
+		Assertions.assertTrue(recording.getStatementsByShape().keySet().stream()
+				.noneMatch(x -> x.toLowerCase().contains("from tb_category")), () -> recording.getStatementsByShape().toString());
+	}
+	
+	@Test
+	public void insertShouldLoadUncachedCategoriesInOneSelect() throws Exception {
+		// arrange
+		productDto.getCategories().clear();
+		for (long categoryId = 1L; categoryId <= 3L; categoryId++) {
+			productDto.getCategories().add(new CategoryDto(categoryId, null));
+		}
+		String jsonBody = objectMapper.writeValueAsString(productDto);
+		mockMvc.perform(get("/categories/{id}", 1L).accept(MediaType.APPLICATION_JSON)); //carrega o snapshot
+		entityManager.getEntityManagerFactory().getCache().evict(Category.class);
+		entityManager.clear();
+		
+		// action
+		RequestStatistics recording = SqlAssertions.record(() -> mockMvc.perform(post("/products")
+				.content(jsonBody).contentType(MediaType.APPLICATION_JSON)).andExpect(status().isCreated()));
+		
+		// assert
+		Assertions.assertEquals(1, recording.getStatementsByShape().entrySet().stream()
+				.filter(x -> x.getKey().toLowerCase().contains("from tb_category"))
+				.mapToLong(x -> x.getValue()).sum(), () -> recording.getStatementsByShape().toString());
+	}
+	
 //	@Test
 //	@Transactional(propagation = Propagation.NEVER) 
 //	public void deleteShouldReturnBadRequestWhenIdDoesNotExist() throws Exception {
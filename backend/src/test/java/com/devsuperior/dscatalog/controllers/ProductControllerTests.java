@@ -6,10 +6,14 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -20,6 +24,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
@@ -27,9 +32,15 @@ import org.springframework.test.web.servlet.ResultActions;
 import com.devsuperior.dscatalog.dto.ProductDto;
 import com.devsuperior.dscatalog.factory.ProductFactory;
 import com.devsuperior.dscatalog.repositories.ProductRepository;
+import com.devsuperior.dscatalog.services.ProductBatchService;
+import com.devsuperior.dscatalog.services.ProductExportService;
+import com.devsuperior.dscatalog.services.ProductImportService;
 import com.devsuperior.dscatalog.services.ProductService;
+import com.devsuperior.dscatalog.services.columnar.ProductColumnStore;
 import com.devsuperior.dscatalog.services.exceptions.ServiceDataBaseException;
 import com.devsuperior.dscatalog.services.exceptions.ServiceNotFoundException;
+import com.devsuperior.dscatalog.services.util.ProductFilter;
+import com.devsuperior.dscatalog.services.util.ResourceVersion;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 @WebMvcTest(ProductController.class) //carrega o contexto, porém somente da camada web 
@@ -47,12 +58,25 @@ public class ProductControllerTests {
 	@MockBean
 	private ProductRepository productRepository; //mock o productService
 	
+	@MockBean
+	private ProductBatchService productBatchService; //mock o productBatchService
+	
+	@MockBean
+	private ProductExportService productExportService; //mock o productExportService
+	
+	@MockBean
+	private ProductImportService productImportService; //mock o productImportService
+	
+	@MockBean
+	private ProductColumnStore productColumnStore; //mock vazio: a listagem cai no productService
+	
 	// variáveis auxiliares
 	private long existingId;	
 	private long nonExistingId;
 	private long dependentId;
 	private ProductDto productDto;
 	private PageImpl<ProductDto> page; //instância fake de uma página
+	private ResourceVersion version;
 	
 	@BeforeEach
 	void setUp() throws Exception {
@@ -64,11 +88,19 @@ public class ProductControllerTests {
 		page = new PageImpl<>(List.of(productDto)); //uma página fake com a lista de um produto nela
 		
 		// configura ação simulada do comportamento "findAll" para o Mock productService
-		Mockito.when(productService.findAllPaged(ArgumentMatchers.any(Pageable.class))).thenReturn(page);
+		Mockito.when(productService.findAllPaged(ArgumentMatchers.any(ProductFilter.class), ArgumentMatchers.any(Pageable.class), ArgumentMatchers.anyBoolean(), ArgumentMatchers.anyBoolean())).thenReturn(page);
+		
+		// configura ação simulada dos validadores do GET condicional para o Mock productService
+		version = new ResourceVersion("\"v1\"", Instant.parse("2022-04-01T10:00:00Z"));
+		Mockito.when(productService.findListVersion(ArgumentMatchers.anyString())).thenReturn(Optional.of(version));
 		
-		// configura ação simulada do comportamento "findById" para o Mock productService
-		Mockito.when(productService.findById(existingId)).thenReturn(productDto);
-		Mockito.when(productService.findById(nonExistingId)).thenThrow(ServiceNotFoundException.class);
+		// configura ação simulada do comportamento "findByIdIfModified" para o Mock productService: o DTO só sai
+		// quando o validador recusa a versão
+		Mockito.when(productService.findByIdIfModified(eq(existingId), any())).thenAnswer(invocation -> {
+			Predicate<ResourceVersion> notModified = invocation.getArgument(1);
+			return notModified.test(version) ? Optional.empty() : Optional.of(productDto);
+		});
+		Mockito.when(productService.findByIdIfModified(eq(nonExistingId), any())).thenThrow(ServiceNotFoundException.class);
 		
 		// configura ação simulada do comportamento "insert" para o Mock productService
 		Mockito.when(productService.insert(any())).thenReturn(productDto);
@@ -99,6 +131,30 @@ public class ProductControllerTests {
 		result.andExpect(status().isOk());
 	}
 	
+	@Test
+	public void findByIdShouldReturnNotModifiedWithoutBuildingDtoWhenETagMatches() throws Exception {
+		// action
+		ResultActions result = mockMvc.perform(get("/products/{id}", existingId)
+				.header(HttpHeaders.IF_NONE_MATCH, version.getETag())
+				.accept(MediaType.APPLICATION_JSON));
+		
+		// assert
+		result.andExpect(status().isNotModified());
+		result.andExpect(content().string(""));
+	}
+	
+	@Test
+	public void findAllShouldReturnNotModifiedWhenETagMatches() throws Exception {
+		// action
+		ResultActions result = mockMvc.perform(get("/products")
+				.header(HttpHeaders.IF_NONE_MATCH, version.getETag())
+				.accept(MediaType.APPLICATION_JSON));
+		
+		// assert
+		result.andExpect(status().isNotModified());
+		Mockito.verify(productService, Mockito.never()).findAllPaged(ArgumentMatchers.anyList(), ArgumentMatchers.anyString(), ArgumentMatchers.any(Pageable.class), ArgumentMatchers.anyBoolean(), ArgumentMatchers.anyBoolean());
+	}
+	
 	@Test
 	public void findByIdShouldReturnProductDtoWhenIdExists() throws Exception {
 		// arrange
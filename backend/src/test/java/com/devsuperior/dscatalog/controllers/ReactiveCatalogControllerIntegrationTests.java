@@ -0,0 +1,139 @@
+package com.devsuperior.dscatalog.controllers;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+import com.devsuperior.dscatalog.dto.ProductDto;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+//sem @Transactional: o R2DBC usa outras conexões e não enxergaria dados de uma transação de teste aberta
+@SpringBootTest			//carrega o contexto da aplicação.
+@AutoConfigureMockMvc	//trata as requisições sem subir o servidor web.
+public class ReactiveCatalogControllerIntegrationTests {
+	
+	@Autowired
+	private MockMvc mockMvc;
+	
+	@Autowired
+	private ObjectMapper objectMapper;
+	
+	// variáveis auxiliares
+	private long existingId;
+	private long nonExistingId;
+	private long countTotalProducts;
+	private long countTotalCategories;
+	
+	@BeforeEach
+	void setUp() throws Exception {
+	
+		existingId = 1L;
+		nonExistingId = 1000L;
+		countTotalProducts = 25L;
+		countTotalCategories = 3L;
+	}
+	
+	@Test
+	public void findAllProductsShouldStreamAllProductsSortedByNameAsNdjson() throws Exception {
+		// action
+		ResultActions result = dispatch(get("/reactive/products").accept(MediaType.APPLICATION_NDJSON));
+	
+		// assert
+		result.andExpect(status().isOk());
+		result.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON));
+		List<ProductDto> products = new ArrayList<>();
+		for (String line : result.andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8).split("\n")) {
+			products.add(objectMapper.readValue(line, ProductDto.class));
+		}
+		Assertions.assertEquals(countTotalProducts, products.size());
+		for (int i = 1; i < products.size(); i++) {
+			Assertions.assertTrue(products.get(i - 1).getName().compareTo(products.get(i).getName()) <= 0);
+		}
+		Assertions.assertTrue(products.stream().noneMatch(x -> x.getCategories().isEmpty()));
+	}
+	
+	@Test
+	public void findAllProductsShouldMatchJpaListingWhenFilteredByCategoryAndPaged() throws Exception {
+		// arrange
+		JsonNode page = objectMapper.readTree(mockMvc.perform(get("/products?categoryId=3&page=1&size=5&sort=name,asc&sort=id,asc")
+				.accept(MediaType.APPLICATION_JSON)).andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8));
+	
+		// action
+		ResultActions result = dispatch(get("/reactive/products?categoryId=3&page=1&size=5")
+				.accept(MediaType.APPLICATION_JSON));
+	
+		// assert
+		result.andExpect(status().isOk());
+		result.andExpect(jsonPath("$.length()").value(5));
+		for (int i = 0; i < 5; i++) {
+			result.andExpect(jsonPath("$[" + i + "].id").value(page.path("content").path(i).path("id").asLong()));
+		}
+	}
+	
+	@Test
+	public void findProductByIdShouldReturnSameProductAsJpaWhenIdExists() throws Exception {
+		// arrange
+		ProductDto expected = objectMapper.readValue(mockMvc.perform(get("/products/{id}", existingId)
+				.accept(MediaType.APPLICATION_JSON)).andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8),
+				ProductDto.class);
+	
+		// action
+		ResultActions result = dispatch(get("/reactive/products/{id}", existingId).accept(MediaType.APPLICATION_JSON));
+	
+		// assert
+		result.andExpect(status().isOk());
+		ProductDto actual = objectMapper.readValue(result.andReturn().getResponse()
+				.getContentAsString(StandardCharsets.UTF_8), ProductDto.class);
+		Assertions.assertEquals(expected.getName(), actual.getName());
+		Assertions.assertEquals(expected.getPrice(), actual.getPrice());
+		Assertions.assertEquals(expected.getDate(), actual.getDate());
+		Assertions.assertEquals(expected.getCategories().size(), actual.getCategories().size());
+	}
+	
+	@Test
+	public void findProductByIdShouldReturnNotFoundWhenIdDoesNotExist() throws Exception {
+		// action
+		ResultActions result = dispatch(get("/reactive/products/{id}", nonExistingId).accept(MediaType.APPLICATION_JSON));
+	
+		// assert
+		result.andExpect(status().isNotFound());
+	}
+	
+	@Test
+	public void findAllCategoriesShouldReturnAllCategoriesSortedByName() throws Exception {
+		// action
+		ResultActions result = dispatch(get("/reactive/categories").accept(MediaType.APPLICATION_JSON));
+	
+		// assert
+		result.andExpect(status().isOk());
+		result.andExpect(jsonPath("$.length()").value(countTotalCategories));
+		result.andExpect(jsonPath("$[0].name").value("Computadores"));
+	}
+	
+	//as respostas são assíncronas: inicia a requisição e despacha o resultado quando o Flux termina
+	private ResultActions dispatch(RequestBuilder builder) throws Exception {
+		MvcResult started = mockMvc.perform(builder).andExpect(request().asyncStarted()).andReturn();
+		return mockMvc.perform(asyncDispatch(started));
+	}
+	
+}
@@ -0,0 +1,68 @@
+package com.devsuperior.dscatalog.execution;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+public class ConcurrencyLimitedDataSourceTests {
+	
+	// variáveis auxiliares
+	private DataSource target;
+	private ConcurrencyLimitedDataSource dataSource;
+	
+	@BeforeEach
+	void setUp() throws Exception {
+	
+		target = Mockito.mock(DataSource.class);
+		Mockito.when(target.getConnection()).thenAnswer(x -> Mockito.mock(Connection.class));
+		dataSource = new ConcurrencyLimitedDataSource(target, 2, Duration.ofMillis(50));
+	}
+	
+	@Test
+	public void getConnectionShouldThrowSQLTransientConnectionExceptionWhenPermitsAreExhausted() throws Exception {
+		// arrange
+		dataSource.getConnection();
+		dataSource.getConnection();
+	
+		// action & assert
+		Assertions.assertThrows(SQLTransientConnectionException.class, () -> dataSource.getConnection());
+		Assertions.assertEquals(2, dataSource.getActive());
+	}
+	
+	@Test
+	public void closeShouldReleasePermitOnlyOnce() throws Exception {
+		// arrange
+		Connection first = dataSource.getConnection();
+		dataSource.getConnection();
+	
+		// action
+		first.close();
+		first.close();
+	
+		// assert
+		Assertions.assertEquals(1, dataSource.getActive());
+		Assertions.assertNotNull(dataSource.getConnection());
+		Assertions.assertThrows(SQLTransientConnectionException.class, () -> dataSource.getConnection());
+	}
+	
+	@Test
+	public void getConnectionShouldReleasePermitWhenTargetFails() throws Exception {
+		// arrange
+		Mockito.when(target.getConnection()).thenThrow(new SQLException("pool closed"));
+	
+		// action
+		Assertions.assertThrows(SQLException.class, () -> dataSource.getConnection());
+	
+		// assert
+		Assertions.assertEquals(0, dataSource.getActive());
+	}
+	
+}
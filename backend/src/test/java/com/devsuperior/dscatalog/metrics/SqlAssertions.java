@@ -0,0 +1,42 @@
+package com.devsuperior.dscatalog.metrics;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+
+//asserções sobre os comandos JDBC executados por um trecho de teste (ex.: uma chamada do MockMvc, que roda na
+//mesma thread). ex.: SqlAssertions.assertStatementsAtMost(2, () -> mockMvc.perform(get("/products/1")));
+public final class SqlAssertions {
+	
+	private SqlAssertions() {
+	}
+	
+	@FunctionalInterface
+	public interface Action {
+		void execute() throws Exception;
+	}
+	
+	//executa a ação e devolve a gravação dos comandos dela
+	public static RequestStatistics record(Action action) throws Exception {
+		try (RequestStatistics recording = RequestStatistics.begin()) {
+			action.execute();
+			return recording;
+		}
+	}
+	
+	public static RequestStatistics assertStatementsAtMost(int expected, Action action) throws Exception {
+		RequestStatistics recording = record(action);
+		Assertions.assertTrue(recording.getStatements() <= expected, () -> "Expected at most " + expected
+				+ " statements but " + recording.getStatements() + " ran: " + recording.getStatementsByShape());
+		return recording;
+	}
+	
+	//nenhum formato de SQL mais de uma vez (sem N+1)
+	public static RequestStatistics assertNoRepeatedStatements(Action action) throws Exception {
+		RequestStatistics recording = record(action);
+		Map<String, Integer> repeated = recording.getRepeatedShapes(1);
+		Assertions.assertTrue(repeated.isEmpty(), () -> "Statements repeated: " + repeated);
+		return recording;
+	}
+	
+}
@@ -0,0 +1,250 @@
+package com.devsuperior.dscatalog.routing;
+
+import static org.hamcrest.Matchers.notNullValue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import com.devsuperior.dscatalog.dto.ProductDto;
+import com.devsuperior.dscatalog.factory.ProductFactory;
+import com.devsuperior.dscatalog.services.search.ProductSearchIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+//dois H2 em memória: o primário (spring.datasource.url) e uma réplica que recebe uma cópia do primário quando o
+//schema e o import.sql ficam prontos e depois não é mais atualizada, como uma réplica atrasada.
+//sem o cache de segundo nível, que serviria o produto gravado sem passar por nenhum dos bancos.
+//sem @Transactional: as requisições precisam abrir as próprias transações para serem roteadas
+@SpringBootTest(properties = {
+		"dscatalog.routing.enabled=true",
+		"spring.datasource.url=" + ReadWriteRoutingIntegrationTests.PRIMARY_URL,
+		"spring.r2dbc.url=r2dbc:h2:mem:///routing-primary",
+		"dscatalog.routing.replica-urls=" + ReadWriteRoutingIntegrationTests.REPLICA_URL,
+		"dscatalog.routing.max-replica-lag=2s",
+		"dscatalog.cache.entities.enabled=false"})
+@AutoConfigureMockMvc
+@DirtiesContext
+public class ReadWriteRoutingIntegrationTests {
+	
+	static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary";
+	static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+	
+	@Autowired
+	private MockMvc mockMvc;
+	
+	@Autowired
+	private ObjectMapper objectMapper;
+	
+	@Autowired
+	private ProductSearchIndex productSearchIndex;
+	
+	// variáveis auxiliares
+	private ProductDto productDto;
+	
+	@BeforeEach
+	void setUp() throws Exception {
+	
+		productDto = ProductFactory.createProductDto();
+		productDto.setName("Updated on primary");
+	}
+	
+	@Test
+	public void findByIdShouldReadFromReplica() throws Exception {
+		// arrange
+		long id = 5L;
+		execute(REPLICA_URL, "UPDATE tb_product SET name = 'Replica copy' WHERE id = " + id);
+	
+		// action
+		ResultActions result = mockMvc.perform(get("/products/{id}", id).accept(MediaType.APPLICATION_JSON));
+	
+		// assert
+		result.andExpect(status().isOk());
+		result.andExpect(jsonPath("$.name").value("Replica copy"));
+	}
+	
+	@Test
+	public void findByIdShouldReadFromPrimaryWhenConsistencyTokenIsRecent() throws Exception {
+		// arrange
+		long id = 6L;
+		String staleName = nameOf(PRIMARY_URL, id);
+		ResultActions update = mockMvc.perform(put("/products/{id}", id)
+				.content(objectMapper.writeValueAsString(productDto))
+				.contentType(MediaType.APPLICATION_JSON)
+				.accept(MediaType.APPLICATION_JSON));
+		update.andExpect(status().isOk());
+		update.andExpect(header().string(DataSourceRouting.TOKEN_HEADER, notNullValue()));
+		String token = update.andReturn().getResponse().getHeader(DataSourceRouting.TOKEN_HEADER);
+	
+		// action
+		ResultActions withoutToken = mockMvc.perform(get("/products/{id}", id).accept(MediaType.APPLICATION_JSON));
+		ResultActions withToken = mockMvc.perform(get("/products/{id}", id)
+				.header(DataSourceRouting.TOKEN_HEADER, token)
+				.accept(MediaType.APPLICATION_JSON));
+	
+		// assert
+		withoutToken.andExpect(jsonPath("$.name").value(staleName));
+		withToken.andExpect(status().isOk());
+		withToken.andExpect(jsonPath("$.name").value("Updated on primary"));
+	}
+	
+	@Test
+	public void findByIdShouldReadFromReplicaWhenConsistencyTokenIsOlderThanReplicaLag() throws Exception {
+		// arrange
+		long id = 7L;
+		String staleName = nameOf(PRIMARY_URL, id);
+		mockMvc.perform(put("/products/{id}", id)
+				.content(objectMapper.writeValueAsString(productDto))
+				.contentType(MediaType.APPLICATION_JSON)).andExpect(status().isOk());
+		String expiredToken = String.valueOf(System.currentTimeMillis() - 60_000L);
+	
+		// action
+		ResultActions result = mockMvc.perform(get("/products/{id}", id)
+				.header(DataSourceRouting.TOKEN_HEADER, expiredToken)
+				.accept(MediaType.APPLICATION_JSON));
+	
+		// assert
+		result.andExpect(status().isOk());
+		result.andExpect(jsonPath("$.name").value(staleName));
+	}
+	
+	@Test
+	public void findByIdShouldReadFromReplicaWhenConsistencyTokenIsInTheFuture() throws Exception {
+		// arrange
+		long id = 9L;
+		String staleName = nameOf(PRIMARY_URL, id);
+		mockMvc.perform(put("/products/{id}", id)
+				.content(objectMapper.writeValueAsString(productDto))
+				.contentType(MediaType.APPLICATION_JSON)).andExpect(status().isOk());
+		String futureToken = String.valueOf(System.currentTimeMillis() + 86_400_000L);
+	
+		// action
+		ResultActions result = mockMvc.perform(get("/products/{id}", id)
+				.header(DataSourceRouting.TOKEN_HEADER, futureToken)
+				.accept(MediaType.APPLICATION_JSON));
+	
+		// assert
+		result.andExpect(status().isOk());
+		result.andExpect(jsonPath("$.name").value(staleName));
+	}
+	
+	@Test
+	public void findByIdShouldNotReturnConsistencyToken() throws Exception {
+		// action
+		ResultActions result = mockMvc.perform(get("/products/{id}", 1L).accept(MediaType.APPLICATION_JSON));
+	
+		// assert
+		result.andExpect(status().isOk());
+		result.andExpect(header().doesNotExist(DataSourceRouting.TOKEN_HEADER));
+	}
+	
+	@Test
+	public void findAllShouldNotReturnETagWhenRoutingIsEnabled() throws Exception {
+		// action
+		ResultActions result = mockMvc.perform(get("/products?page=0&size=12").accept(MediaType.APPLICATION_JSON));
+	
+		// assert
+		result.andExpect(status().isOk());
+		result.andExpect(header().doesNotExist(HttpHeaders.ETAG));
+	}
+	
+	@Test
+	public void indexRebuildShouldReadFromPrimary() throws Exception {
+		// arrange
+		long id = 8L;
+		execute(REPLICA_URL, "UPDATE tb_product SET name = 'Stale replica copy' WHERE id = " + id);
+	
+		// action
+		productSearchIndex.rebuild();
+	
+		// assert
+		Assertions.assertEquals(0L, productSearchIndex.search("stale replica", PageRequest.of(0, 10)).getTotalElements());
+		Assertions.assertEquals(1L, productSearchIndex.search(nameOf(PRIMARY_URL, id), PageRequest.of(0, 10))
+				.getContent().stream().filter(x -> x.getId() == id).count());
+	}
+	
+	private static String nameOf(String url, long id) throws SQLException {
+		try (Connection connection = DriverManager.getConnection(url, "sa", "");
+				PreparedStatement statement = connection.prepareStatement("SELECT name FROM tb_product WHERE id = ?")) {
+			statement.setLong(1, id);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				resultSet.next();
+				return resultSet.getString(1);
+			}
+		}
+	}
+	
+	private static void execute(String url, String sql) throws SQLException {
+		try (Connection connection = DriverManager.getConnection(url, "sa", "");
+				Statement statement = connection.createStatement()) {
+			statement.execute(sql);
+		}
+	}
+	
+	@TestConfiguration
+	static class ReplicaCopyConfig {
+		
+		//depois do EntityManagerFactory (schema criado e import.sql carregado) e antes de qualquer leitura nas réplicas
+		@Bean
+		static BeanPostProcessor replicaCopy() {
+			return new BeanPostProcessor() {
+				@Override
+				public Object postProcessAfterInitialization(Object bean, String beanName) {
+					if (bean instanceof EntityManagerFactory) {
+						copyPrimaryToReplica();
+					}
+					return bean;
+				}
+			};
+		}
+		
+		private static void copyPrimaryToReplica() {
+			try (Connection primary = DriverManager.getConnection(PRIMARY_URL, "sa", "");
+					Connection replica = DriverManager.getConnection(REPLICA_URL, "sa", "");
+					Statement script = primary.createStatement();
+					Statement copy = replica.createStatement()) {
+				List<String> statements = new ArrayList<>();
+				try (ResultSet resultSet = script.executeQuery("SCRIPT")) {
+					while (resultSet.next()) {
+						statements.add(resultSet.getString(1));
+					}
+				}
+				copy.execute("DROP ALL OBJECTS");
+				for (String sql : statements) {
+					copy.execute(sql);
+				}
+			} catch (SQLException e) {
+				throw new IllegalStateException("Could not copy the primary database to the replica", e);
+			}
+		}
+		
+	}
+	
+}
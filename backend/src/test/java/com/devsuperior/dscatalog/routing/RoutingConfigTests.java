@@ -0,0 +1,30 @@
+package com.devsuperior.dscatalog.routing;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.annotation.UserConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import com.devsuperior.dscatalog.config.RoutingConfig;
+
+public class RoutingConfigTests {
+	
+	private final ApplicationContextRunner runner = new ApplicationContextRunner()
+			.withConfiguration(UserConfigurations.of(RoutingConfig.class))
+			.withPropertyValues("dscatalog.routing.enabled=true");
+	
+	@Test
+	public void contextShouldFailWhenRoutingIsCombinedWithVirtualExecutionMode() {
+		// action & assert
+		runner.withPropertyValues("dscatalog.execution.mode=virtual").run(context -> {
+			Assertions.assertNotNull(context.getStartupFailure());
+			Throwable cause = context.getStartupFailure();
+			while (cause.getCause() != null) {
+				cause = cause.getCause();
+			}
+			Assertions.assertTrue(cause instanceof IllegalStateException);
+			Assertions.assertTrue(cause.getMessage().contains("dscatalog.execution.mode=virtual"));
+		});
+	}
+	
+}
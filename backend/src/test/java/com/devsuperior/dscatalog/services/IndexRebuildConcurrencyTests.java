@@ -0,0 +1,105 @@
+package com.devsuperior.dscatalog.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.devsuperior.dscatalog.repositories.CategoryRepository;
+import com.devsuperior.dscatalog.repositories.ProductRepository;
+import com.devsuperior.dscatalog.services.columnar.CategoryBitmapIndex;
+import com.devsuperior.dscatalog.services.columnar.ProductColumnStore;
+import com.devsuperior.dscatalog.services.search.ProductSearchIndex;
+import com.devsuperior.dscatalog.services.search.SuggestIndex;
+
+//recargas sobrepostas dos índices em memória: nenhuma pode falhar nem deixar o índice incompleto.
+//sem @Transactional: cada recarga abre a própria transação, como no afterCommit de uma escrita
+@SpringBootTest
+public class IndexRebuildConcurrencyTests {
+	
+	private static final int THREADS = 4;
+	private static final int REBUILDS = 5;
+	
+	@Autowired
+	private ProductRepository productRepository;
+	
+	@Autowired
+	private CategoryRepository categoryRepository;
+	
+	@Autowired
+	private ProductColumnStore productColumnStore;
+	
+	@Autowired
+	private ProductSearchIndex productSearchIndex;
+	
+	@Autowired
+	private CategoryBitmapIndex categoryBitmapIndex;
+	
+	@Autowired
+	private SuggestIndex suggestIndex;
+	
+	@Test
+	public void columnStoreRebuildShouldNotFailWhenRebuildsOverlap() throws Exception {
+		// action
+		runConcurrently(() -> productColumnStore.rebuild());
+	
+		// assert
+		Assertions.assertEquals(productRepository.count(), productColumnStore.size());
+	}
+	
+	@Test
+	public void searchIndexRebuildShouldNotFailWhenRebuildsOverlap() throws Exception {
+		// action
+		runConcurrently(() -> productSearchIndex.rebuild());
+	
+		// assert
+		Assertions.assertEquals(productRepository.count(), productSearchIndex.size());
+	}
+	
+	@Test
+	public void categoryIndexRebuildShouldNotFailWhenRebuildsOverlap() throws Exception {
+		// action
+		runConcurrently(() -> categoryBitmapIndex.rebuild());
+	
+		// assert
+		Assertions.assertEquals(productRepository.count(), categoryBitmapIndex.size());
+	}
+	
+	@Test
+	public void suggestIndexRebuildShouldNotFailWhenRebuildsOverlap() throws Exception {
+		// action
+		runConcurrently(() -> suggestIndex.rebuild());
+	
+		// assert
+		Assertions.assertEquals(categoryRepository.count() + productRepository.count(), suggestIndex.size());
+	}
+	
+	private void runConcurrently(Runnable rebuild) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<Void>> results = new ArrayList<>();
+			for (int i = 0; i < THREADS; i++) {
+				Callable<Void> task = () -> {
+					for (int j = 0; j < REBUILDS; j++) {
+						rebuild.run();
+					}
+					return null;
+				};
+				results.add(executor.submit(task));
+			}
+			for (Future<Void> result : results) {
+				result.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+	
+}
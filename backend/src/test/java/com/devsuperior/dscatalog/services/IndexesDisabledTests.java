@@ -0,0 +1,45 @@
+package com.devsuperior.dscatalog.services;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+
+import com.devsuperior.dscatalog.services.columnar.CategoryBitmapIndex;
+import com.devsuperior.dscatalog.services.columnar.ProductColumnStore;
+import com.devsuperior.dscatalog.services.search.ProductSearchIndex;
+import com.devsuperior.dscatalog.services.search.SuggestIndex;
+import com.devsuperior.dscatalog.services.util.ProductFilter;
+
+//como no modo de importação pela linha de comando: nenhum índice em memória é carregado na subida
+@SpringBootTest(properties = "dscatalog.indexes.enabled=false")
+public class IndexesDisabledTests {
+	
+	@Autowired
+	private ProductSearchIndex productSearchIndex;
+	
+	@Autowired
+	private SuggestIndex suggestIndex;
+	
+	@Autowired
+	private ProductColumnStore productColumnStore;
+	
+	@Autowired
+	private CategoryBitmapIndex categoryBitmapIndex;
+	
+	@Test
+	public void indexesShouldNotBeLoadedWhenDisabled() {
+		// assert
+		Assertions.assertEquals(0, productSearchIndex.size());
+		Assertions.assertEquals(0, suggestIndex.size());
+		Assertions.assertEquals(0, productColumnStore.size());
+		Assertions.assertEquals(0, categoryBitmapIndex.size());
+		Assertions.assertFalse(categoryBitmapIndex.isReady());
+		Assertions.assertTrue(productColumnStore.findAll(ProductFilter.of(List.of(), ""), PageRequest.of(0, 1), false, false)
+				.isEmpty());
+	}
+	
+}
@@ -0,0 +1,72 @@
+package com.devsuperior.dscatalog.services;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.devsuperior.dscatalog.dto.ProductDto;
+import com.devsuperior.dscatalog.repositories.ProductBatchRepository;
+import com.devsuperior.dscatalog.services.cache.CategoryCache;
+import com.devsuperior.dscatalog.services.util.ProductsChanged;
+
+@ExtendWith(SpringExtension.class)
+public class ProductBatchServiceTests {
+	
+	@InjectMocks
+	private ProductBatchService service;
+	
+	@Mock
+	private ProductBatchRepository productBatchRepository;
+	
+	@Mock
+	private CategoryCache categoryCache;
+	
+	@Mock
+	private ApplicationEventPublisher eventPublisher;
+	
+	@Mock
+	private PlatformTransactionManager transactionManager;
+	
+	private List<ProductDto> productsDto;
+	
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(service, "chunkSize", 2);
+		productsDto = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			productsDto.add(new ProductDto(null, "Produto " + i, "", 10.0, "", Instant.now()));
+		}
+	}
+	
+	@Test
+	public void insertAllShouldPublishCommittedChunksWhenLaterChunkThrowsNonDataBaseException() {
+		// arrange
+		Mockito.doNothing().doThrow(new IllegalStateException("falha inesperada"))
+				.when(productBatchRepository).insertAll(ArgumentMatchers.any());
+		
+		// action
+		Assertions.assertThrows(IllegalStateException.class, () -> service.insertAll(productsDto));
+		
+		// assert
+		ArgumentCaptor<ProductsChanged> event = ArgumentCaptor.forClass(ProductsChanged.class);
+		Mockito.verify(eventPublisher).publishEvent(event.capture());
+		Assertions.assertEquals(2, event.getValue().getSaved().size());
+		Mockito.verify(transactionManager, Mockito.times(1)).commit(ArgumentMatchers.any());
+		Mockito.verify(transactionManager, Mockito.times(1)).rollback(ArgumentMatchers.any());
+	}
+	
+}
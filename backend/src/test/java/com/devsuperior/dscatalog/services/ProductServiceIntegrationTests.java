@@ -1,20 +1,45 @@
 package com.devsuperior.dscatalog.services;
 
+import java.io.ByteArrayOutputStream;
+import java.time.Instant;
+import java.util.List;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.test.context.transaction.TestTransaction;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.devsuperior.dscatalog.dto.BulkResultDto;
+import com.devsuperior.dscatalog.dto.CursorPageDto;
+import com.devsuperior.dscatalog.dto.PageDto;
+import com.devsuperior.dscatalog.dto.PriceUpdateDto;
 import com.devsuperior.dscatalog.dto.ProductDto;
+import com.devsuperior.dscatalog.dto.ProductSummaryDto;
+import com.devsuperior.dscatalog.dto.SliceDto;
+import com.devsuperior.dscatalog.dto.SuggestionDto;
+import com.devsuperior.dscatalog.entities.Product;
 import com.devsuperior.dscatalog.factory.ProductFactory;
+import com.devsuperior.dscatalog.metrics.RequestStatistics;
+import com.devsuperior.dscatalog.metrics.SqlAssertions;
 import com.devsuperior.dscatalog.repositories.ProductRepository;
+import com.devsuperior.dscatalog.services.exceptions.ServiceBadRequestException;
 import com.devsuperior.dscatalog.services.exceptions.ServiceNotFoundException;
+import com.devsuperior.dscatalog.services.search.ProductSearchIndex;
+import com.devsuperior.dscatalog.services.search.SuggestIndex;
+import com.devsuperior.dscatalog.services.util.FileFormat;
+import com.devsuperior.dscatalog.services.util.ProductsChanged;
 
 @SpringBootTest //carrega o contexto da aplicação sem o servidor
 @Transactional //garante o rollback das transação com o banco
@@ -26,6 +51,21 @@ public class ProductServiceIntegrationTests {
 	@Autowired
 	ProductRepository productRepository;
 	
+	@Autowired
+	ProductSearchIndex searchIndex;
+	
+	@Autowired
+	SuggestIndex suggestIndex;
+	
+	@Autowired
+	ApplicationEventPublisher eventPublisher;
+	
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+	
+	@Autowired
+	ProductExportService productExportService;
+	
 	// variáveis auxiliares
 	private long existingId;	
 	private long nonExistingId;
@@ -83,6 +123,276 @@ public class ProductServiceIntegrationTests {
 		Assertions.assertTrue(result.isEmpty());
 	}
 	
+	@Test
+	public void findAllPagedShouldReturnUpdatedTotalWhenProductIsInserted() {
+		// arrange
+		Pageable page = PageRequest.of(0, 12);
+		ProductDto productDto = ProductFactory.createProductDto();
+		productDto.setId(null);
+		
+		// action
+		Page<ProductDto> before = productService.findAllPaged(page);
+		productService.insert(productDto);
+		Page<ProductDto> after = productService.findAllPaged(page);
+		
+		// assert
+		Assertions.assertEquals(countTotalProducts, before.getTotalElements());
+		Assertions.assertEquals(countTotalProducts + 1, after.getTotalElements());
+	}
+	
+	@Test
+	public void findAllPagedShouldReturnApproximateTotalWhenCountIsStale() {
+		// arrange
+		Pageable page = PageRequest.of(0, 12);
+		ProductDto productDto = ProductFactory.createProductDto();
+		productDto.setId(null);
+		
+		// action
+		productService.findAllPaged(page);
+		productService.insert(productDto);
+		PageDto<ProductDto> result = (PageDto<ProductDto>) productService.findAllPaged(page, true, false);
+		
+		// assert
+		Assertions.assertTrue(result.isApproximateCount());
+		Assertions.assertEquals(countTotalProducts, result.getTotalElements());
+	}
+	
+	@Test
+	public void findAllSummariesShouldReturnSortedPageWhenSortByName() {
+		// arrange
+		Pageable page = PageRequest.of(0, 12, Sort.by("name"));
+		
+		// action
+		Page<ProductSummaryDto> result = productService.findAllSummaries(page, false);
+		
+		// assert
+		Assertions.assertEquals(countTotalProducts, result.getTotalElements());
+		Assertions.assertEquals("Macbook Pro", result.getContent().get(0).getName());
+		Assertions.assertEquals("PC Gamer", result.getContent().get(1).getName());
+	}
+	
+	@Test
+	public void findAllSlicedShouldReturnHasNextWhenMoreRowsExist() {
+		// arrange
+		Pageable page = PageRequest.of(0, 12, Sort.by("name"));
+		
+		// action
+		SliceDto<ProductDto> result = productService.findAllSliced(page);
+		
+		// assert
+		Assertions.assertEquals(12, result.getContent().size());
+		Assertions.assertTrue(result.isHasNext());
+		Assertions.assertEquals("Macbook Pro", result.getContent().get(0).getName());
+	}
+	
+	@Test
+	public void findAllSlicedShouldReturnNoNextWhenLastPage() {
+		// arrange
+		Pageable page = PageRequest.of(2, 12);
+		
+		// action
+		SliceDto<ProductDto> result = productService.findAllSliced(page);
+		
+		// assert
+		Assertions.assertEquals(1, result.getContent().size());
+		Assertions.assertFalse(result.isHasNext());
+	}
+	
+	@Test
+	public void findAllSlicedShouldNotQueryDatabaseWhenListingIsCached() throws Exception {
+		// arrange
+		Pageable page = PageRequest.of(1, 12, Sort.by("name"));
+		TestTransaction.end(); //cada chamada na própria sessão, como requisições distintas
+		//o rollback de alterações de outros testes deixa produtos travados no cache por um tempo
+		entityManagerFactory.getCache().evictAll();
+		SliceDto<ProductDto> expected = productService.findAllSliced(page);
+		
+		// action
+		RequestStatistics recording = SqlAssertions.record(() -> productService.findAllSliced(page));
+		
+		// assert
+		Assertions.assertEquals(0, recording.getStatements());
+		SliceDto<ProductDto> result = productService.findAllSliced(page);
+		Assertions.assertEquals(expected.getContent().size(), result.getContent().size());
+		Assertions.assertEquals(expected.getContent().get(0).getName(), result.getContent().get(0).getName());
+	}
+	
+	@Test
+	public void exportShouldLeaveSecondLevelCacheUnchanged() throws Exception {
+		// arrange
+		TestTransaction.end();
+		Cache cache = entityManagerFactory.getCache();
+		cache.evictAll();
+		productRepository.findById(existingId);
+		
+		// action
+		long exported = productExportService.export(FileFormat.NDJSON, new ByteArrayOutputStream());
+		
+		// assert
+		Assertions.assertEquals(countTotalProducts, exported);
+		Assertions.assertTrue(cache.contains(Product.class, existingId));
+		for (long id = 1; id <= countTotalProducts; id++) {
+			Assertions.assertEquals(id == existingId, cache.contains(Product.class, id), "Product " + id);
+		}
+	}
+	
+	@Test
+	public void findAllSeekShouldContinueAfterCursorWhenCursorIsGiven() {
+		
+		// action
+		CursorPageDto<ProductDto> first = productService.findAllSeek("", 2, Direction.ASC);
+		CursorPageDto<ProductDto> second = productService.findAllSeek(first.getNextCursor(), 2, Direction.ASC);
+		
+		// assert
+		Assertions.assertTrue(first.isHasNext());
+		Assertions.assertEquals("Macbook Pro", first.getContent().get(0).getName());
+		Assertions.assertEquals("PC Gamer", first.getContent().get(1).getName());
+		Assertions.assertEquals("PC Gamer Alfa", second.getContent().get(0).getName());
+	}
+	
+	@Test
+	public void findAllSeekShouldReturnNoCursorWhenLastPage() {
+		
+		// action
+		CursorPageDto<ProductDto> result = productService.findAllSeek("", (int) countTotalProducts, Direction.DESC);
+		
+		// assert
+		Assertions.assertEquals(countTotalProducts, result.getContent().size());
+		Assertions.assertFalse(result.isHasNext());
+		Assertions.assertNull(result.getNextCursor());
+	}
+	
+	@Test
+	public void findAllSeekShouldThrowsServiceBadRequestExceptionWhenCursorIsInvalid() {
+		
+		// assert
+		Assertions.assertThrows(ServiceBadRequestException.class, () -> {
+			// action
+			productService.findAllSeek("not-a-cursor", 12, Direction.DESC);
+		});
+	}
+	
+	@Test
+	public void searchShouldReturnRankedMatchesOfAllTerms() {
+		// arrange
+		Pageable page = PageRequest.of(0, 5);
+		
+		// action
+		Page<ProductSummaryDto> result = productService.search("pc GAMER", page);
+		
+		// assert
+		Assertions.assertEquals(21L, result.getTotalElements());
+		Assertions.assertEquals(5, result.getNumberOfElements());
+		Assertions.assertTrue(result.getContent().stream().allMatch(x -> x.getName().startsWith("PC Gamer")));
+		Assertions.assertEquals("PC Gamer", result.getContent().get(0).getName());
+	}
+	
+	@Test
+	public void searchShouldIgnoreAccentsAndCase() {
+		// action
+		Page<ProductSummaryDto> result = productService.search("MÁCBOOK", PageRequest.of(0, 12));
+		
+		// assert
+		Assertions.assertEquals(1L, result.getTotalElements());
+		Assertions.assertEquals("Macbook Pro", result.getContent().get(0).getName());
+	}
+	
+	@Test
+	public void searchShouldReturnEmptyPageWhenAnyTermIsUnknown() {
+		// action
+		Page<ProductSummaryDto> result = productService.search("macbook inexistente", PageRequest.of(0, 12));
+		
+		// assert
+		Assertions.assertTrue(result.isEmpty());
+	}
+	
+	@Test
+	public void searchShouldThrowsServiceBadRequestExceptionWhenQueryIsBlank() {
+		// action e assert
+		Assertions.assertThrows(ServiceBadRequestException.class, () -> productService.search("  ", PageRequest.of(0, 12)));
+	}
+	
+	@Test
+	public void searchIndexShouldBeUpdatedOnlyAfterCommit() {
+		// arrange
+		Product product = new Product(999L, "Kindle Paperwhite", "Leitor de livros digitais", 499.9, null, Instant.now());
+		
+		// action
+		//dentro da transação do teste: aguarda o commit, que nunca acontece
+		eventPublisher.publishEvent(ProductsChanged.saved(product, false));
+		long beforeCommit = productService.search("kindle", PageRequest.of(0, 12)).getTotalElements();
+		TestTransaction.end(); //rollback; sem transação ativa as alterações entram na hora
+		eventPublisher.publishEvent(ProductsChanged.saved(product, false));
+		long afterIndex = productService.search("kindle", PageRequest.of(0, 12)).getTotalElements();
+		eventPublisher.publishEvent(ProductsChanged.removed(List.of(999L), false));
+		long afterRemove = productService.search("kindle", PageRequest.of(0, 12)).getTotalElements();
+		
+		// assert
+		Assertions.assertEquals(0L, beforeCommit);
+		Assertions.assertEquals(1L, afterIndex);
+		Assertions.assertEquals(0L, afterRemove);
+	}
+	
+	@Test
+	public void suggestShouldReturnTopNamesForPrefixOfAnyWord() {
+		// action
+		List<SuggestionDto> byFirstWord = productService.suggest("pc g", 3);
+		List<SuggestionDto> byInnerWord = productService.suggest("gamer al", 10);
+		
+		// assert
+		Assertions.assertEquals(3, byFirstWord.size());
+		Assertions.assertEquals("PC Gamer", byFirstWord.get(0).getText());
+		Assertions.assertTrue(byFirstWord.stream().allMatch(x -> x.getType() == SuggestionDto.Type.PRODUCT));
+		Assertions.assertEquals(1, byInnerWord.size());
+		Assertions.assertEquals("PC Gamer Alfa", byInnerWord.get(0).getText());
+	}
+	
+	@Test
+	public void suggestShouldMatchWordSequencesAnywhereInTheName() {
+		// action
+		List<SuggestionDto> inner = productService.suggest("of the", 10);
+		List<SuggestionDto> lastWord = productService.suggest("rings ", 10);
+		List<SuggestionDto> repeated = productService.suggest("the", 10);
+		
+		// assert
+		Assertions.assertEquals(1, inner.size());
+		Assertions.assertEquals("The Lord of the Rings", inner.get(0).getText());
+		Assertions.assertTrue(lastWord.isEmpty());
+		Assertions.assertEquals(1, repeated.stream().filter(x -> x.getText().equals("The Lord of the Rings")).count());
+	}
+	
+	@Test
+	public void suggestShouldReturnCategoriesBeforeProductsIgnoringAccents() {
+		// action
+		List<SuggestionDto> result = productService.suggest("ELETRO", 10);
+		
+		// assert
+		Assertions.assertEquals(1, result.size());
+		Assertions.assertEquals(SuggestionDto.Type.CATEGORY, result.get(0).getType());
+		Assertions.assertEquals("Eletrônicos", result.get(0).getText());
+	}
+	
+	@Test
+	public void suggestIndexShouldFollowRenamesAndDeletesAfterCommit() {
+		// arrange
+		TestTransaction.end(); //sem transação ativa as alterações entram na hora
+		
+		// action
+		suggestIndex.put(SuggestionDto.Type.PRODUCT, 999L, "Zeppelin de Brinquedo");
+		List<SuggestionDto> added = productService.suggest("zep", 10);
+		suggestIndex.put(SuggestionDto.Type.PRODUCT, 999L, "Balão de Brinquedo");
+		List<SuggestionDto> oldName = productService.suggest("zep", 10);
+		List<SuggestionDto> newName = productService.suggest("balao", 10);
+		suggestIndex.remove(SuggestionDto.Type.PRODUCT, List.of(999L));
+		List<SuggestionDto> removed = productService.suggest("brinq", 10);
+		
+		// assert
+		Assertions.assertEquals(1, added.size());
+		Assertions.assertTrue(oldName.isEmpty());
+		Assertions.assertEquals("Balão de Brinquedo", newName.get(0).getText());
+		Assertions.assertTrue(removed.isEmpty());
+	}
+	
 	@Test
 	public void findByIdShouldReturnProductDtoWhenIdExists() {
 		
@@ -95,6 +405,22 @@ public class ProductServiceIntegrationTests {
 		Assertions.assertEquals("The Lord of the Rings", result.getName());
 	}
 	
+	@Test
+	public void findByIdShouldNotQueryDatabaseWhenProductIsCached() throws Exception {
+		// arrange
+		TestTransaction.end(); //cada chamada na própria sessão, como requisições distintas
+		//o rollback de alterações de outros testes deixa produtos travados no cache por um tempo
+		entityManagerFactory.getCache().evictAll();
+		productService.findById(existingId);
+		
+		// action
+		RequestStatistics recording = SqlAssertions.record(() -> productService.findById(existingId));
+		
+		// assert
+		Assertions.assertEquals(0, recording.getStatements());
+		Assertions.assertEquals("The Lord of the Rings", productService.findById(existingId).getName());
+	}
+	
 	@Test
 	public void findByIdShouldThrowsServiceNotFoundExceptionWhenIdDoesNotExist() {
 		
@@ -147,6 +473,71 @@ public class ProductServiceIntegrationTests {
 		Assertions.assertEquals(countTotalProducts - 1, productRepository.count());	
 	}
 	
+	@Test
+	public void deleteAllShouldDeleteProductsWhenIdsAndCategoryAreGiven() {
+		// arrange
+		//categoria 2 (Eletrônicos) contém os produtos 1 e 5
+		long electronicsId = 2L;
+		
+		// action
+		BulkResultDto result = productService.deleteAll(List.of(2L, 3L), electronicsId);
+		
+		// assert
+		Assertions.assertEquals(4, result.getAffected());
+		Assertions.assertEquals(countTotalProducts - 4, productRepository.count());
+		Assertions.assertTrue(productRepository.findById(existingId).isEmpty());
+	}
+	
+	@Test
+	public void deleteAllShouldThrowsServiceBadRequestExceptionWhenNoTargetIsGiven() {
+		
+		// assert
+		Assertions.assertThrows(ServiceBadRequestException.class, () -> {
+			// action
+			productService.deleteAll(List.of(), null);
+		});
+	}
+	
+	@Test
+	public void updatePricesShouldApplyPercentageWhenCategoryIsGiven() {
+		// arrange
+		//categoria 1 (Livros) contém apenas o produto 2 (Smart TV, 2190.0)
+		PriceUpdateDto priceUpdateDto = new PriceUpdateDto(1L, 10.0, null);
+		
+		// action
+		BulkResultDto result = productService.updatePrices(priceUpdateDto);
+		
+		// assert
+		Assertions.assertEquals(1, result.getAffected());
+		Assertions.assertEquals(2409.0, productRepository.findById(2L).get().getPrice(), 0.001);
+		Assertions.assertEquals(90.5, productRepository.findById(existingId).get().getPrice(), 0.001);
+	}
+	
+	@Test
+	public void updatePricesShouldAddAmountToAllProductsWhenNoCategoryIsGiven() {
+		// arrange
+		PriceUpdateDto priceUpdateDto = new PriceUpdateDto(null, null, -0.5);
+		
+		// action
+		BulkResultDto result = productService.updatePrices(priceUpdateDto);
+		
+		// assert
+		Assertions.assertEquals(countTotalProducts, result.getAffected().longValue());
+		Assertions.assertEquals(90.0, productRepository.findById(existingId).get().getPrice(), 0.001);
+	}
+	
+	@Test
+	public void updatePricesShouldThrowsServiceBadRequestExceptionWhenPercentageAndAmountAreGiven() {
+		// arrange
+		PriceUpdateDto priceUpdateDto = new PriceUpdateDto(null, 10.0, 5.0);
+		
+		// assert
+		Assertions.assertThrows(ServiceBadRequestException.class, () -> {
+			// action
+			productService.updatePrices(priceUpdateDto);
+		});
+	}
+	
 	@Test
 	public void updateShouldThrowsServiceNotFoundExceptionWhenIdDoesNotExist() {
 		// arrange
@@ -183,5 +574,5 @@ public class ProductServiceIntegrationTests {
 //			productService.delete(dependentId);
 //		});
 //	}
-
+	
 }
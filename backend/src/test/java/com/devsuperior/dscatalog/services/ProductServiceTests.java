@@ -1,18 +1,23 @@
 package com.devsuperior.dscatalog.services;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
 import javax.persistence.EntityNotFoundException;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.data.domain.Page;
@@ -21,6 +26,8 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import com.devsuperior.dscatalog.dto.BulkResultDto;
+import com.devsuperior.dscatalog.dto.CategoryDto;
 import com.devsuperior.dscatalog.dto.ProductDto;
 import com.devsuperior.dscatalog.entities.Category;
 import com.devsuperior.dscatalog.entities.Product;
@@ -28,8 +35,17 @@ import com.devsuperior.dscatalog.factory.CategoryFactory;
 import com.devsuperior.dscatalog.factory.ProductFactory;
 import com.devsuperior.dscatalog.repositories.CategoryRepository;
 import com.devsuperior.dscatalog.repositories.ProductRepository;
+import com.devsuperior.dscatalog.services.cache.CategoryCache;
+import com.devsuperior.dscatalog.services.cache.ListingCountCache;
+import com.devsuperior.dscatalog.services.cache.ProductListVersion;
+import com.devsuperior.dscatalog.services.cache.ListingCountCache.CountResult;
+import com.devsuperior.dscatalog.services.exceptions.ServiceBadRequestException;
 import com.devsuperior.dscatalog.services.exceptions.ServiceDataBaseException;
 import com.devsuperior.dscatalog.services.exceptions.ServiceNotFoundException;
+import com.devsuperior.dscatalog.services.search.ProductSearchIndex;
+import com.devsuperior.dscatalog.services.search.SuggestIndex;
+import com.devsuperior.dscatalog.services.util.ProductsChanged;
+import com.devsuperior.dscatalog.services.util.ProductsChanged.Reload;
 
 @ExtendWith(SpringExtension.class)
 public class ProductServiceTests {
@@ -43,6 +59,27 @@ public class ProductServiceTests {
 	@Mock
 	private CategoryRepository categoryRepository;
 	
+	@Mock
+	private ListingCountCache countCache;
+	
+	@Mock
+	private CategoryCache categoryCache;
+	
+	@Mock
+	private ProductListVersion listVersion;
+	
+	@Mock
+	private ProductSearchIndex searchIndex;
+	
+	@Mock
+	private SuggestIndex suggestIndex;
+	
+	@Mock
+	private ApplicationEventPublisher eventPublisher;
+	
+	@Mock
+	private EntityManagerFactory entityManagerFactory;
+	
 	// variáveis auxiliares
 	private long existingId;	
 	private long nonExistingId;
@@ -65,14 +102,18 @@ public class ProductServiceTests {
 		productDto = ProductFactory.createProductDto();
 		page = new PageImpl<>(List.of(product)); //uma página fake com a lista de um produto nela
 		
-		// configura ação simulada do comportamento "findAll" do Mock productRepository
-		Mockito.when(productRepository.findAll(ArgumentMatchers.any(Pageable.class))).thenReturn(page);
+		// configura ação simulada do comportamento "findAllSliced" do Mock productRepository
+		Mockito.when(productRepository.findAllSliced(ArgumentMatchers.any(Pageable.class))).thenReturn(page);
+		Mockito.when(countCache.count(ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any(),
+				ArgumentMatchers.any(), ArgumentMatchers.anyBoolean(), ArgumentMatchers.any())).thenReturn(new CountResult(1L, false));
 		
 		// configura ação simulada do comportamento "getById" do Mock productRepository
 		Mockito.when(productRepository.getById(existingId)).thenReturn(product);
 		Mockito.when(productRepository.getById(nonExistingId)).thenThrow(EntityNotFoundException.class);
 		Mockito.when(categoryRepository.getById(existingId)).thenReturn(category);
 		Mockito.when(categoryRepository.getById(nonExistingId)).thenThrow(EntityNotFoundException.class);
+		Mockito.when(categoryCache.findKnown(ArgumentMatchers.any()))
+				.thenReturn(Map.of(existingCategoryId, new CategoryDto(category)));
 		
 		// configura ação simulada do comportamento "findById" do Mock productRepository
 		Mockito.when(productRepository.findById(existingId)).thenReturn(Optional.of(product));
@@ -85,8 +126,10 @@ public class ProductServiceTests {
 		Mockito.doNothing().when(productRepository).deleteById(existingId);
 		Mockito.doThrow(EmptyResultDataAccessException.class).when(productRepository).deleteById(nonExistingId);
 		Mockito.doThrow(DataIntegrityViolationException.class).when(productRepository).deleteById(dependentId);
+		
+		Mockito.when(entityManagerFactory.getCache()).thenReturn(Mockito.mock(Cache.class));
 	}
-
+	
 	@Test
 	public void findAllPageShouldReturnPage() {
 		// arrange
@@ -97,7 +140,7 @@ public class ProductServiceTests {
 		
 		// assert
 		Assertions.assertNotNull(result);
-		Mockito.verify(productRepository, Mockito.times(1)).findAll(page);
+		Mockito.verify(productRepository, Mockito.times(1)).findAllSliced(page);
 	}
 	
 	@Test
@@ -153,7 +196,23 @@ public class ProductServiceTests {
 		Assertions.assertNotNull(result);
 		Mockito.verify(productRepository, Mockito.times(1)).save(product);
 		Mockito.verify(productRepository, Mockito.times(1)).getById(existingId);
-		Mockito.verify(categoryRepository, Mockito.times(1)).getById(existingCategoryId);
+		Mockito.verify(categoryRepository, Mockito.never()).findAllById(ArgumentMatchers.any());
+	}
+	
+	@Test
+	public void updateShouldThrowsServiceBadRequestExceptionWhenCategoryDoesNotExist() {
+		// arrange
+		productDto.getCategories().get(0).setId(nonExistingId);
+		
+		// assert
+		Assertions.assertThrows(ServiceBadRequestException.class, () -> {
+			// action
+			service.update(existingId, productDto);
+		});
+		
+		//assert
+		Mockito.verify(categoryRepository, Mockito.times(1)).findAllById(List.of(nonExistingId));
+		Mockito.verify(productRepository, Mockito.never()).save(product);
 	}
 	
 	@Test
@@ -171,7 +230,7 @@ public class ProductServiceTests {
 		//assert
 		Mockito.verify(productRepository, Mockito.times(1)).getById(nonExistingId);
 		Mockito.verify(productRepository, Mockito.never()).save(product);
-		Mockito.verify(categoryRepository, Mockito.never()).getById(existingCategoryId);
+		Mockito.verify(categoryRepository, Mockito.never()).findAllById(ArgumentMatchers.any());
 	}
 	
 	@Test
@@ -216,4 +275,22 @@ public class ProductServiceTests {
 		Mockito.verify(productRepository, Mockito.times(1)).deleteById(dependentId);
 	}
 	
+	@Test
+	public void deleteAllShouldPublishRemovedIdsWithoutReloadWhenCategoryIsInformed() {
+		// arrange
+		List<Long> categoryProductIds = List.of(4L, 5L);
+		Mockito.when(productRepository.findIdsByCategoryId(existingCategoryId)).thenReturn(categoryProductIds);
+		Mockito.when(productRepository.deleteAllByCategoryId(existingCategoryId)).thenReturn(2);
+		
+		// action
+		BulkResultDto result = service.deleteAll(null, existingCategoryId);
+		
+		// assert
+		Assertions.assertEquals(2, (int) result.getAffected());
+		ArgumentCaptor<ProductsChanged> event = ArgumentCaptor.forClass(ProductsChanged.class);
+		Mockito.verify(eventPublisher).publishEvent(event.capture());
+		Assertions.assertEquals(categoryProductIds, event.getValue().getRemoved());
+		Assertions.assertEquals(Reload.NONE, event.getValue().getReload());
+	}
+	
 }
@@ -0,0 +1,64 @@
+package com.devsuperior.dscatalog.services.cache;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import com.devsuperior.dscatalog.dto.CategoryDto;
+import com.devsuperior.dscatalog.entities.Category;
+import com.devsuperior.dscatalog.repositories.CategoryRepository;
+import com.devsuperior.dscatalog.services.util.NameCollation;
+
+@ExtendWith(SpringExtension.class)
+public class CategoryCacheTests {
+	
+	@InjectMocks
+	private CategoryCache cache;
+	
+	@Mock
+	private CategoryRepository categoryRepository;
+	
+	@Spy
+	private NameCollation collation = new NameCollation("pt-BR");
+	
+	@BeforeEach
+	void setUp() {
+		Mockito.when(categoryRepository.findAll()).thenReturn(List.of(new Category(1L, "eletrônicos"),
+				new Category(2L, "Áudio"), new Category(3L, null), new Category(4L, "Brinquedos")));
+	}
+	
+	@Test
+	public void findAllPagedShouldSortNamesByConfiguredCollationWithNullsFirst() {
+		
+		// action
+		Page<CategoryDto> result = cache.findAllPaged(PageRequest.of(0, 10, Sort.by("name"))).orElseThrow();
+		
+		// assert
+		Assertions.assertEquals(List.of(3L, 2L, 4L, 1L),
+				result.getContent().stream().map(x -> x.getId()).collect(Collectors.toList()));
+	}
+	
+	@Test
+	public void findAllPagedShouldPutNullNamesLastWhenSortIsDescending() {
+		
+		// action
+		Page<CategoryDto> result = cache.findAllPaged(PageRequest.of(0, 10, Sort.by("name").descending())).orElseThrow();
+		
+		// assert
+		Assertions.assertEquals(List.of(1L, 4L, 2L, 3L),
+				result.getContent().stream().map(x -> x.getId()).collect(Collectors.toList()));
+	}
+	
+}
@@ -0,0 +1,43 @@
+package com.devsuperior.dscatalog.services.cache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ListingCountCacheTests {
+	
+	@Test
+	public void exactShouldCountAgainWhenEntryWasEvictedBySizeLimit() {
+		// arrange
+		ListingCountCache cache = new ListingCountCache(2);
+		AtomicInteger counts = new AtomicInteger();
+		LongSupplier counter = () -> counts.incrementAndGet();
+		cache.exact(ListingCountCache.PRODUCTS, "a", counter);
+		cache.exact(ListingCountCache.PRODUCTS, "b", counter);
+		cache.exact(ListingCountCache.PRODUCTS, "a", counter);
+		
+		// action
+		cache.exact(ListingCountCache.PRODUCTS, "c", counter);
+		cache.exact(ListingCountCache.PRODUCTS, "a", counter);
+		cache.exact(ListingCountCache.PRODUCTS, "b", counter);
+		
+		// assert
+		Assertions.assertEquals(4, counts.get());
+	}
+	
+	@Test
+	public void approximateShouldCountExactlyWhenFilterHasNoEntry() {
+		// arrange
+		ListingCountCache cache = new ListingCountCache(10);
+		
+		// action
+		ListingCountCache.CountResult result = cache.approximate(ListingCountCache.PRODUCTS, "name=x", () -> 7L);
+		
+		// assert
+		Assertions.assertEquals(7L, result.getCount());
+		Assertions.assertFalse(result.isApproximate());
+	}
+	
+}
@@ -0,0 +1,137 @@
+package com.devsuperior.dscatalog.services.columnar;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.devsuperior.dscatalog.dto.ProductDto;
+import com.devsuperior.dscatalog.dto.ProductSummaryDto;
+import com.devsuperior.dscatalog.entities.Product;
+import com.devsuperior.dscatalog.repositories.ProductRepository;
+import com.devsuperior.dscatalog.repositories.projections.ProductDescriptionProjection;
+import com.devsuperior.dscatalog.services.cache.CategoryCache;
+import com.devsuperior.dscatalog.services.util.IndexRebuildScheduler;
+import com.devsuperior.dscatalog.services.util.NameCollation;
+import com.devsuperior.dscatalog.services.util.ProductFilter;
+import com.devsuperior.dscatalog.services.util.ProductsChanged;
+
+@ExtendWith(SpringExtension.class)
+public class ProductColumnStoreTests {
+	
+	@InjectMocks
+	private ProductColumnStore columnStore;
+	
+	@Mock
+	private ProductRepository productRepository;
+	
+	@Mock
+	private CategoryCache categoryCache;
+	
+	@Mock
+	private CategoryBitmapIndex categoryIndex;
+	
+	@Mock
+	private PlatformTransactionManager transactionManager;
+	
+	@Mock
+	private IndexRebuildScheduler rebuildScheduler;
+	
+	@Spy
+	private NameCollation collation = new NameCollation("pt-BR");
+	
+	private PageRequest byName;
+	
+	@BeforeEach
+	void setUp() {
+		byName = PageRequest.of(0, 1000, Sort.by("name"));
+		Mockito.when(categoryIndex.isReady()).thenReturn(true);
+		Mockito.when(categoryIndex.select(ArgumentMatchers.any())).thenReturn(Optional.empty());
+		Mockito.when(productRepository.findAllSummaries()).thenReturn(List.of(
+				new ProductSummaryDto(1L, "banana", 10.0, null, null),
+				new ProductSummaryDto(2L, "Abacate", 20.0, null, null),
+				new ProductSummaryDto(3L, "ábaco", 30.0, null, null),
+				new ProductSummaryDto(4L, "Caju", 40.0, null, null)));
+	}
+	
+	@Test
+	public void findAllShouldSortNamesByConfiguredCollation() {
+		// arrange
+		columnStore.rebuild();
+		
+		// action
+		Page<ProductDto> result = columnStore.findAll(ProductFilter.of(List.of(), ""), byName, false, false).orElseThrow();
+		
+		// assert
+		Assertions.assertEquals(List.of("Abacate", "ábaco", "banana", "Caju"), names(result));
+	}
+	
+	@Test
+	public void onProductsChangedShouldKeepCollationOrderWhenNamesAreAddedAndRenamedAfterLoad() {
+		// arrange
+		columnStore.rebuild();
+		List<String> expected = new ArrayList<>(List.of("Abacate", "ábaco", "Caju"));
+		
+		// action
+		//nomes crescentes no fim e decrescentes no início esgotam as folgas e forçam redistribuições
+		for (int i = 0; i < 150; i++) {
+			String last = String.format("zz%03d", i);
+			String first = String.format("AA%03d", 149 - i);
+			columnStore.onProductsChanged(ProductsChanged.saved(new Product(100L + i, last, null, 1.0, null, null), false));
+			columnStore.onProductsChanged(ProductsChanged.saved(new Product(300L + i, first, null, 1.0, null, null), false));
+			expected.add(last);
+			expected.add(first);
+		}
+		columnStore.onProductsChanged(ProductsChanged.saved(new Product(1L, "Maçã", null, 10.0, null, null), false));
+		expected.add("Maçã");
+		Page<ProductDto> result = columnStore.findAll(ProductFilter.of(List.of(), ""), byName, false, false).orElseThrow();
+		
+		// assert
+		Collator collator = Collator.getInstance(Locale.forLanguageTag("pt-BR"));
+		expected.sort(collator);
+		Assertions.assertEquals(expected, names(result));
+		Assertions.assertEquals(0L, columnStore.findAll(ProductFilter.of(List.of(), "banana"), byName, false, false)
+				.orElseThrow().getTotalElements());
+	}
+	
+	@Test
+	public void findAllShouldReadDescriptionsOnlyForReturnedRows() {
+		// arrange
+		columnStore.rebuild();
+		ProductDescriptionProjection description = Mockito.mock(ProductDescriptionProjection.class);
+		Mockito.when(description.getId()).thenReturn(2L);
+		Mockito.when(description.getDescription()).thenReturn("Verde");
+		Mockito.when(productRepository.findDescriptionsByIdIn(ArgumentMatchers.any())).thenReturn(List.of(description));
+		
+		// action
+		Page<ProductDto> result = columnStore.findAll(ProductFilter.of(List.of(), ""), PageRequest.of(0, 1, Sort.by("name")),
+				false, false).orElseThrow();
+		
+		// assert
+		Assertions.assertEquals("Verde", result.getContent().get(0).getDescription());
+		Mockito.verify(productRepository).findDescriptionsByIdIn(ArgumentMatchers.eq(Set.of(2L)));
+	}
+	
+	private static List<String> names(Page<ProductDto> page) {
+		return page.getContent().stream().map(x -> x.getName()).collect(Collectors.toList());
+	}
+	
+}
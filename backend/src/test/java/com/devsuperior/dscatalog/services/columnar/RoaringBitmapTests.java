@@ -0,0 +1,108 @@
+package com.devsuperior.dscatalog.services.columnar;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class RoaringBitmapTests {
+	
+	// variáveis auxiliares
+	private TreeSet<Long> sparse;	//poucos ids espalhados: contêineres de array
+	private TreeSet<Long> dense;	//intervalos cheios: contêineres de bitmap
+	
+	@BeforeEach
+	void setUp() throws Exception {
+	
+		Random random = new Random(42L);
+		sparse = new TreeSet<>();
+		dense = new TreeSet<>();
+		for (int i = 0; i < 3000; i++) {
+			sparse.add((long) random.nextInt(300_000));
+		}
+		for (long id = 60_000L; id < 140_000L; id++) {
+			if (random.nextInt(4) != 0) {
+				dense.add(id);
+			}
+		}
+		dense.add(1L << 40);
+	}
+	
+	@Test
+	public void addShouldKeepIdsInOrderAcrossArrayAndBitmapContainers() {
+		// action
+		RoaringBitmap bitmap = bitmapOf(dense);
+	
+		// assert
+		Assertions.assertEquals(dense.size(), bitmap.cardinality());
+		Assertions.assertEquals(new ArrayList<>(dense), idsOf(bitmap));
+		Assertions.assertTrue(bitmap.contains(1L << 40));
+		Assertions.assertFalse(bitmap.contains(59_999L));
+	}
+	
+	@Test
+	public void setOperationsShouldMatchTreeSetResults() {
+		// arrange
+		RoaringBitmap a = bitmapOf(sparse);
+		RoaringBitmap b = bitmapOf(dense);
+		TreeSet<Long> and = new TreeSet<>(sparse);
+		and.retainAll(dense);
+		TreeSet<Long> or = new TreeSet<>(sparse);
+		or.addAll(dense);
+		TreeSet<Long> andNot = new TreeSet<>(dense);
+		andNot.removeAll(sparse);
+	
+		// action & assert
+		Assertions.assertEquals(new ArrayList<>(and), idsOf(RoaringBitmap.and(a, b)));
+		Assertions.assertEquals(and.size(), RoaringBitmap.andCardinality(a, b));
+		Assertions.assertEquals(new ArrayList<>(or), idsOf(RoaringBitmap.or(a, b)));
+		Assertions.assertEquals(new ArrayList<>(andNot), idsOf(RoaringBitmap.andNot(b, a)));
+		Assertions.assertEquals(sparse.size(), a.cardinality()); //os operandos não são alterados
+		Assertions.assertEquals(dense.size(), b.cardinality());
+	}
+	
+	@Test
+	public void removeShouldEmptyBitmapAndIgnoreAbsentIds() {
+		// arrange
+		RoaringBitmap bitmap = bitmapOf(dense);
+		RoaringBitmap copy = bitmap.copy();
+	
+		// action
+		dense.forEach(x -> bitmap.remove(x));
+		bitmap.remove(7L);
+	
+		// assert
+		Assertions.assertTrue(bitmap.isEmpty());
+		Assertions.assertEquals(dense.size(), copy.cardinality());
+	}
+	
+	@Test
+	public void addShouldThrowIllegalArgumentExceptionWhenIdIsNegative() {
+		// arrange
+		RoaringBitmap bitmap = new RoaringBitmap();
+	
+		// action & assert
+		Assertions.assertThrows(IllegalArgumentException.class, () -> bitmap.add(-1L));
+	}
+	
+	private static RoaringBitmap bitmapOf(TreeSet<Long> ids) {
+		RoaringBitmap bitmap = new RoaringBitmap();
+		//ordem embaralhada: os contêineres precisam se manter ordenados sozinhos
+		List<Long> shuffled = new ArrayList<>(ids);
+		Collections.shuffle(shuffled, new Random(7L));
+		shuffled.forEach(x -> bitmap.add(x));
+		return bitmap;
+	}
+	
+	private static List<Long> idsOf(RoaringBitmap bitmap) {
+		List<Long> ids = new ArrayList<>();
+		bitmap.forEach(x -> ids.add(x));
+		return ids;
+	}
+	
+}
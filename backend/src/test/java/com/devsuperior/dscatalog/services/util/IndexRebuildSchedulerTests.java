@@ -0,0 +1,47 @@
+package com.devsuperior.dscatalog.services.util;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class IndexRebuildSchedulerTests {
+	
+	@Test
+	public void scheduleShouldMergeRequestsWhileRebuildIsQueued() throws Exception {
+		// arrange
+		IndexRebuildScheduler scheduler = new IndexRebuildScheduler();
+		CountDownLatch running = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger rebuilds = new AtomicInteger();
+		scheduler.schedule("blocker", () -> {
+			running.countDown();
+			await(release);
+		});
+		Assertions.assertTrue(running.await(5, TimeUnit.SECONDS));
+		
+		// action
+		for (int i = 0; i < 10; i++) {
+			scheduler.schedule("index", () -> rebuilds.incrementAndGet());
+		}
+		CountDownLatch done = new CountDownLatch(1);
+		scheduler.schedule("done", () -> done.countDown());
+		release.countDown();
+		
+		// assert
+		Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+		Assertions.assertEquals(1, rebuilds.get());
+		scheduler.shutdown();
+	}
+	
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+}